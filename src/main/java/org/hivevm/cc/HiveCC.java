@@ -33,6 +33,7 @@ public interface HiveCC {
 
 
     String JJPARSER_NO_DFA = "NO_DFA";
+    String JJPARSER_TABLE_LEXER = "TABLE_LEXER";
     String JJPARSER_LOOKAHEAD = "LOOKAHEAD";
     String JJPARSER_IGNORE_CASE = "IGNORE_CASE";
     String JJPARSER_ERROR_REPORTING = "ERROR_REPORTING";
@@ -48,6 +49,26 @@ public interface HiveCC {
     String JJPARSER_CODEGENERATOR = "CODE_GENERATOR";
     String JJPARSER_KEEP_LINE_COLUMN = "KEEP_LINE_COLUMN";
     String JJPARSER_DEPTH_LIMIT = "DEPTH_LIMIT";
+    String JJPARSER_TOKEN_BUFFER = "TOKEN_BUFFER";
+    String JJPARSER_LAZY_IMAGES = "LAZY_IMAGES";
+    String JJPARSER_LAZY_POSITIONS = "LAZY_POSITIONS";
+    String JJPARSER_INCREMENTAL_LEXER = "INCREMENTAL_LEXER";
+    String JJPARSER_PARSER_POOL = "PARSER_POOL";
+    String JJPARSER_MEMOIZE = "MEMOIZE";
+    String JJPARSER_MEMOIZE_PRODUCTIONS = "MEMOIZE_PRODUCTIONS";
+    String JJPARSER_DECIDE_LOOKAHEAD = "DECIDE_LOOKAHEAD";
+    String JJPARSER_LAZY_ERROR_REPORTING = "LAZY_ERROR_REPORTING";
+    String JJPARSER_EXCEPTION_FREE_LOOKAHEAD = "EXCEPTION_FREE_LOOKAHEAD";
+    String JJPARSER_LEXER_THREAD = "LEXER_THREAD";
+    String JJPARSER_PARSE_BUDGET = "PARSE_BUDGET";
+    String JJPARSER_LOOKAHEAD_STATS = "LOOKAHEAD_STATS";
+    String JJPARSER_PARSE_RESULT = "PARSE_RESULT";
+    String JJPARSER_SYNC_TOKENS = "SYNC_TOKENS";
+    String JJPARSER_DEFER_PRODUCTIONS = "DEFER_PRODUCTIONS";
+    String JJPARSER_RECOGNIZER = "RECOGNIZER";
+    String JJPARSER_PARALLEL_UNITS = "PARALLEL_UNITS";
+    String JJPARSER_CHUNKED_LEXER = "CHUNKED_LEXER";
+    String JJPARSER_PARSER_BATCH = "PARSER_BATCH";
 
     String JJPARSER_BASE_LEXER = "BASE_LEXER";
     String JJPARSER_BASE_PARSER = "BASE_PARSER";
@@ -36,6 +36,7 @@ public class HiveCCOptions implements Options {
         temp.add(new OptionInfo(HiveCC.JJPARSER_CHOICE_AMBIGUITY_CHECK, 2));
         temp.add(new OptionInfo(HiveCC.JJPARSER_OTHER_AMBIGUITY_CHECK, 1));
         temp.add(new OptionInfo(HiveCC.JJPARSER_NO_DFA, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_TABLE_LEXER, Boolean.FALSE));
         temp.add(new OptionInfo(HiveCC.JJPARSER_DEBUG_PARSER, Boolean.FALSE));
 
         temp.add(new OptionInfo(HiveCC.JJPARSER_DEBUG_LOOKAHEAD, Boolean.FALSE));
@@ -52,6 +53,26 @@ public class HiveCCOptions implements Options {
         temp.add(new OptionInfo(HiveCC.JJPARSER_OUTPUT_DIRECTORY, "."));
         temp.add(new OptionInfo(HiveCC.JJPARSER_CODEGENERATOR, HiveCCOptions.OUTPUT_LANGUAGE_JAVA));
         temp.add(new OptionInfo(HiveCC.JJPARSER_DEPTH_LIMIT, 0));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_TOKEN_BUFFER, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_LAZY_IMAGES, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_LAZY_POSITIONS, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_INCREMENTAL_LEXER, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_PARSER_POOL, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_MEMOIZE, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_MEMOIZE_PRODUCTIONS, ""));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_DECIDE_LOOKAHEAD, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_LAZY_ERROR_REPORTING, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_EXCEPTION_FREE_LOOKAHEAD, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_LEXER_THREAD, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_PARSE_BUDGET, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_LOOKAHEAD_STATS, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_PARSE_RESULT, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_SYNC_TOKENS, ""));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_DEFER_PRODUCTIONS, ""));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_RECOGNIZER, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_PARALLEL_UNITS, ""));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_CHUNKED_LEXER, Boolean.FALSE));
+        temp.add(new OptionInfo(HiveCC.JJPARSER_PARSER_BATCH, ""));
 
         temp.add(new OptionInfo(HiveCC.JJPARSER_BASE_PARSER, ""));
         temp.add(new OptionInfo(HiveCC.JJPARSER_BASE_LEXER, ""));
@@ -18,6 +18,13 @@ public abstract class GeneratorProvider implements Generator {
 
     protected abstract FileGenerator newFileGenerator();
 
+    /**
+     * Creates the generator of the recognizer, or <code>null</code> if the language has none.
+     */
+    protected ParserGenerator newRecognizerGenerator() {
+        return null;
+    }
+
     /**
      * Generates the parser files.
      */
@@ -36,6 +43,14 @@ public abstract class GeneratorProvider implements Generator {
         if (!JavaCCErrors.hasError()) {
             newLexerGenerator().generate(dataLexer);
             newParserGenerator().generate(dataParser);
+            if (request.options().getRecognizer()) {
+                var generator = newRecognizerGenerator();
+                if (generator == null) {
+                    JavaCCErrors.warning("RECOGNIZER is not supported by the code generator, it is not generated.");
+                } else {
+                    generator.generate(new ParserBuilder().build(new RecognizerRequest(request)));
+                }
+            }
         }
     }
 
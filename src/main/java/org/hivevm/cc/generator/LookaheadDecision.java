@@ -0,0 +1,31 @@
+// Copyright 2024 HiveVM.ORG. All rights reserved.
+// SPDX-License-Identifier: BSD-3-Clause
+
+package org.hivevm.cc.generator;
+
+/**
+ * The decision of a syntactic lookahead, that is resolved by the kinds of the next tokens. The
+ * decision is a binary tree that tests the kind of the token at a position, relative to the current
+ * token.
+ */
+public sealed interface LookaheadDecision {
+
+    /**
+     * The outcome of the lookahead.
+     *
+     * @param result  <code>true</code> if the lookahead succeeds
+     * @param scanned the number of tokens the scan has read
+     */
+    record Leaf(boolean result, int scanned) implements LookaheadDecision {}
+
+    /**
+     * Tests if the token at the position has the kind.
+     *
+     * @param position  the position of the token, starting with 1 for the next token
+     * @param kind      the kind of the token
+     * @param match     the decision if the token has the kind
+     * @param otherwise the decision if the token has another kind
+     */
+    record Test(int position, int kind, LookaheadDecision match, LookaheadDecision otherwise)
+            implements LookaheadDecision {}
+}
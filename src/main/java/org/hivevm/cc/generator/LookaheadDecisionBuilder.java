@@ -0,0 +1,288 @@
+// Copyright 2024 HiveVM.ORG. All rights reserved.
+// SPDX-License-Identifier: BSD-3-Clause
+
+package org.hivevm.cc.generator;
+
+import org.hivevm.cc.generator.LookaheadDecision.Leaf;
+import org.hivevm.cc.generator.LookaheadDecision.Test;
+import org.hivevm.cc.model.Choice;
+import org.hivevm.cc.model.Expansion;
+import org.hivevm.cc.model.Lookahead;
+import org.hivevm.cc.model.NonTerminal;
+import org.hivevm.cc.model.OneOrMore;
+import org.hivevm.cc.model.RExpression;
+import org.hivevm.cc.model.Sequence;
+import org.hivevm.cc.model.ZeroOrMore;
+import org.hivevm.cc.model.ZeroOrOne;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Computes the {@link LookaheadDecision} of a syntactic lookahead. The jj3 routines of the
+ * lookahead are executed on symbolic tokens: each time a routine compares the kind of a token that
+ * is not known yet, the execution forks for a token of that kind and a token of any other kind.
+ * <p>
+ * The decision is only built, if the routines read a bounded number of tokens and the tree stays
+ * small. Otherwise the lookahead remains a speculative scan.
+ */
+class LookaheadDecisionBuilder {
+
+    private static final int MAX_POSITION = 8;
+    private static final int MAX_TESTS    = 64;
+
+    private final ParserData data;
+    private final int        amount;
+
+    // The known kind of the token at a position or -1, and the kinds the token doesn't have.
+    private int[]    kinds;
+    private BitSet[] excluded;
+
+    // The state of the scan, like the jj_scanpos, jj_lastpos & jj_la of the parser.
+    private int scanpos;
+    private int lastpos;
+    private int la;
+
+    private int tests;
+
+    private LookaheadDecisionBuilder(ParserData data, int amount) {
+        this.data = data;
+        this.amount = amount;
+    }
+
+    /**
+     * Builds the decision of the lookahead, or returns <code>null</code> if the lookahead can not
+     * be resolved by a small number of token kinds.
+     */
+    static LookaheadDecision build(ParserData data, Lookahead la) {
+        var builder = new LookaheadDecisionBuilder(data, la.getAmount());
+        builder.kinds = new int[LookaheadDecisionBuilder.MAX_POSITION + 1];
+        builder.excluded = new BitSet[LookaheadDecisionBuilder.MAX_POSITION + 1];
+        Arrays.fill(builder.kinds, -1);
+        for (int i = 0; i < builder.excluded.length; i++) {
+            builder.excluded[i] = new BitSet();
+        }
+        try {
+            return builder.decide(la.getLaExpansion());
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    private LookaheadDecision decide(Expansion e) {
+        try {
+            return run(e);
+        } catch (Undecided u) {
+            if (++this.tests > LookaheadDecisionBuilder.MAX_TESTS) {
+                throw Unsupported.INSTANCE;
+            }
+
+            int[] kinds = this.kinds.clone();
+            BitSet excluded = (BitSet) this.excluded[u.position].clone();
+
+            this.kinds[u.position] = u.kind;
+            LookaheadDecision match = decide(e);
+            this.kinds = kinds;
+
+            this.excluded[u.position].set(u.kind);
+            LookaheadDecision otherwise = decide(e);
+            this.excluded[u.position] = excluded;
+
+            return match.equals(otherwise) ? match : new Test(u.position, u.kind, match, otherwise);
+        }
+    }
+
+    /**
+     * Executes the jj2 routine of the lookahead expansion.
+     */
+    private Leaf run(Expansion e) {
+        this.scanpos = 0;
+        this.lastpos = 0;
+        this.la = this.amount;
+        try {
+            return new Leaf(!routine(e), this.lastpos);
+        } catch (Success s) {
+            return new Leaf(true, this.lastpos);
+        }
+    }
+
+    /**
+     * Executes the jj3 routine of the expansion, returns <code>true</code> if the scan fails.
+     */
+    private boolean routine(Expansion e) {
+        return expansion(e, this.data.getCount(e));
+    }
+
+    private boolean call(Expansion e) {
+        if (e.internalName().startsWith("jj_scan_token")) {
+            Expansion seq = e;
+            while (true) {
+                if ((seq instanceof Sequence s) && s.getUnits().size() == 2) {
+                    seq = s.getUnits().get(1);
+                } else if (seq instanceof NonTerminal nt) {
+                    seq = this.data.getProduction(nt.getName()).getExpansion();
+                } else {
+                    break;
+                }
+            }
+            return scan(((RExpression) seq).getOrdinal());
+        }
+        return routine(e);
+    }
+
+    private boolean expansion(Expansion e, int count) {
+        if (e.internalName().startsWith("jj_scan_token")) {
+            return false;
+        }
+
+        switch (e) {
+            case RExpression re -> {
+                return scan(re.getOrdinal());
+            }
+            case NonTerminal nt -> {
+                return call(this.data.getProduction(nt.getName()).getExpansion());
+            }
+            case Choice choice -> {
+                int xsp = this.scanpos;
+                for (Expansion alternative : choice.getChoices()) {
+                    Lookahead la = (Lookahead) ((Sequence) alternative).getUnits().getFirst();
+                    if (!la.getActionTokens().isEmpty()) {
+                        // Semantic lookahead depends on the state of the parser
+                        throw Unsupported.INSTANCE;
+                    }
+                    if (!call(alternative)) {
+                        return false;
+                    }
+                    this.scanpos = xsp;
+                }
+                return true;
+            }
+            case Sequence seq -> {
+                int cnt = count;
+                for (int i = 1; i < seq.getUnits().size(); i++) {
+                    Expansion unit = seq.getUnits().get(i);
+                    if (expansion(unit, cnt)) {
+                        return true;
+                    }
+                    cnt -= this.data.minimumSize(unit);
+                    if (cnt <= 0) {
+                        break;
+                    }
+                }
+                return false;
+            }
+            case OneOrMore om -> {
+                if (call(om.getExpansion())) {
+                    return true;
+                }
+                loop(om.getExpansion());
+                return false;
+            }
+            case ZeroOrMore zm -> {
+                loop(zm.getExpansion());
+                return false;
+            }
+            case ZeroOrOne zo -> {
+                int xsp = this.scanpos;
+                if (call(zo.getExpansion())) {
+                    this.scanpos = xsp;
+                }
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private void loop(Expansion e) {
+        while (true) {
+            int xsp = this.scanpos;
+            if (call(e)) {
+                this.scanpos = xsp;
+                return;
+            }
+            if (this.scanpos == xsp) {
+                // The nested expansion matches the empty string
+                throw Unsupported.INSTANCE;
+            }
+        }
+    }
+
+    /**
+     * Scans the next token like jj_scan_token, returns <code>true</code> if the token doesn't
+     * match.
+     */
+    private boolean scan(int kind) {
+        if (this.scanpos == this.lastpos) {
+            this.la--;
+            this.lastpos = ++this.scanpos;
+        } else {
+            this.scanpos++;
+        }
+        if (this.scanpos > LookaheadDecisionBuilder.MAX_POSITION) {
+            throw Unsupported.INSTANCE;
+        }
+
+        int known = this.kinds[this.scanpos];
+        if (known < 0) {
+            if (!this.excluded[this.scanpos].get(kind)) {
+                throw new Undecided(this.scanpos, kind);
+            }
+            return true;
+        }
+        if (known != kind) {
+            return true;
+        }
+        if (this.la == 0 && this.scanpos == this.lastpos) {
+            throw Success.INSTANCE;
+        }
+        return false;
+    }
+
+    /**
+     * Thrown if the kind of a token must be known to continue the scan.
+     */
+    private static final class Undecided extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int position;
+        private final int kind;
+
+        private Undecided(int position, int kind) {
+            super(null, null, false, false);
+            this.position = position;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Thrown if the scan has reached the amount of the lookahead, like the LookaheadSuccess of the
+     * parser.
+     */
+    private static final class Success extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Success INSTANCE = new Success();
+
+        private Success() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Thrown if the lookahead can not be resolved by a small number of token kinds.
+     */
+    private static final class Unsupported extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
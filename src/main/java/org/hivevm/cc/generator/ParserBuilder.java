@@ -33,6 +33,9 @@ class ParserBuilder {
 
     private int rIndex;
 
+    // The production that is built by phase 1.
+    private NormalProduction production;
+
     /**
      * Constructs an instance of {@link ParserBuilder}.
      */
@@ -52,6 +55,7 @@ class ParserBuilder {
         ParserData data = new ParserData(request);
         for (NormalProduction p : data.getProductions()) {
             if (p instanceof BNFProduction) {
+                this.production = p;
                 buildPhase1(data, p.getExpansion());
             }
         }
@@ -71,6 +75,17 @@ class ParserBuilder {
             buildPhase3Routine(data, e, data.getCount(e));
         }
 
+        // With DECIDE_LOOKAHEAD, lookaheads that are resolved by the kinds of the next tokens don't
+        // need a scan. The scan is kept for tracing and for the depth limit.
+        if (data.options().getDecideLookahead() && !data.getDebugLookahead() && (data.getDepthLimit() == 0)) {
+            for (Lookahead la : data.getLoakaheads()) {
+                LookaheadDecision decision = LookaheadDecisionBuilder.build(data, la);
+                if (decision != null) {
+                    data.setDecision(la.getLaExpansion(), decision);
+                }
+            }
+        }
+
         return data;
     }
 
@@ -255,7 +270,7 @@ class ParserBuilder {
                 }
 
                 // At this point, la.la_expansion.internal_name must be "".
-                la.getLaExpansion().setInternalName("_" + data.addLookupAhead(la));
+                la.getLaExpansion().setInternalName("_" + data.addLookupAhead(la, this.production));
                 state = LookaheadState.OPENIF;
             }
         }
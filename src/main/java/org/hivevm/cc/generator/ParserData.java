@@ -51,6 +51,8 @@ public class ParserData {
     private final List<int[]> maskVals;
     private final Map<Expansion, Lookahead[]> lookaheads;
     private final Map<Lookahead, Integer> lookaheadIndex;
+    private final Map<Expansion, LookaheadDecision> decisions;
+    private final Map<Lookahead, NormalProduction> lookaheadProductions;
 
     /**
      * An array used to store the first sets generated by the following method. A true entry means
@@ -74,6 +76,8 @@ public class ParserData {
         this.phase2list = new ArrayList<>();
         this.lookaheads = new HashMap<>();
         this.lookaheadIndex = new HashMap<>();
+        this.decisions = new HashMap<>();
+        this.lookaheadProductions = new HashMap<>();
         this.nodeData = new NodeData();
     }
 
@@ -98,7 +102,11 @@ public class ParserData {
     }
 
     public final boolean getCacheTokens() {
-        return options().getCacheTokens();
+        return options().getCacheTokens() && !getTokenBuffer();
+    }
+
+    public final boolean getTokenBuffer() {
+        return options().getTokenBuffer();
     }
 
     public final boolean getDebugParser() {
@@ -153,6 +161,25 @@ public class ParserData {
         return this.lookaheadIndex.get(lookahead);
     }
 
+    /**
+     * Get the decision of the lookahead expansion, or <code>null</code> if the lookahead is
+     * determined by a speculative scan.
+     */
+    public final LookaheadDecision getDecision(Expansion e) {
+        return this.decisions.get(e);
+    }
+
+    public final boolean hasDecisions() {
+        return !this.decisions.isEmpty();
+    }
+
+    /**
+     * Get the production that contains the lookahead of a jj2 routine.
+     */
+    public final NormalProduction getProduction(Lookahead lookahead) {
+        return this.lookaheadProductions.get(lookahead);
+    }
+
     public final int jj2Index() {
         return this.jj2index;
     }
@@ -174,8 +201,9 @@ public class ParserData {
         this.maskVals.add(maskVal);
     }
 
-    protected final int addLookupAhead(Lookahead lookahead) {
+    protected final int addLookupAhead(Lookahead lookahead, NormalProduction production) {
         this.phase2list.add(lookahead);
+        this.lookaheadProductions.put(lookahead, production);
         return ++this.jj2index;
     }
 
@@ -183,6 +211,10 @@ public class ParserData {
         this.lookaheads.put(e, lookaheads);
     }
 
+    protected final void setDecision(Expansion e, LookaheadDecision decision) {
+        this.decisions.put(e, decision);
+    }
+
 
     protected final void addExpansion(Lookahead la) {
         Expansion e = la.getLaExpansion();
@@ -93,6 +93,14 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
         return "" + i;
     }
 
+    /**
+     * Returns <code>true</code> if the actions, the nodes and the assignments of the grammar are
+     * generated. A recognizer generates only the expansions of the grammar.
+     */
+    protected boolean withActions() {
+        return true;
+    }
+
     protected final int nextLabelIndex() {
         return ++this.labelIndex;
     }
@@ -103,12 +111,12 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
         }
     }
 
-    private void generatePhase1(NormalProduction p, LinePrinter printer, ParserData data) {
+    protected final void generatePhase1(NormalProduction p, LinePrinter printer, ParserData data) {
         var default_return = generate_phase1_head(p, printer, data);
         printer.indent();
 
         // TreeNodes:
-        var node_scope = p.getNodeScope();
+        var node_scope = withActions() ? p.getNodeScope() : null;
         if (node_scope != null) {
             var nd = node_scope.getNodeDescriptor();
             var nodeClass = NodeDescriptor.getNodeClass(nd.getName(), data.options());
@@ -144,7 +152,7 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
 
     protected final void generate_phase1_expansion(ParserData data, Expansion e, NodeScope ns, LinePrinter printer) {
         // TreeNodes:
-        var node_scope = e.getNodeScope();
+        var node_scope = withActions() ? e.getNodeScope() : null;
         if (node_scope != null) {
             var nd = node_scope.getNodeDescriptor();
             var nodeClass = NodeDescriptor.getNodeClass(nd.getName(), data.options());
@@ -159,14 +167,14 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
         switch (e) {
             case RExpression re -> {
                 printer.println();
-                if (!re.getLhsTokens().isEmpty()) {
+                if (withActions() && !re.getLhsTokens().isEmpty()) {
                     setup_token(re.getLhsTokens().getFirst());
                     re.getLhsTokens().forEach(t -> printToken(t, scope, printer));
                     printTrailingComments(printer, re.getLhsTokens().getLast());
                     printer.print(" = ");
                 }
 
-                generate_phase1_regexp(printer);
+                generate_phase1_regexp(re, printer, data);
                 if (re.getLabel().isEmpty()) {
                     String label = data.getNameOfToken(re.getOrdinal());
                     printer.print(label != null ? label : "" + re.getOrdinal());
@@ -177,14 +185,14 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
             }
             case NonTerminal e_nrw -> {
                 printer.println();
-                if (!e_nrw.getLhsTokens().isEmpty()) {
+                if (withActions() && !e_nrw.getLhsTokens().isEmpty()) {
                     setup_token((e_nrw.getLhsTokens().getFirst()));
                     e_nrw.getLhsTokens().forEach(t -> printToken(t, scope, printer));
                     printTrailingComments(printer, e_nrw.getLhsTokens().getLast());
                     printer.print(" = ");
                 }
                 generate_phase1_nonterminal(e_nrw, printer);
-                if (!e_nrw.getArgumentTokens().isEmpty()) {
+                if (withActions() && !e_nrw.getArgumentTokens().isEmpty()) {
                     setup_token(e_nrw.getArgumentTokens().getFirst());
                     e_nrw.getArgumentTokens().forEach(t -> printToken(t, scope, printer));
                     printTrailingComments(printer, e_nrw.getArgumentTokens().getLast());
@@ -193,7 +201,7 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
             }
             case Action e_nrw -> {
                 printer.println();
-                if (!e_nrw.getActionTokens().isEmpty()) {
+                if (withActions() && !e_nrw.getActionTokens().isEmpty()) {
                     setup_token(e_nrw.getActionTokens().getFirst());
                     e_nrw.getActionTokens().forEach(t -> printToken(t, scope, printer));
                     printTrailingComments(printer, e_nrw.getActionTokens().getLast());
@@ -265,7 +273,7 @@ public abstract class ParserGenerator extends CodeGenerator<ParserData> {
         }
     }
 
-    protected abstract void generate_phase1_regexp(LinePrinter printer);
+    protected abstract void generate_phase1_regexp(RExpression re, LinePrinter printer, ParserData data);
 
     protected abstract void generate_phase1_regexp_end(RExpression re, LinePrinter printer);
 
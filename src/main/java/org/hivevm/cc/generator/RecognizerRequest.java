@@ -0,0 +1,129 @@
+// Copyright 2024 HiveVM.ORG. All rights reserved.
+// SPDX-License-Identifier: BSD-3-Clause
+
+package org.hivevm.cc.generator;
+
+import org.hivevm.cc.HiveCC;
+import org.hivevm.cc.ParserRequest;
+import org.hivevm.cc.model.Action;
+import org.hivevm.cc.model.NormalProduction;
+import org.hivevm.cc.model.RExpression;
+import org.hivevm.cc.model.TokenProduction;
+import org.hivevm.cc.parser.Options;
+
+import java.util.Map;
+
+/**
+ * The {@link RecognizerRequest} is the {@link ParserRequest} of the recognizer of a grammar. It
+ * provides the productions of the grammar without nodes, and replaces the options of the parser
+ * that the recognizer doesn't support.
+ */
+class RecognizerRequest implements ParserRequest {
+
+    // The options of the parser that are replaced for the recognizer.
+    private static final Map<String, Object> OPTIONS = Map.ofEntries(
+            Map.entry(HiveCC.JJPARSER_TOKEN_BUFFER, Boolean.TRUE),
+            Map.entry(HiveCC.JJPARSER_CACHE_TOKENS, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_ERROR_REPORTING, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_DEBUG_PARSER, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_DEBUG_LOOKAHEAD, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_DEPTH_LIMIT, 0),
+            Map.entry(HiveCC.JJPARSER_MEMOIZE, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_MEMOIZE_PRODUCTIONS, ""),
+            Map.entry(HiveCC.JJPARSER_LAZY_ERROR_REPORTING, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_EXCEPTION_FREE_LOOKAHEAD, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_LOOKAHEAD_STATS, Boolean.FALSE),
+            Map.entry(HiveCC.JJPARSER_SYNC_TOKENS, ""),
+            Map.entry(HiveCC.JJPARSER_DEFER_PRODUCTIONS, ""));
+
+    private final ParserRequest request;
+    private final Options       options;
+
+    /**
+     * Constructs an instance of {@link RecognizerRequest}.
+     */
+    RecognizerRequest(ParserRequest request) {
+        this.request = request;
+        this.options = new Options() {
+
+            @Override
+            public boolean has(String name) {
+                return RecognizerRequest.OPTIONS.containsKey(name) || request.options().has(name);
+            }
+
+            @Override
+            public Object get(String name) {
+                return RecognizerRequest.OPTIONS.containsKey(name) ? RecognizerRequest.OPTIONS.get(name)
+                        : request.options().get(name);
+            }
+        };
+    }
+
+    @Override
+    public final Options options() {
+        return this.options;
+    }
+
+    @Override
+    public final String getParserName() {
+        return this.request.getParserName();
+    }
+
+    /**
+     * The recognizer doesn't build a tree.
+     */
+    @Override
+    public final boolean isGenerated() {
+        return false;
+    }
+
+    @Override
+    public final boolean ignoreCase() {
+        return this.request.ignoreCase();
+    }
+
+    @Override
+    public final int getStateCount() {
+        return this.request.getStateCount();
+    }
+
+    @Override
+    public final int getTokenCount() {
+        return this.request.getTokenCount();
+    }
+
+    @Override
+    public final Action getActionForEof() {
+        return this.request.getActionForEof();
+    }
+
+    @Override
+    public final String getNextStateForEof() {
+        return this.request.getNextStateForEof();
+    }
+
+    @Override
+    public final String getNameOfToken(int ordinal) {
+        return this.request.getNameOfToken(ordinal);
+    }
+
+    @Override
+    public final Iterable<RExpression> getOrderedsTokens() {
+        return this.request.getOrderedsTokens();
+    }
+
+    @Override
+    public final Iterable<TokenProduction> getTokenProductions() {
+        return this.request.getTokenProductions();
+    }
+
+    @Override
+    public final Iterable<NormalProduction> getNormalProductions() {
+        return this.request.getNormalProductions();
+    }
+
+    @Override
+    public final NormalProduction getProductionTable(String name) {
+        return this.request.getProductionTable(name);
+    }
+}
@@ -311,7 +311,7 @@ class CppLexerGenerator extends LexerGenerator {
             printer.println("matchedToken = jjFillToken();");
 
             if (data.hasSpecial()) {
-                printer.println("matchedToken->specialToken = specialToken;");
+                printer.println("matchedToken->specialToken() = specialToken;");
             }
 
             if (data.hasTokenActions()) {
@@ -349,8 +349,8 @@ class CppLexerGenerator extends LexerGenerator {
                         printer.println("if (specialToken == nullptr)");
                         printer.println("    specialToken = matchedToken;");
                         printer.println("else {");
-                        printer.println("    matchedToken->specialToken = specialToken;");
-                        printer.println("    specialToken = (specialToken->next = matchedToken);");
+                        printer.println("    matchedToken->specialToken() = specialToken;");
+                        printer.println("    specialToken = (specialToken->next() = matchedToken);");
                         printer.println("}");
 
                         if (data.hasSkipActions()) {
@@ -135,7 +135,7 @@ class CppParserGenerator extends ParserGenerator {
     }
 
     @Override
-    protected void generate_phase1_regexp(LinePrinter printer) {
+    protected void generate_phase1_regexp(RExpression re, LinePrinter printer, ParserData data) {
         printer.print("jj_consume_token(");
     }
 
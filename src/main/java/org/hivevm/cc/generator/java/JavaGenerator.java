@@ -9,6 +9,8 @@ import org.hivevm.cc.generator.GeneratorProvider;
 import org.hivevm.cc.generator.LexerGenerator;
 import org.hivevm.cc.generator.NodeGenerator;
 import org.hivevm.cc.generator.ParserGenerator;
+import org.hivevm.cc.parser.JavaCCErrors;
+import org.hivevm.source.Template;
 
 /**
  * The {@link JavaGenerator} class.
@@ -31,6 +33,11 @@ public class JavaGenerator extends GeneratorProvider {
         return new JavaParserGenerator();
     }
 
+    @Override
+    protected final ParserGenerator newRecognizerGenerator() {
+        return new JavaRecognizerGenerator();
+    }
+
     @Override
     protected final FileGenerator newFileGenerator() {
         return context -> {
@@ -38,10 +45,52 @@ public class JavaGenerator extends GeneratorProvider {
             JavaTemplate.STRING_PROVIDER.render(context.options());
             JavaTemplate.STREAM_PROVIDER.render(context.options());
             JavaTemplate.CHAR_STREAM.render(context.options());
+            JavaTemplate.JAVA_CHAR_STREAM.render(context.options());
+            JavaTemplate.ARRAY_CHAR_STREAM.render(context.options());
+            var utf8 = Template.newContext(context.options());
+            utf8.set("LAZY_OFFSETS",
+                    context.options().getLazyImages() || context.options().getLazyPositions());
+            JavaTemplate.UTF8_CHAR_STREAM.render(utf8);
+            if (context.options().getIncrementalLexer()) {
+                JavaTemplate.INCREMENTAL_LEXER.render(context.options());
+            }
+            if (context.options().getLexerThread()) {
+                if (context.options().getTokenBuffer() || context.options().getLazyImages()
+                        || context.options().getLazyPositions()) {
+                    JavaCCErrors.warning("LEXER_THREAD requires the options TOKEN_BUFFER, LAZY_IMAGES and "
+                            + "LAZY_POSITIONS to be off, the LexerPipeline is not generated.");
+                } else {
+                    var pipeline = Template.newContext(context.options());
+                    pipeline.set("NEXT_KIND", JavaLexerGenerator.hasNextKind(context.options()));
+                    JavaTemplate.LEXER_PIPELINE.render(pipeline);
+                }
+            }
+            if (context.options().getChunkedLexer()) {
+                JavaTemplate.CHUNKED_LEXER.render(context.options());
+            }
 
             JavaTemplate.TOKEN.render(context.options());
+            if (context.options().getTokenBuffer()) {
+                JavaTemplate.TOKEN_BUFFER.render(context.options());
+            }
+            if (context.options().getLazyImages()) {
+                JavaTemplate.TOKEN_IMAGE.render(context.options());
+            }
             JavaTemplate.TOKEN_EXCEPTION.render(context.options());
             JavaTemplate.PARSER_EXCEPTION.render(context.options());
+            if (context.options().getParserPool()) {
+                JavaTemplate.PARSER_POOL.render(context.options());
+            }
+            if (context.options().getParseBudget()) {
+                JavaTemplate.PARSE_BUDGET.render(context.options());
+                JavaTemplate.PARSE_BUDGET_EXCEPTION.render(context.options());
+            }
+            if (context.options().getLookaheadStats()) {
+                JavaTemplate.LOOKAHEAD_STATS.render(context.options());
+            }
+            if (context.options().getParseResult()) {
+                JavaTemplate.PARSE_RESULT.render(context.options());
+            }
         };
     }
 }
@@ -7,6 +7,7 @@ import org.hivevm.cc.Encoding;
 import org.hivevm.cc.Language;
 import org.hivevm.cc.generator.LexerGenerator;
 import org.hivevm.cc.lexer.LexerData;
+import org.hivevm.cc.lexer.MoveTableBuilder;
 import org.hivevm.cc.lexer.NfaState;
 import org.hivevm.cc.lexer.NfaStateData;
 import org.hivevm.cc.lexer.NfaStateData.KindInfo;
@@ -15,19 +16,38 @@ import org.hivevm.cc.model.RExpression;
 import org.hivevm.cc.model.RStringLiteral;
 import org.hivevm.cc.model.TokenKind;
 import org.hivevm.cc.parser.JavaCCErrors;
+import org.hivevm.cc.parser.Options;
 import org.hivevm.source.Context;
 import org.hivevm.source.LinePrinter;
 import org.hivevm.source.SourceProvider;
 
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Generate lexer.
  */
 class JavaLexerGenerator extends LexerGenerator {
 
+    // The largest string constant of a class file, in bytes of modified UTF-8.
+    private static final int MAX_CONSTANT_LENGTH = 65535;
+
+    // The move tables of the lexical states that are lexed by a DFA, by the index of the state.
+    private final Map<Integer, int[]> moveTables = new HashMap<>();
+
+    /**
+     * The result of the token loop: a {@link Token}, the kind of a token appended to a TokenBuffer,
+     * or only the kind of the token for a recognizer.
+     */
+    private enum Output {
+        TOKEN,
+        BUFFER,
+        KIND
+    }
+
     public JavaLexerGenerator() {
         super(Language.JAVA);
     }
@@ -37,10 +57,44 @@ class JavaLexerGenerator extends LexerGenerator {
         options.set("STATES_FOR_STATE", () -> getStatesForState(data));
         options.set("KIND_FOR_STATE", () -> getKindForState(data));
         options.set("DUMP_LITERAL_IMAGES", p -> dump_literal_images(data, p));
+        options.set("DUMP_GET_NEXT_TOKEN_BUFFER", p -> dumpGetNextToken(p, data, Output.BUFFER));
+        options.set("DUMP_GET_NEXT_KIND", p -> dumpGetNextToken(p, data, Output.KIND));
+        options.set("NEXT_KIND", JavaLexerGenerator.hasNextKind(data.options()));
+        this.moveTables.clear();
+        if (data.options().getTableLexer() && buildMoveTables(data)) {
+            // The moves of the NFA are interpreted from the tables, no jjCanMove methods are used
+            options.add(LexerGenerator.LOHI_BYTES, List.<Integer>of());
+            options.add(LexerGenerator.NON_ASCII_TABLE, List.<NfaState>of());
+        }
 
         JavaTemplate.LEXER.render(options);
     }
 
+    /**
+     * Builds the move tables of the lexical states that have an NFA. A lexical state whose DFA
+     * exceeds the number of states is lexed by the NFA.
+     *
+     * @return <code>true</code> if all lexical states are lexed by their tables
+     */
+    private boolean buildMoveTables(LexerData data) {
+        boolean tables = true;
+        for (String name : data.getStateNames()) {
+            NfaStateData state = data.getStateData(name);
+            if (state.generatedStates() == 0) {
+                continue;
+            }
+            int[] table = MoveTableBuilder.build(state);
+            if (table == null) {
+                JavaCCErrors.warning("The DFA of the lexical state " + name + " has more than "
+                        + MoveTableBuilder.MAX_STATES + " states, the state is lexed by the NFA.");
+                tables = false;
+            } else {
+                this.moveTables.put(state.getStateIndex(), table);
+            }
+        }
+        return tables;
+    }
+
     protected SourceProvider getConstantsTemplate() {
         return JavaTemplate.PARSER_CONSTANTS;
     }
@@ -48,7 +102,7 @@ class JavaLexerGenerator extends LexerGenerator {
     protected void dumpStaticVarDeclarations(LinePrinter printer, LexerData data) {
         if (data.maxLexStates() > 1) {
             printer.println();
-            printer.print("public static final int[] jjnewLexState = {");
+            printer.print("static final int[] jjnewLexState = {");
             printer.indent();
 
             for (int i = 0; i < data.maxOrdinal(); i++) {
@@ -129,11 +183,38 @@ class JavaLexerGenerator extends LexerGenerator {
     }
 
     protected void dumpGetNextToken(LinePrinter printer, LexerData data) {
-        if (data.hasEof()) {
+        dumpGetNextToken(printer, data, Output.TOKEN);
+    }
+
+    /**
+     * Dumps the body of the token loop. If buffered, the regular tokens are appended to a
+     * TokenBuffer and only the kind is returned. For the kind alone, a {@link Token} is only
+     * created if a lexical action needs it, the special tokens are skipped.
+     */
+    private void dumpGetNextToken(LinePrinter printer, LexerData data, Output output) {
+        if (output == Output.TOKEN) {
+            if (data.hasEof()) {
+                printer.println("    TokenLexicalActions(matchedToken);");
+            }
+            printer.println("    return matchedToken;");
+        } else if ((output == Output.KIND) && data.hasEof()) {
+            printer.println("    matchedToken = jjFillToken();");
+            printer.println("    TokenLexicalActions(matchedToken);");
+            printer.println("    return matchedToken.kind;");
+        } else if (output == Output.KIND) {
+            printer.println("    return jjmatchedKind;");
+        } else if (data.hasEof()) {
+            printer.println("    matchedToken = jjFillToken();");
+            if (data.hasSpecial()) {
+                printer.println("    matchedToken.specialToken = specialToken;");
+            }
             printer.println("    TokenLexicalActions(matchedToken);");
+            printer.println("    buffer.add(matchedToken, input_stream.getBeginOffset(), input_stream.getEndOffset());");
+            printer.println("    return matchedToken.kind;");
+        } else {
+            printer.println("    jjFillBuffer(buffer, " + (data.hasSpecial() ? "specialToken" : "null") + ");");
+            printer.println("    return jjmatchedKind;");
         }
-
-        printer.println("    return matchedToken;");
         printer.println("}");
 
         if (data.hasMoreActions() || data.hasSkipActions() || data.hasTokenActions()) {
@@ -298,14 +379,18 @@ class JavaLexerGenerator extends LexerGenerator {
                 printer.indent();
             }
 
-            printer.println("matchedToken = jjFillToken();");
+            if ((output == Output.BUFFER) && !data.hasTokenActions()) {
+                printer.println("jjFillBuffer(buffer, " + (data.hasSpecial() ? "specialToken" : "null") + ");");
+            } else if ((output != Output.KIND) || data.hasTokenActions()) {
+                printer.println("matchedToken = jjFillToken();");
 
-            if (data.hasSpecial()) {
-                printer.println("matchedToken.specialToken = specialToken;");
-            }
+                if (data.hasSpecial()) {
+                    printer.println("matchedToken.specialToken = specialToken;");
+                }
 
-            if (data.hasTokenActions()) {
-                printer.println("TokenLexicalActions(matchedToken);");
+                if (data.hasTokenActions()) {
+                    printer.println("TokenLexicalActions(matchedToken);");
+                }
             }
 
             if (data.maxLexStates() > 1) {
@@ -315,7 +400,16 @@ class JavaLexerGenerator extends LexerGenerator {
                 printer.outdent();
             }
 
-            printer.println("return matchedToken;");
+            if (output == Output.TOKEN) {
+                printer.println("return matchedToken;");
+            } else if (data.hasTokenActions()) {
+                if (output == Output.BUFFER) {
+                    printer.println("buffer.add(matchedToken, input_stream.getBeginOffset(), input_stream.getEndOffset());");
+                }
+                printer.println("return matchedToken.kind;");
+            } else {
+                printer.println("return jjmatchedKind;");
+            }
 
             if (data.hasSkip() || data.hasMore() || data.hasSpecial()) {
                 printer.outdent();
@@ -331,7 +425,7 @@ class JavaLexerGenerator extends LexerGenerator {
                     printer.println(" {");
                     printer.indent();
 
-                    if (data.hasSpecial()) {
+                    if (data.hasSpecial() && ((output != Output.KIND) || data.hasSkipActions())) {
                         printer.println("if ((jjtoSpecial[jjmatchedKind >> 6] & "
                                 + "(1L << (jjmatchedKind & 077))) != 0L) {");
                         printer.indent();
@@ -666,6 +760,13 @@ class JavaLexerGenerator extends LexerGenerator {
         printer.println("};");
     }
 
+    /**
+     * Returns <code>true</code> if the lexer gets the kinds of the tokens without creating them.
+     */
+    static boolean hasNextKind(Options options) {
+        return options.getRecognizer() || !options.getParallelUnits().isBlank() || options.getChunkedLexer();
+    }
+
     private static void dump_literal_images(LexerData data, LinePrinter printer) {
         if (data.getImageCount() <= 0) {
             return;
@@ -1494,6 +1595,12 @@ class JavaLexerGenerator extends LexerGenerator {
 
     @Override
     protected final void dumpMoveNfa(LinePrinter printer, NfaStateData data) {
+        int[] moveTable = this.moveTables.get(data.getStateIndex());
+        boolean dfa = (moveTable != null);
+        if (dfa) {
+            dumpMoveTable(printer, data, moveTable);
+        }
+
         printer.println();
         printer.println("private int jjMoveNfa" + data.getLexerStateSuffix()
                 + "(int startState, int curPos) {");
@@ -1521,12 +1628,20 @@ class JavaLexerGenerator extends LexerGenerator {
                     """);
         }
 
-        printer.println("int startsAt = 0;");
-        printer.println("jjnewStateCnt = " + data.generatedStates() + ";");
-        printer.println("int i = 1;");
-        printer.println("jjstateSet[0] = startState;");
+        String table = "jjdfaTable" + data.getLexerStateSuffix();
+        if (dfa) {
+            printer.println("int state = (startState < 0) ? -1 : " + table + "[" + table + "[4] + startState];");
+            if (data.isMixedState()) {
+                printer.println("int i;");
+            }
+        } else {
+            printer.println("int startsAt = 0;");
+            printer.println("jjnewStateCnt = " + data.generatedStates() + ";");
+            printer.println("int i = 1;");
+            printer.println("jjstateSet[0] = startState;");
+        }
 
-        if (data.global.options().getDebugTokenManager()) {
+        if (!dfa && data.global.options().getDebugTokenManager()) {
             printer.println("debugStream.println(\"   Starting NFA to match one of : \" + " + "jjKindsForStateVector(curLexState, jjstateSet, 0, 1));");
         }
 
@@ -1538,35 +1653,41 @@ class JavaLexerGenerator extends LexerGenerator {
                     + "at line \" + input_stream.getEndLine() + \" column \" + input_stream.getEndColumn());");
         }
 
-        printer.println("int kind = 0x" + Integer.toHexString(Integer.MAX_VALUE) + ";");
+        if (!dfa) {
+            printer.println("int kind = 0x" + Integer.toHexString(Integer.MAX_VALUE) + ";");
+        }
         printer.println("for (; ; ) {");
         printer.indent();
-        printer.println("if (++jjround == 0x" + Integer.toHexString(Integer.MAX_VALUE) + ")");
-        printer.println("    ReInitRounds();");
-        printer.println("if (curChar < 64) {");
+        if (dfa) {
+            printer.println("state = jjMoveDfa(" + table + ", state, curPos);");
+        } else {
+            printer.println("if (++jjround == 0x" + Integer.toHexString(Integer.MAX_VALUE) + ")");
+            printer.println("    ReInitRounds();");
+            printer.println("if (curChar < 64) {");
 
-        printer.indent();
-        DumpAsciiMoves(printer, data, 0);
-        printer.outdent();
+            printer.indent();
+            DumpAsciiMoves(printer, data, 0);
+            printer.outdent();
 
-        printer.println("} else if (curChar < 128) {");
+            printer.println("} else if (curChar < 128) {");
 
-        printer.indent();
-        DumpAsciiMoves(printer, data, 1);
-        printer.outdent();
+            printer.indent();
+            DumpAsciiMoves(printer, data, 1);
+            printer.outdent();
 
-        printer.println("} else {");
+            printer.println("} else {");
 
-        printer.indent();
-        DumpCharAndRangeMoves(printer, data);
-        printer.outdent();
+            printer.indent();
+            DumpCharAndRangeMoves(printer, data);
+            printer.outdent();
 
-        printer.println("}");
-        printer.println("if (kind != 0x" + Integer.toHexString(Integer.MAX_VALUE) + ") {");
-        printer.println("    jjmatchedKind = kind;");
-        printer.println("    jjmatchedPos = curPos;");
-        printer.println("    kind = 0x" + Integer.toHexString(Integer.MAX_VALUE) + ";");
-        printer.println("}");
+            printer.println("}");
+            printer.println("if (kind != 0x" + Integer.toHexString(Integer.MAX_VALUE) + ") {");
+            printer.println("    jjmatchedKind = kind;");
+            printer.println("    jjmatchedPos = curPos;");
+            printer.println("    kind = 0x" + Integer.toHexString(Integer.MAX_VALUE) + ";");
+            printer.println("}");
+        }
         printer.println("curPos++;");
 
         if (data.global.options().getDebugTokenManager()) {
@@ -1576,7 +1697,11 @@ class JavaLexerGenerator extends LexerGenerator {
                     + " a \" + tokenImage[jjmatchedKind] + \" token.\");");
         }
 
-        printer.println("if ((i = jjnewStateCnt) == (startsAt = " + data.generatedStates() + " - (jjnewStateCnt = startsAt)))");
+        if (dfa) {
+            printer.println("if (state < 0)");
+        } else {
+            printer.println("if ((i = jjnewStateCnt) == (startsAt = " + data.generatedStates() + " - (jjnewStateCnt = startsAt)))");
+        }
         printer.indent();
         if (data.isMixedState()) {
             printer.println("break;");
@@ -1585,7 +1710,7 @@ class JavaLexerGenerator extends LexerGenerator {
         }
         printer.outdent();
 
-        if (data.global.options().getDebugTokenManager()) {
+        if (!dfa && data.global.options().getDebugTokenManager()) {
             printer.println("debugStream.println(\"   Possible kinds of longer matches : \" + "
                     + "jjKindsForStateVector(curLexState, jjstateSet, startsAt, i));");
         }
@@ -1638,6 +1763,55 @@ class JavaLexerGenerator extends LexerGenerator {
         printer.println("}");
     }
 
+    /**
+     * Dumps the move table of the minimized DFA, each value is packed into two characters of a
+     * string literal and unpacked when the class is initialized. The lines of a literal are
+     * concatenated by the compiler, a literal is closed before its constant exceeds the limit of
+     * the class file.
+     */
+    private void dumpMoveTable(LinePrinter printer, NfaStateData data, int[] table) {
+        printer.println();
+        printer.print("private static final int[] jjdfaTable" + data.getLexerStateSuffix() + " = jjUnpack(");
+        printer.indent();
+        int size = 0;
+        for (int i = 0; i < table.length; i++) {
+            char high = (char) (table[i] >>> 16);
+            char low = (char) table[i];
+            int length = JavaLexerGenerator.toConstantLength(high) + JavaLexerGenerator.toConstantLength(low);
+            if ((i == 0) || ((size + length) > JavaLexerGenerator.MAX_CONSTANT_LENGTH)) {
+                printer.println(i == 0 ? "" : "\",");
+                printer.print("\"");
+                size = 0;
+            } else if ((i % 16) == 0) {
+                printer.println("\" +");
+                printer.print("\"");
+            }
+            printer.print(JavaLexerGenerator.toPackedChar(high));
+            printer.print(JavaLexerGenerator.toPackedChar(low));
+            size += length;
+        }
+        printer.println("\");");
+        printer.outdent();
+    }
+
+    /**
+     * Get the number of bytes of the character in a string constant of the class file, the
+     * characters are encoded in modified UTF-8.
+     */
+    private static int toConstantLength(char c) {
+        if ((c > 0) && (c < 0x80)) {
+            return 1;
+        }
+        return (c < 0x800) ? 2 : 3;
+    }
+
+    private static String toPackedChar(char c) {
+        if (c < 128) {
+            return String.format("\\%03o", (int) c);
+        }
+        return String.format("\\u%04x", (int) c);
+    }
+
     protected void getRegExp(LinePrinter printer, int i, List<RExpression> expressions, boolean isImage) {
         if (i == 0)
             printer.print("\"<EOF>\",");
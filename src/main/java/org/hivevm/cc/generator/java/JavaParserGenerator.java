@@ -6,9 +6,12 @@ package org.hivevm.cc.generator.java;
 import org.hivevm.cc.Encoding;
 import org.hivevm.cc.HiveCC;
 import org.hivevm.cc.Language;
+import org.hivevm.cc.generator.LookaheadDecision;
 import org.hivevm.cc.generator.ParserData;
 import org.hivevm.cc.generator.ParserGenerator;
+import org.hivevm.cc.model.BNFProduction;
 import org.hivevm.cc.model.Choice;
+import org.hivevm.cc.model.Action;
 import org.hivevm.cc.model.Expansion;
 import org.hivevm.cc.model.Lookahead;
 import org.hivevm.cc.model.NodeScope;
@@ -19,26 +22,145 @@ import org.hivevm.cc.model.RExpression;
 import org.hivevm.cc.model.Sequence;
 import org.hivevm.cc.model.ZeroOrMore;
 import org.hivevm.cc.model.ZeroOrOne;
+import org.hivevm.cc.parser.JavaCCErrors;
 import org.hivevm.cc.parser.Options;
 import org.hivevm.cc.parser.Token;
 import org.hivevm.source.Context;
 import org.hivevm.source.LinePrinter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 /**
  * Implements the {@link ParserGenerator} for the JAVA language.
  */
 class JavaParserGenerator extends ParserGenerator {
 
+    static final String JJ2_DECISION = "JJ2_DECISION";
+
+    private static final String JJ3_MEMO     = "JJ3_MEMO";
+    private static final String LAZY_ERRORS  = "LAZY_ERRORS";
+    private static final String RECOVERY     = "RECOVERY";
+    private static final String DEFERRED     = "DEFERRED";
+    private static final String PARALLEL     = "PARALLEL";
+
+    // An access to the lexical state of the lexer in an action of the parser.
+    private static final Pattern LEXICAL_STATE_SWITCH = Pattern.compile("\\b(SwitchTo|curLexState)\\b");
+
+    // The identifiers of the memoized lookahead routines.
+    private final Map<Expansion, Integer> memos = new HashMap<>();
+
+    // The names of the synchronization tokens of the productions that recover from errors.
+    private final Map<NormalProduction, List<String>> syncTokens = new HashMap<>();
+
+    // The opening and closing tokens of the deferred productions, in the order of their indices.
+    private final Map<NormalProduction, List<String>> deferred = new LinkedHashMap<>();
+
+    // The production of the units that are parsed in parallel, with the tokens that separate them.
+    private final Map<NormalProduction, List<String>> parallel = new LinkedHashMap<>();
+
+    // The production that parses each input of a batch.
+    private NormalProduction batch;
+
+    // The expected tokens are only recorded while a failed parse is replayed.
+    private boolean lazyErrors;
+
+    // The productions by the index that identifies them for the replay, and whether their
+    // action-free copies that replay a failed parse are generated.
+    private final List<NormalProduction> replays = new ArrayList<>();
+    private boolean replay;
+
+    // The lookahead routines report a finished scan through jj_la_done instead of throwing.
+    private boolean exceptionFree;
+
+    // The invocations, scan steps and depths of the jj2 routines are counted.
+    private boolean lookaheadStats;
+
     public JavaParserGenerator() {
         super(Language.JAVA);
     }
 
     @Override
-    protected final void generate(ParserData data, Context options) {
+    protected void generate(ParserData data, Context options) {
+        initMemos(data);
+        options.set(JavaParserGenerator.JJ3_MEMO, !this.memos.isEmpty());
+        options.set(JavaParserGenerator.JJ2_DECISION, data.hasDecisions());
+        initSyncTokens(data);
+        options.set(JavaParserGenerator.RECOVERY, !this.syncTokens.isEmpty());
+        initDeferred(data);
+        options.set(JavaParserGenerator.DEFERRED, !this.deferred.isEmpty());
+        List<NormalProduction> deferred = new ArrayList<>(this.deferred.keySet());
+        options.add("DEFERRED_PRODUCTIONS", deferred)
+                .set("DEFERRED_PRODUCTIONS_NAME", NormalProduction::getLhs)
+                .set("DEFERRED_PRODUCTIONS_INDEX", deferred::indexOf);
+        options.set("DEFERRED_QUOTES", this.deferred.values().stream()
+                .filter(t -> t.getFirst().equals(t.getLast())).map(List::getFirst).distinct()
+                .collect(Collectors.joining(", ")));
+        options.set("NEXT_KIND", JavaLexerGenerator.hasNextKind(data.options()));
+        initParallel(data);
+        options.set(JavaParserGenerator.PARALLEL, !this.parallel.isEmpty());
+        this.parallel.forEach((p, tokens) -> {
+            boolean node = (p.getReturnTypeToken() == null) || "void".equals(p.getReturnTypeToken().image);
+            options.set("PARALLEL_UNIT", p.getLhs());
+            options.set("PARALLEL_NODE", node);
+            options.set("PARALLEL_TYPE", node ? "Node" : JavaParserGenerator.boxedType(p.getReturnTypeToken().image));
+            options.add("PARALLEL_BOUNDARIES", tokens).set("PARALLEL_BOUNDARIES_NAME", t -> t);
+        });
+        initBatch(data);
+        if (this.batch != null) {
+            boolean value = (this.batch.getReturnTypeToken() != null) && !"void".equals(this.batch.getReturnTypeToken().image);
+            boolean node = !value && data.isGenerated() && (this.batch.getNodeScope() != null);
+            options.set("BATCH_PRODUCTION", this.batch.getLhs());
+            options.set("BATCH_VALUE", value);
+            options.set("BATCH_NODE", node);
+            options.set("BATCH_TYPE", value ? JavaParserGenerator.boxedType(this.batch.getReturnTypeToken().image)
+                    : node ? "Node" : "Void");
+        }
+
+        this.lazyErrors = data.getErrorReporting() && data.options().getLazyErrorReporting();
+        if (this.lazyErrors && !data.getTokenBuffer()) {
+            JavaCCErrors.warning("LAZY_ERROR_REPORTING requires the option TOKEN_BUFFER, expected tokens are recorded eagerly.");
+            this.lazyErrors = false;
+        }
+        if (this.lazyErrors && !this.syncTokens.isEmpty()) {
+            JavaCCErrors.warning("LAZY_ERROR_REPORTING can't replay a parse that recovers from errors, expected tokens are recorded eagerly.");
+            this.lazyErrors = false;
+        }
+        options.set(JavaParserGenerator.LAZY_ERRORS, this.lazyErrors);
+        this.exceptionFree = data.options().getExceptionFreeLookahead();
+        this.lookaheadStats = data.options().getLookaheadStats();
+        options.add("LOOKAHEAD_LOCATIONS", data.getLoakaheads())
+                .set("LOOKAHEAD_LOCATIONS_PRODUCTION", la -> Encoding.escapeUnicode(data.getProduction(la).getLhs(), Language.JAVA))
+                .set("LOOKAHEAD_LOCATIONS_LINE", Lookahead::getLine)
+                .set("LOOKAHEAD_LOCATIONS_COLUMN", Lookahead::getColumn);
+        this.replays.clear();
+        StreamSupport.stream(data.getProductions().spliterator(), false)
+                .filter(p -> p instanceof BNFProduction).forEach(this.replays::add);
+        options.add("TRY_PRODUCTIONS", this.replays.stream().filter(p -> p.getParameterListTokens().isEmpty()).toList())
+                .set("TRY_PRODUCTIONS_NAME", NormalProduction::getLhs);
+        options.add("REPLAY_PRODUCTIONS", this.replays)
+                .set("REPLAY_PRODUCTIONS_NAME", NormalProduction::getLhs)
+                .set("REPLAY_PRODUCTIONS_INDEX", this.replays::indexOf);
+        options.set("DUMP_REPLAY_PRODUCTIONS", w -> {
+            this.replay = true;
+            try {
+                this.replays.forEach(p -> generatePhase1(p, w, data));
+            } finally {
+                this.replay = false;
+            }
+        });
+
         options.add(HiveCC.JJPARSER_JAVA_IMPORTS, data.options().get(HiveCC.JJPARSER_JAVA_IMPORTS))
                 .set(HiveCC.JJPARSER_JAVA_IMPORTS + "_VALUE", i -> i);
 
@@ -47,10 +169,206 @@ class JavaParserGenerator extends ParserGenerator {
                 .set("TOKEN_MASKS_LA1_VALUE", i -> (i == 0) ? "" : (32 * i) + " + ");
 
         JavaTemplate.PARSER.render(options);
+        if (!this.parallel.isEmpty()) {
+            JavaTemplate.PARALLEL_PARSER.render(options);
+        }
+        if (this.batch != null) {
+            JavaTemplate.PARSER_BATCH.render(options);
+        }
+    }
+
+    /**
+     * Selects the lookahead routines of the productions that are memoized. The results are stored
+     * by the index of the token in the buffer, so memoization requires the TOKEN_BUFFER option.
+     */
+    private void initMemos(ParserData data) {
+        this.memos.clear();
+        boolean all = data.options().getMemoize();
+        String productions = data.options().getMemoizeProductions();
+        if (!all && productions.isBlank()) {
+            return;
+        }
+        if (!data.getTokenBuffer()) {
+            JavaCCErrors.warning("MEMOIZE requires the option TOKEN_BUFFER, lookahead routines are not memoized.");
+            return;
+        }
+        Set<String> names = Arrays.stream(productions.split(",")).map(String::trim).collect(Collectors.toSet());
+        for (Expansion e : data.getExpansions()) {
+            if (!e.internalName().startsWith("jj_scan_token") && (e.parent() instanceof NormalProduction np)
+                    && (all || names.contains(np.getLhs()))) {
+                this.memos.put(e, this.memos.size());
+            }
+        }
+    }
+
+    /**
+     * Selects the synchronization tokens of the productions that recover from errors.
+     */
+    private void initSyncTokens(ParserData data) {
+        this.syncTokens.clear();
+        this.syncTokens.putAll(JavaParserGenerator.parseTokens(data, HiveCC.JJPARSER_SYNC_TOKENS,
+                data.options().getSyncTokens()));
+    }
+
+    /**
+     * Selects the productions that are deferred. A production must have a node, no parameters and
+     * no return value, it must start with its opening token and end with the balanced closing
+     * token. The tokens of a deferred production are lexed before it is parsed, so neither its
+     * actions nor the actions of the productions it calls may switch the lexical state.
+     */
+    private void initDeferred(ParserData data) {
+        this.deferred.clear();
+        String value = data.options().getDeferProductions();
+        if (value.isBlank()) {
+            return;
+        }
+        if (data.getTokenBuffer() || data.options().getLazyImages() || data.options().getLazyPositions()) {
+            JavaCCErrors.warning("DEFER_PRODUCTIONS requires the options TOKEN_BUFFER, LAZY_IMAGES and "
+                    + "LAZY_POSITIONS to be off, the productions are parsed eagerly.");
+            return;
+        }
+        JavaParserGenerator.parseTokens(data, HiveCC.JJPARSER_DEFER_PRODUCTIONS, value).forEach((p, tokens) -> {
+            if (tokens.size() != 2) {
+                JavaCCErrors.warning("DEFER_PRODUCTIONS: \"" + p.getLhs()
+                        + "\" requires an opening and a closing token, it is parsed eagerly.");
+            } else if ((p.getNodeScope() == null) || !p.getParameterListTokens().isEmpty()
+                    || ((p.getReturnTypeToken() != null) && !"void".equals(p.getReturnTypeToken().image))) {
+                JavaCCErrors.warning("DEFER_PRODUCTIONS: \"" + p.getLhs()
+                        + "\" requires a node, no parameters and no return value, it is parsed eagerly.");
+            } else if (JavaParserGenerator.switchesLexicalState(p.getExpansion(), new HashSet<>(Set.of(p)))) {
+                JavaCCErrors.warning("DEFER_PRODUCTIONS: \"" + p.getLhs()
+                        + "\" switches the lexical state in an action, but its tokens are lexed before it is parsed. "
+                        + "It is parsed eagerly.");
+            } else {
+                this.deferred.put(p, tokens);
+            }
+        });
+    }
+
+    /**
+     * Returns <code>true</code> if an action of the expansion, or of a production it calls,
+     * accesses the lexical state of the lexer.
+     */
+    private static boolean switchesLexicalState(Expansion e, Set<NormalProduction> visited) {
+        return switch (e) {
+            case Action action -> JavaParserGenerator.switchesLexicalState(action.getActionTokens());
+            case Lookahead la -> JavaParserGenerator.switchesLexicalState(la.getActionTokens());
+            case NonTerminal nt -> (nt.getProd() != null) && visited.add(nt.getProd())
+                    && JavaParserGenerator.switchesLexicalState(nt.getProd().getExpansion(), visited);
+            case Sequence seq -> seq.getUnits().stream().anyMatch(u -> JavaParserGenerator.switchesLexicalState(u, visited));
+            case Choice choice -> choice.getChoices().stream()
+                    .anyMatch(c -> JavaParserGenerator.switchesLexicalState(c, visited));
+            case ZeroOrOne opt -> JavaParserGenerator.switchesLexicalState(opt.getExpansion(), visited);
+            case ZeroOrMore more -> JavaParserGenerator.switchesLexicalState(more.getExpansion(), visited);
+            case OneOrMore more -> JavaParserGenerator.switchesLexicalState(more.getExpansion(), visited);
+            default -> false;
+        };
+    }
+
+    private static boolean switchesLexicalState(List<Token> tokens) {
+        return tokens.stream().anyMatch(t -> JavaParserGenerator.LEXICAL_STATE_SWITCH.matcher(t.image).find());
+    }
+
+    /**
+     * Selects the production of the units that are parsed in parallel. The production must have no
+     * parameters and must return a value or build a node, the units are collected in order.
+     */
+    private void initParallel(ParserData data) {
+        this.parallel.clear();
+        var units = JavaParserGenerator.parseTokens(data, HiveCC.JJPARSER_PARALLEL_UNITS,
+                data.options().getParallelUnits());
+        if (units.size() > 1) {
+            JavaCCErrors.warning("PARALLEL_UNITS requires a single production, the ParallelParser is not generated.");
+            return;
+        }
+        units.forEach((p, tokens) -> {
+            boolean value = (p.getReturnTypeToken() != null) && !"void".equals(p.getReturnTypeToken().image);
+            if (!p.getParameterListTokens().isEmpty() || (!value && (!data.isGenerated() || (p.getNodeScope() == null)))) {
+                JavaCCErrors.warning("PARALLEL_UNITS: \"" + p.getLhs()
+                        + "\" requires no parameters and a return value or a node, the ParallelParser is not generated.");
+            } else {
+                this.parallel.put(p, tokens);
+            }
+        });
+    }
+
+    /**
+     * Selects the production that parses each input of a batch. The production must have no
+     * parameters, the batch reuses the parsers of a {@link JavaTemplate#PARSER_POOL}.
+     */
+    private void initBatch(ParserData data) {
+        this.batch = null;
+        String name = data.options().getParserBatch().trim();
+        if (name.isEmpty()) {
+            return;
+        }
+        if (!data.options().getParserPool()) {
+            JavaCCErrors.warning("PARSER_BATCH requires the option PARSER_POOL, the ParserBatch is not generated.");
+            return;
+        }
+        NormalProduction p = data.getProduction(name);
+        if (!(p instanceof BNFProduction) || !p.getParameterListTokens().isEmpty()) {
+            JavaCCErrors.warning("PARSER_BATCH: \"" + name
+                    + "\" doesn't name a production without parameters, the ParserBatch is not generated.");
+            return;
+        }
+        this.batch = p;
+    }
+
+    /**
+     * Parses the names of the productions and their tokens. A production is followed by a colon and
+     * the names of its tokens, the productions are separated by commas.
+     */
+    private static Map<NormalProduction, List<String>> parseTokens(ParserData data, String option, String value) {
+        Map<NormalProduction, List<String>> productions = new LinkedHashMap<>();
+        if (value.isBlank()) {
+            return productions;
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < data.getTokenCount(); i++) {
+            String name = data.getNameOfToken(i);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        for (String entry : value.split(",")) {
+            int index = entry.indexOf(':');
+            NormalProduction p = (index < 0) ? null : data.getProduction(entry.substring(0, index).trim());
+            if (!(p instanceof BNFProduction)) {
+                JavaCCErrors.warning(option + ": \"" + entry.trim() + "\" doesn't name a production, it is ignored.");
+                continue;
+            }
+            List<String> tokens = new ArrayList<>();
+            for (String token : entry.substring(index + 1).trim().split("\\s+")) {
+                if (names.contains(token)) {
+                    tokens.add(token);
+                } else if (!token.isEmpty()) {
+                    JavaCCErrors.warning(option + ": \"" + token + "\" doesn't name a token, it is ignored.");
+                }
+            }
+            if (!tokens.isEmpty()) {
+                productions.put(p, tokens);
+            }
+        }
+        return productions;
+    }
+
+    /**
+     * The copies of the productions that replay a failed parse are generated without actions,
+     * nodes and assignments.
+     */
+    @Override
+    protected boolean withActions() {
+        return !this.replay;
     }
 
     @Override
     protected String generate_phase1_head(NormalProduction p, LinePrinter printer, ParserData data) {
+        if (this.replay) {
+            printer.print("private void jj_replay_" + p.getLhs() + "() throws ParseException {");
+            return null;
+        }
+
         Token t = p.getFirstToken();
         setup_token(t);
         printLeadingComments(printer, t);
@@ -91,6 +409,22 @@ class JavaParserGenerator extends ParserGenerator {
      */
     @Override
     protected void generate_phase1_body(NormalProduction p, LinePrinter printer, ParserData data, String returnType, Consumer<LinePrinter> consumer) {
+        if (this.replay) {
+            consumer.accept(printer);
+            return;
+        }
+
+        // The outermost production records where a failed parse is replayed from
+        if (this.lazyErrors) {
+            printer.println();
+            printer.println("if (jj_replay_depth++ == 0)");
+            printer.indent();
+            printer.println("jj_replay_enter(" + this.replays.indexOf(p) + ");");
+            printer.outdent();
+            printer.println("try {");
+            printer.indent();
+        }
+
         if (data.getDepthLimit() > 0) {
             printer.println("if(++jj_depth > " + data.getDepthLimit() + ") {");
             printer.indent();
@@ -109,8 +443,43 @@ class JavaParserGenerator extends ParserGenerator {
             printer.indent();
         }
 
+        List<String> tokens = this.syncTokens.get(p);
+        if (tokens != null) {
+            printer.println("try {");
+            printer.indent();
+        }
+
+        List<String> brackets = this.deferred.get(p);
+        if (brackets != null) {
+            printer.println("if (jj_parse_deferred()) {");
+            printer.indent();
+        }
+
         consumer.accept(printer);
 
+        if (brackets != null) {
+            printer.outdent();
+            printer.println("} else {");
+            printer.indent();
+            int index = List.copyOf(this.deferred.keySet()).indexOf(p);
+            printer.println("jj_skip(" + p.getNodeScope().getNodeVariable() + ", " + index + ", " + brackets.getFirst()
+                    + ", " + brackets.getLast() + ");");
+            printer.outdent();
+            printer.println("}");
+        }
+
+        if (tokens != null) {
+            printer.outdent();
+            printer.println("} catch (ParseException jj_pe) {");
+            printer.indent();
+            printer.println("jj_recover(jj_pe, " + String.join(", ", tokens) + ");");
+            if ((p.getReturnTypeToken() != null) && !"void".equals(p.getReturnTypeToken().image)) {
+                printer.println("return " + JavaParserGenerator.defaultValue(p.getReturnTypeToken().image) + ";");
+            }
+            printer.outdent();
+            printer.println("}");
+        }
+
         if (data.getDebugParser()) {
             printer.outdent();
             printer.println("} finally {");
@@ -127,20 +496,60 @@ class JavaParserGenerator extends ParserGenerator {
             printer.outdent();
             printer.println("}");
         }
+        if (this.lazyErrors) {
+            printer.println();
+            printer.outdent();
+            printer.println("} finally {");
+            printer.indent();
+            printer.println("jj_replay_depth--;");
+            printer.outdent();
+            printer.println("}");
+        }
+    }
+
+    /**
+     * Get the class of the type, that the values of the units are collected in.
+     */
+    private static String boxedType(String type) {
+        return switch (type) {
+            case "boolean" -> "Boolean";
+            case "char" -> "Character";
+            case "byte" -> "Byte";
+            case "short" -> "Short";
+            case "int" -> "Integer";
+            case "long" -> "Long";
+            case "float" -> "Float";
+            case "double" -> "Double";
+            default -> type;
+        };
+    }
+
+    /**
+     * Get the default value of the type, that is returned by a production after it has recovered.
+     */
+    private static String defaultValue(String type) {
+        return switch (type) {
+            case "boolean" -> "false";
+            case "char" -> "'\\0'";
+            case "byte", "short", "int", "long", "float", "double" -> "(" + type + ") 0";
+            default -> "null";
+        };
     }
 
     @Override
-    protected void generate_phase1_regexp(LinePrinter printer) {
-        printer.print("jj_consume_token(");
+    protected void generate_phase1_regexp(RExpression re, LinePrinter printer, ParserData data) {
+        // With a token buffer the Token is only created if the action uses it
+        boolean used = withActions() && (!re.getLhsTokens().isEmpty() || (re.getRhsToken() != null));
+        printer.print((data.getTokenBuffer() && !used) ? "jj_consume(" : "jj_consume_token(");
     }
 
     @Override
     protected void generate_phase1_regexp_end(RExpression re, LinePrinter printer) {
-        printer.print(re.getRhsToken() == null ? ");" : ")." + re.getRhsToken().image + ";");
+        printer.print(!withActions() || (re.getRhsToken() == null) ? ");" : ")." + re.getRhsToken().image + ";");
     }
 
     @Override
-    protected final void generate_phase1_choice(LinePrinter printer) {
+    protected void generate_phase1_choice(LinePrinter printer) {
         printer.println();
         printer.println("jj_consume_token(-1);");
         printer.print("throw new ParseException();");
@@ -149,7 +558,7 @@ class JavaParserGenerator extends ParserGenerator {
 
     @Override
     protected final void generate_phase1_nonterminal(NonTerminal non, LinePrinter printer) {
-        printer.print(non.getName());
+        printer.print(this.replay ? "jj_replay_" + non.getName() : non.getName());
         printer.print("(");
     }
 
@@ -188,14 +597,18 @@ class JavaParserGenerator extends ParserGenerator {
             case OPENSWITCH:
                 printer.println("default: {");
                 printer.indent();
-                if (index >= 0) {
-                    printer.println("jj_la1[" + index + "] = jj_gen;");
+                if ((index >= 0) && recordsExpected()) {
+                    printer.println(genLa1(index));
                 }
                 printer.print("if (");
         }
-        setup_token(la.getActionTokens().getFirst());
-        la.getActionTokens().forEach(t -> printToken(t, scope, printer));
-        printTrailingComments(printer, la.getActionTokens().getLast());
+        if (withActions()) {
+            setup_token(la.getActionTokens().getFirst());
+            la.getActionTokens().forEach(t -> printToken(t, scope, printer));
+            printTrailingComments(printer, la.getActionTokens().getLast());
+        } else {
+            printer.print("true");
+        }
         printer.print(") {");
         printer.indent();
         action.accept(printer);
@@ -257,15 +670,15 @@ class JavaParserGenerator extends ParserGenerator {
             case OPENSWITCH:
                 printer.println("default: {");
                 printer.indent();
-                if (index >= 0) {
-                    printer.println("jj_la1[" + index + "] = jj_gen;");
+                if ((index >= 0) && recordsExpected()) {
+                    printer.println(genLa1(index));
                 }
                 printer.print("if (");
         }
 
         String amount = Integer.toString(la.getAmount());
         printer.print("jj_2" + la.getLaExpansion().internalName() + "(" + amount + ")");
-        if (!la.getActionTokens().isEmpty()) {
+        if (withActions() && !la.getActionTokens().isEmpty()) {
             // In addition, there is also a semantic lookahead. So concatenate
             // the semantic check with the syntactic one.
             printer.print(" && (");
@@ -298,8 +711,8 @@ class JavaParserGenerator extends ParserGenerator {
             case OPENSWITCH:
                 printer.println("default: {");
                 printer.indent();
-                if (index >= 0) {
-                    printer.print("jj_la1[" + index + "] = jj_gen;");
+                if ((index >= 0) && recordsExpected()) {
+                    printer.print(genLa1(index));
                 }
                 action.accept(printer);
         }
@@ -314,22 +727,57 @@ class JavaParserGenerator extends ParserGenerator {
     protected void generate_phase2(Expansion e, LinePrinter printer, ParserData data) {
         printer.println("private boolean jj_2" + e.internalName() + "(int xla) {");
         printer.indent();
+
+        int index = Integer.parseInt(e.internalName().substring(1)) - 1;
+        LookaheadDecision decision = data.getDecision(e);
+        if (decision != null) {
+            generate_phase2_decision(decision, index, printer, data);
+            printer.outdent();
+            printer.println("}");
+            printer.println();
+            return;
+        }
+
         printer.println("jj_la = xla;");
-        printer.println("jj_lastpos = jj_scanpos = token;");
+        printer.println("jj_lastpos = jj_scanpos = " + (data.getTokenBuffer() ? "jj_pos;" : "token;"));
+        if (this.lookaheadStats) {
+            printer.println("long steps = jj_la_steps;");
+        }
 
         String ret_suffix = (data.getDepthLimit() > 0) ? " && !jj_depth_error" : "";
-        printer.println("try {");
-        printer.indent();
-        printer.println("return (!jj_3" + e.internalName() + "()" + ret_suffix + ");");
-        printer.outdent();
-        printer.println("} catch (LookaheadSuccess ls) {");
-        printer.indent();
-        printer.println("return true;");
-        printer.outdent();
-        if (data.getErrorReporting()) {
+        boolean finally_needed = data.getErrorReporting() || this.lookaheadStats;
+        if (this.exceptionFree) {
+            printer.println("jj_la_done = false;");
+            if (!finally_needed) {
+                printer.println("return (!jj_3" + e.internalName() + "()" + ret_suffix + ") || jj_la_done;");
+                printer.outdent();
+                printer.println("}");
+                printer.println();
+                return;
+            }
+            printer.println("try {");
+            printer.indent();
+            printer.println("return (!jj_3" + e.internalName() + "()" + ret_suffix + ") || jj_la_done;");
+            printer.outdent();
+        } else {
+            printer.println("try {");
+            printer.indent();
+            printer.println("return (!jj_3" + e.internalName() + "()" + ret_suffix + ");");
+            printer.outdent();
+            printer.println("} catch (LookaheadSuccess ls) {");
+            printer.indent();
+            printer.println("return true;");
+            printer.outdent();
+        }
+        if (finally_needed) {
             printer.println("} finally {");
             printer.indent();
-            printer.println("jj_save(" + (Integer.parseInt(e.internalName().substring(1)) - 1) + ", xla);");
+            if (data.getErrorReporting()) {
+                printer.println((this.lazyErrors ? "if (jj_replay) " : "") + "jj_save(" + index + ", xla);");
+            }
+            if (this.lookaheadStats) {
+                printer.println("jj_la_count(" + index + ", xla - jj_la, jj_la_steps - steps);");
+            }
             printer.outdent();
         }
         printer.println("}");
@@ -338,11 +786,76 @@ class JavaParserGenerator extends ParserGenerator {
         printer.println();
     }
 
+    /**
+     * Generates the decision of a lookahead as nested switches on the kinds of the next tokens.
+     */
+    private void generate_phase2_decision(LookaheadDecision decision, int index, LinePrinter printer,
+                                          ParserData data) {
+        switch (decision) {
+            case LookaheadDecision.Leaf leaf -> {
+                if (this.lookaheadStats) {
+                    printer.println("jj_la_count(" + index + ", " + leaf.scanned() + ", " + leaf.scanned() + ");");
+                }
+                if (data.getErrorReporting()) {
+                    printer.println("return jj_2_decided(" + index + ", xla, " + leaf.scanned() + ", "
+                            + leaf.result() + ");");
+                } else {
+                    printer.println("return " + leaf.result() + ";");
+                }
+            }
+            case LookaheadDecision.Test test -> {
+                // The tests of the same token are merged into the cases of a switch, the cases that
+                // lead to the same decision share their code.
+                Map<LookaheadDecision, List<Integer>> cases = new LinkedHashMap<>();
+                LookaheadDecision otherwise = test;
+                while ((otherwise instanceof LookaheadDecision.Test t) && (t.position() == test.position())) {
+                    cases.computeIfAbsent(t.match(), d -> new ArrayList<>()).add(t.kind());
+                    otherwise = t.otherwise();
+                }
+
+                printer.println("switch (jj_la_kind(" + test.position() + ")) {");
+                printer.indent();
+                for (var entry : cases.entrySet()) {
+                    for (int kind : entry.getValue()) {
+                        String label = data.getNameOfToken(kind);
+                        printer.println("case " + ((label == null) ? "" + kind : label) + ":");
+                    }
+                    printer.indent();
+                    generate_phase2_decision(entry.getKey(), index, printer, data);
+                    printer.outdent();
+                }
+                printer.println("default:");
+                printer.indent();
+                generate_phase2_decision(otherwise, index, printer, data);
+                printer.outdent();
+                printer.outdent();
+                printer.println("}");
+            }
+        }
+    }
+
     protected void generate_phase3_routine(ParserData data, Expansion e, int count, LinePrinter printer) {
         if (e.internalName().startsWith("jj_scan_token"))
             return;
 
-        printer.println("private boolean jj_3" + e.internalName() + "() {");
+        Integer memo = this.memos.get(e);
+        if (memo != null) {
+            printer.println("private boolean jj_3" + e.internalName() + "() {");
+            printer.indent();
+            printer.println("int memo = jj_memo_get(" + memo + ");");
+            printer.println("if (memo != JJ_MEMO_MISS)");
+            printer.indent();
+            printer.println("return memo < 0;");
+            printer.outdent();
+            printer.println("int start = jj_scanpos, max = jj_scanmax;");
+            printer.println("jj_scanmax = start;");
+            printer.println("return jj_memo_put(" + memo + ", start, max, jj_3" + e.internalName() + "_scan());");
+            printer.outdent();
+            printer.println("}");
+            printer.println();
+        }
+
+        printer.println("private boolean jj_3" + e.internalName() + (memo == null ? "" : "_scan") + "() {");
         printer.indent();
 
         if (data.getDepthLimit() > 0) {
@@ -421,7 +934,7 @@ class JavaParserGenerator extends ParserGenerator {
                 if (e_nrw.getChoices().size() != 1) {
                     if (!xsp_declared) {
                         xsp_declared = true;
-                        printer.println("Token xsp;");
+                        printer.println(data.getTokenBuffer() ? "int xsp;" : "Token xsp;");
                     }
                     printer.println("xsp = jj_scanpos;");
                 }
@@ -429,7 +942,8 @@ class JavaParserGenerator extends ParserGenerator {
                 for (int i = 0; i < e_nrw.getChoices().size(); i++) {
                     nested_seq = (Sequence) e_nrw.getChoices().get(i);
                     Lookahead la = (Lookahead) nested_seq.getUnits().getFirst();
-                    if (!la.getActionTokens().isEmpty()) {
+                    boolean semantic = withActions() && !la.getActionTokens().isEmpty();
+                    if (semantic) {
                         printer.println("jj_lookingAhead = true;");
                         printer.print("jj_semLA = ");
                         setup_token((la.getActionTokens().getFirst()));
@@ -441,12 +955,13 @@ class JavaParserGenerator extends ParserGenerator {
                         printer.println("jj_lookingAhead = false;");
                     }
                     printer.print("if (");
-                    if (!la.getActionTokens().isEmpty()) {
+                    if (semantic) {
                         printer.print("!jj_semLA || ");
                     }
                     if (i != (e_nrw.getChoices().size() - 1)) {
                         printer.println(genjj_3Call(nested_seq) + ") {");
                         printer.indent();
+                        genLookaheadDone(printer);
                         printer.println("jj_scanpos = xsp;");
                     } else {
                         printer.println(genjj_3Call(nested_seq) + ")");
@@ -476,7 +991,7 @@ class JavaParserGenerator extends ParserGenerator {
             case OneOrMore e_nrw -> {
                 if (!xsp_declared) {
                     xsp_declared = true;
-                    printer.println("Token xsp;");
+                    printer.println(data.getTokenBuffer() ? "int xsp;" : "Token xsp;");
                 }
                 Expansion nested_e = e_nrw.getExpansion();
                 printer.println("if (" + genjj_3Call(nested_e) + ")");
@@ -488,6 +1003,7 @@ class JavaParserGenerator extends ParserGenerator {
                 printer.println("xsp = jj_scanpos;");
                 printer.println("if (" + genjj_3Call(nested_e) + ") {");
                 printer.indent();
+                genLookaheadDone(printer);
                 printer.println("jj_scanpos = xsp;");
                 printer.println("break;");
                 printer.outdent();
@@ -498,7 +1014,7 @@ class JavaParserGenerator extends ParserGenerator {
             case ZeroOrMore e_nrw -> {
                 if (!xsp_declared) {
                     xsp_declared = true;
-                    printer.println("Token xsp;");
+                    printer.println(data.getTokenBuffer() ? "int xsp;" : "Token xsp;");
                 }
                 Expansion nested_e = e_nrw.getExpansion();
                 printer.println("while (true) {");
@@ -506,6 +1022,7 @@ class JavaParserGenerator extends ParserGenerator {
                 printer.println("xsp = jj_scanpos;");
                 printer.println("if (" + genjj_3Call(nested_e) + ") {");
                 printer.indent();
+                genLookaheadDone(printer);
                 printer.println("jj_scanpos = xsp;");
                 printer.println("break;");
                 printer.outdent();
@@ -516,14 +1033,23 @@ class JavaParserGenerator extends ParserGenerator {
             case ZeroOrOne e_nrw -> {
                 if (!xsp_declared) {
                     xsp_declared = true;
-                    printer.println("Token xsp;");
+                    printer.println(data.getTokenBuffer() ? "int xsp;" : "Token xsp;");
                 }
                 Expansion nested_e = e_nrw.getExpansion();
                 printer.println("xsp = jj_scanpos;");
-                printer.println("if (" + genjj_3Call(nested_e) + ")");
-                printer.indent();
-                printer.println("jj_scanpos = xsp;");
-                printer.outdent();
+                if (this.exceptionFree) {
+                    printer.println("if (" + genjj_3Call(nested_e) + ") {");
+                    printer.indent();
+                    genLookaheadDone(printer);
+                    printer.println("jj_scanpos = xsp;");
+                    printer.outdent();
+                    printer.println("}");
+                } else {
+                    printer.println("if (" + genjj_3Call(nested_e) + ")");
+                    printer.indent();
+                    printer.println("jj_scanpos = xsp;");
+                    printer.outdent();
+                }
             }
             default -> {
             }
@@ -531,6 +1057,18 @@ class JavaParserGenerator extends ParserGenerator {
         return xsp_declared;
     }
 
+    /**
+     * Generates the check for a finished scan, where a failed alternative would otherwise be
+     * backtracked. The scan unwinds by returning <code>true</code> up to the jj2 routine.
+     */
+    private void genLookaheadDone(LinePrinter printer) {
+        if (this.exceptionFree) {
+            printer.println("if (jj_la_done)");
+            printer.indent();
+            printer.println("return true;");
+            printer.outdent();
+        }
+    }
 
     private String genReturn(Expansion expansion, boolean value, ParserData data) {
         String retval = Boolean.toString(value);
@@ -548,6 +1086,18 @@ class JavaParserGenerator extends ParserGenerator {
         }
     }
 
+    /**
+     * Whether the productions record the expected tokens, the lazy error reporting records them
+     * only in the copies that replay a failed parse.
+     */
+    private boolean recordsExpected() {
+        return !this.lazyErrors || this.replay;
+    }
+
+    private String genLa1(int index) {
+        return "jj_la1[" + index + "] = jj_gen;";
+    }
+
     private String genjj_3Call(Expansion e) {
         var name = e.internalName();
         return name.startsWith("jj_scan_token") ? name : "jj_3" + name + "()";
@@ -0,0 +1,94 @@
+// Copyright 2024 HiveVM.ORG. All rights reserved.
+// SPDX-License-Identifier: BSD-3-Clause
+
+package org.hivevm.cc.generator.java;
+
+import org.hivevm.cc.generator.ParserData;
+import org.hivevm.cc.model.BNFProduction;
+import org.hivevm.cc.model.Choice;
+import org.hivevm.cc.model.Expansion;
+import org.hivevm.cc.model.Lookahead;
+import org.hivevm.cc.model.NormalProduction;
+import org.hivevm.cc.model.OneOrMore;
+import org.hivevm.cc.model.RExpression;
+import org.hivevm.cc.model.Sequence;
+import org.hivevm.cc.model.ZeroOrMore;
+import org.hivevm.cc.model.ZeroOrOne;
+import org.hivevm.cc.parser.JavaCCErrors;
+import org.hivevm.source.Context;
+import org.hivevm.source.LinePrinter;
+
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates the Recognizer of a grammar: the productions are generated without their actions,
+ * nodes and assignments, and consume the kinds of the tokens that the lexer provides.
+ */
+class JavaRecognizerGenerator extends JavaParserGenerator {
+
+    @Override
+    protected final boolean withActions() {
+        return false;
+    }
+
+    @Override
+    protected final void generate(ParserData data, Context options) {
+        options.set(JavaParserGenerator.JJ2_DECISION, data.hasDecisions());
+        options.add("RECOGNIZER_PRODUCTIONS", StreamSupport.stream(data.getProductions().spliterator(), false)
+                        .filter(p -> p instanceof BNFProduction).toList())
+                .set("RECOGNIZER_PRODUCTIONS_NAME", NormalProduction::getLhs);
+
+        for (NormalProduction p : data.getProductions()) {
+            if (JavaRecognizerGenerator.hasSemanticLookahead(p.getExpansion())) {
+                JavaCCErrors.warning("RECOGNIZER: the semantic lookaheads are not evaluated, they are assumed to hold.");
+                break;
+            }
+        }
+
+        JavaTemplate.RECOGNIZER.render(options);
+    }
+
+    /**
+     * Returns <code>true</code> if the expansion has a semantic lookahead.
+     */
+    private static boolean hasSemanticLookahead(Expansion e) {
+        return switch (e) {
+            case Lookahead la -> !la.getActionTokens().isEmpty();
+            case Sequence seq -> seq.getUnits().stream().anyMatch(JavaRecognizerGenerator::hasSemanticLookahead);
+            case Choice choice -> choice.getChoices().stream().anyMatch(JavaRecognizerGenerator::hasSemanticLookahead);
+            case ZeroOrOne opt -> JavaRecognizerGenerator.hasSemanticLookahead(opt.getExpansion());
+            case ZeroOrMore more -> JavaRecognizerGenerator.hasSemanticLookahead(more.getExpansion());
+            case OneOrMore more -> JavaRecognizerGenerator.hasSemanticLookahead(more.getExpansion());
+            default -> false;
+        };
+    }
+
+    @Override
+    protected final String generate_phase1_head(NormalProduction p, LinePrinter printer, ParserData data) {
+        printer.print("private void " + p.getLhs() + "() {");
+        return null;
+    }
+
+    @Override
+    protected final void generate_phase1_body(NormalProduction p, LinePrinter printer, ParserData data,
+                                              String returnType, Consumer<LinePrinter> consumer) {
+        consumer.accept(printer);
+    }
+
+    @Override
+    protected final void generate_phase1_regexp(RExpression re, LinePrinter printer, ParserData data) {
+        printer.print("jj_consume(");
+    }
+
+    @Override
+    protected final void generate_phase1_regexp_end(RExpression re, LinePrinter printer) {
+        printer.print(");");
+    }
+
+    @Override
+    protected final void generate_phase1_choice(LinePrinter printer) {
+        printer.println();
+        printer.print("throw Recognizer.jj_mismatch;");
+    }
+}
@@ -22,11 +22,24 @@ enum JavaTemplate implements SourceProvider {
     LEXER("Lexer"),
     PARSER("Parser"),
     PARSER_CONSTANTS("ParserConstants"),
+    PARSER_POOL("ParserPool"),
+    PARSE_BUDGET("ParseBudget"),
+    LOOKAHEAD_STATS("LookaheadStats"),
+    PARSE_RESULT("ParseResult"),
+    RECOGNIZER("Recognizer"),
+    PARALLEL_PARSER("ParallelParser"),
+    PARSER_BATCH("ParserBatch"),
 
     PROVIDER("Provider"),
     STREAM_PROVIDER("StreamProvider"),
     STRING_PROVIDER("StringProvider"),
-    CHAR_STREAM("JavaCharStream"),
+    CHAR_STREAM("CharStream"),
+    JAVA_CHAR_STREAM("JavaCharStream"),
+    ARRAY_CHAR_STREAM("ArrayCharStream"),
+    UTF8_CHAR_STREAM("Utf8CharStream"),
+    INCREMENTAL_LEXER("IncrementalLexer"),
+    LEXER_PIPELINE("LexerPipeline"),
+    CHUNKED_LEXER("ChunkedLexer"),
 
     NODE("Node"),
     NODESTATE("NodeState"),
@@ -37,7 +50,10 @@ enum JavaTemplate implements SourceProvider {
     MULTI_NODE_DEFAULT_VISITOR("NodeDefaultVisitor"),
 
     PARSER_EXCEPTION("ParseException"),
+    PARSE_BUDGET_EXCEPTION("ParseBudgetException"),
     TOKEN("Token"),
+    TOKEN_BUFFER("TokenBuffer"),
+    TOKEN_IMAGE("TokenImage"),
     TOKEN_EXCEPTION("TokenException");
 
     private final String name;
@@ -124,7 +124,7 @@ class RustParserGenerator extends ParserGenerator {
     }
 
     @Override
-    protected void generate_phase1_regexp(LinePrinter printer) {
+    protected void generate_phase1_regexp(RExpression re, LinePrinter printer, ParserData data) {
         printer.print("try_catch = self.jj_consume_token(");
     }
 
@@ -117,7 +117,9 @@ public class LexerData {
         this.hasSkip = false;
         this.hasSkipActions = false;
         this.hasSpecial = false;
-        this.keepLineCol = request.options().getKeepLineColumn();
+        // Lazy positions are resolved from the token offsets, they aren't copied into the tokens
+        this.keepLineCol =
+                request.options().getKeepLineColumn() && !request.options().getLazyPositions();
         this.stateSetSize = 0;
 
         this.toSkip = new long[(this.maxOrdinal / 64) + 1];
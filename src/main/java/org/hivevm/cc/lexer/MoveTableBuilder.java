@@ -0,0 +1,423 @@
+// Copyright 2024 HiveVM.ORG. All rights reserved.
+// SPDX-License-Identifier: BSD-3-Clause
+
+package org.hivevm.cc.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the move table of a lexical state, that is interpreted by a table driven lexer instead of
+ * the generated switch statements.
+ * <p>
+ * The NFA is converted by a subset construction into a DFA, which is minimized with the algorithm
+ * of Hopcroft. A state of the DFA is a set of NFA states together with the kind that was matched
+ * by the move into the state, so the longest match and the priority of the kinds are the same as
+ * for the NFA: the kind of a move is the smallest kind of the NFA states that move.
+ * <p>
+ * The table starts with a header of the number of character classes and the offsets of the
+ * sections: the classes of the ASCII characters, the non-ASCII ranges with their classes, the
+ * transitions for each state and class, the start state for each NFA state name, the kind for
+ * each state and whether a state has any transition.
+ * <p>
+ * The subset construction may create exponentially many states, it stops at {@link #MAX_STATES}
+ * and no table is built. The lexical state is then lexed by the NFA.
+ */
+public class MoveTableBuilder {
+
+    /**
+     * The maximum number of DFA states of the subset construction.
+     */
+    public static final int MAX_STATES = 32768;
+
+    private static final int HEADER = 7;
+
+    private final int names;
+    private final int[][] members;
+    private final int[] kinds;
+    private final long[][] asciiMoves;
+    private final char[][] ranges;
+    private final int[][] nextStates;
+
+    // Character classes
+    private int[] asciiClasses;
+    private int[] rangeStarts;
+    private int[] rangeClasses;
+    private List<BitSet> classMoves;
+
+    // Subset construction
+    private final List<BitSet> sets        = new ArrayList<>();
+    private final List<Integer> setKinds   = new ArrayList<>();
+    private final List<int[]> transitions  = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private MoveTableBuilder(NfaStateData data) {
+        int generated = data.generatedStates();
+        this.names = Math.max(generated, data.dummyStateIndex + 1);
+
+        this.members = new int[this.names][];
+        for (int n = 0; n < generated; n++) {
+            this.members[n] = new int[]{n};
+        }
+        for (String key : data.compositeStateTable.keySet()) {
+            int[] set = data.getNextStates(key);
+            if (set.length > 1) {
+                this.members[data.stateNameForComposite.get(key)] = Arrays.stream(set).filter(s -> s != -1).toArray();
+            }
+        }
+
+        this.kinds = new int[generated];
+        this.asciiMoves = new long[generated][];
+        this.ranges = new char[generated][];
+        this.nextStates = new int[generated][];
+        for (int s = 0; s < generated; s++) {
+            NfaState state = data.getAllState(s);
+            if ((state == null) || state.dummy || (state.stateName != s) || (state.lexState != data.getStateIndex())) {
+                this.kinds[s] = Integer.MAX_VALUE;
+                this.asciiMoves[s] = new long[2];
+                this.ranges[s] = new char[0];
+                this.nextStates[s] = new int[0];
+                continue;
+            }
+            this.kinds[s] = state.kindToPrint;
+            this.asciiMoves[s] = state.asciiMoves.clone();
+            this.ranges[s] = MoveTableBuilder.getNonAsciiRanges(state);
+            this.nextStates[s] = ((state.next == null) || (state.next.usefulEpsilonMoves == 0)) ? new int[0]
+                    : Arrays.stream(data.getNextStates(state.next.epsilonMovesString)).filter(n -> n != -1).toArray();
+        }
+    }
+
+    /**
+     * Builds the move table for the NFA states of the lexical state, or returns <code>null</code>
+     * if the DFA has more than {@link #MAX_STATES} states.
+     */
+    public static int[] build(NfaStateData data) {
+        MoveTableBuilder builder = new MoveTableBuilder(data);
+        builder.buildClasses();
+        int[] starts = builder.buildSubsets();
+        return (starts == null) ? null : builder.minimize(starts);
+    }
+
+    /**
+     * Divides the characters into classes, the characters of a class move the same NFA states.
+     */
+    private void buildClasses() {
+        int generated = this.kinds.length;
+        Map<BitSet, Integer> classes = new HashMap<>();
+        this.classMoves = new ArrayList<>();
+
+        this.asciiClasses = new int[128];
+        for (int c = 0; c < 128; c++) {
+            BitSet moves = new BitSet(generated);
+            for (int s = 0; s < generated; s++) {
+                if ((this.asciiMoves[s][c >> 6] & (1L << c)) != 0L) {
+                    moves.set(s);
+                }
+            }
+            this.asciiClasses[c] = getClass(classes, moves);
+        }
+
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(128);
+        for (char[] range : this.ranges) {
+            for (int i = 0; i < range.length; i += 2) {
+                bounds.add((int) range[i]);
+                bounds.add(range[i + 1] + 1);
+            }
+        }
+        int[] starts = bounds.stream().filter(b -> b <= Character.MAX_VALUE).mapToInt(b -> b).sorted().distinct().toArray();
+
+        List<Integer> rangeStarts = new ArrayList<>();
+        List<Integer> rangeClasses = new ArrayList<>();
+        for (int start : starts) {
+            BitSet moves = new BitSet(generated);
+            for (int s = 0; s < generated; s++) {
+                if (MoveTableBuilder.inRanges(this.ranges[s], start)) {
+                    moves.set(s);
+                }
+            }
+            int cls = getClass(classes, moves);
+            if (rangeClasses.isEmpty() || (rangeClasses.getLast() != cls)) {
+                rangeStarts.add(start);
+                rangeClasses.add(cls);
+            }
+        }
+        this.rangeStarts = rangeStarts.stream().mapToInt(i -> i).toArray();
+        this.rangeClasses = rangeClasses.stream().mapToInt(i -> i).toArray();
+    }
+
+    private int getClass(Map<BitSet, Integer> classes, BitSet moves) {
+        return classes.computeIfAbsent(moves, m -> {
+            this.classMoves.add(m);
+            return this.classMoves.size() - 1;
+        });
+    }
+
+    private static boolean inRanges(char[] ranges, int c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if ((ranges[i] <= c) && (c <= ranges[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the DFA states that are reachable from the NFA state names, the DFA state 0 is the
+     * dead state. Returns <code>null</code> if there are more than {@link #MAX_STATES} states.
+     */
+    private int[] buildSubsets() {
+        getState(new BitSet(), Integer.MAX_VALUE);
+
+        int[] starts = new int[this.names];
+        for (int n = 0; n < this.names; n++) {
+            BitSet set = new BitSet();
+            if (this.members[n] != null) {
+                for (int m : this.members[n]) {
+                    set.set(m);
+                }
+            }
+            starts[n] = getState(set, Integer.MAX_VALUE);
+        }
+
+        for (int d = 0; d < this.sets.size(); d++) {
+            if (this.sets.size() > MoveTableBuilder.MAX_STATES) {
+                return null;
+            }
+            BitSet set = this.sets.get(d);
+            int[] row = new int[this.classMoves.size()];
+            for (int cls = 0; cls < row.length; cls++) {
+                BitSet next = new BitSet();
+                int kind = Integer.MAX_VALUE;
+                BitSet moving = (BitSet) set.clone();
+                moving.and(this.classMoves.get(cls));
+                for (int s = moving.nextSetBit(0); s >= 0; s = moving.nextSetBit(s + 1)) {
+                    kind = Math.min(kind, this.kinds[s]);
+                    for (int n : this.nextStates[s]) {
+                        next.set(n);
+                    }
+                }
+                row[cls] = getState(next, kind);
+            }
+            this.transitions.add(row);
+        }
+        return starts;
+    }
+
+    private int getState(BitSet set, int kind) {
+        if (set.isEmpty() && (kind == Integer.MAX_VALUE) && !this.sets.isEmpty()) {
+            return 0;
+        }
+        return this.ids.computeIfAbsent(kind + ":" + set, k -> {
+            this.sets.add(set);
+            this.setKinds.add(kind);
+            return this.sets.size() - 1;
+        });
+    }
+
+    /**
+     * Minimizes the DFA with the algorithm of Hopcroft and creates the table. The states are
+     * initially partitioned by their kind, the dead state is removed from the table.
+     */
+    private int[] minimize(int[] starts) {
+        int states = this.sets.size();
+        int classes = this.classMoves.size();
+
+        // The predecessors of each state for each class
+        List<List<List<Integer>>> inverse = new ArrayList<>();
+        for (int cls = 0; cls < classes; cls++) {
+            List<List<Integer>> predecessors = new ArrayList<>();
+            for (int d = 0; d < states; d++) {
+                predecessors.add(new ArrayList<>());
+            }
+            for (int d = 0; d < states; d++) {
+                predecessors.get(this.transitions.get(d)[cls]).add(d);
+            }
+            inverse.add(predecessors);
+        }
+
+        int[] block = new int[states];
+        List<List<Integer>> blocks = new ArrayList<>();
+        Map<Integer, Integer> byKind = new HashMap<>();
+        for (int d = 0; d < states; d++) {
+            int b = byKind.computeIfAbsent(this.setKinds.get(d), k -> {
+                blocks.add(new ArrayList<>());
+                return blocks.size() - 1;
+            });
+            block[d] = b;
+            blocks.get(b).add(d);
+        }
+
+        List<Integer> work = new ArrayList<>();
+        boolean[] inWork = new boolean[states];
+        for (int b = 0; b < blocks.size(); b++) {
+            work.add(b);
+            inWork[b] = true;
+        }
+
+        while (!work.isEmpty()) {
+            int splitter = work.removeLast();
+            inWork[splitter] = false;
+            List<Integer> splitterStates = new ArrayList<>(blocks.get(splitter));
+            for (int cls = 0; cls < classes; cls++) {
+                BitSet predecessors = new BitSet(states);
+                for (int d : splitterStates) {
+                    for (int p : inverse.get(cls).get(d)) {
+                        predecessors.set(p);
+                    }
+                }
+
+                Map<Integer, List<Integer>> touched = new HashMap<>();
+                for (int p = predecessors.nextSetBit(0); p >= 0; p = predecessors.nextSetBit(p + 1)) {
+                    touched.computeIfAbsent(block[p], b -> new ArrayList<>()).add(p);
+                }
+                for (Map.Entry<Integer, List<Integer>> entry : touched.entrySet()) {
+                    int b = entry.getKey();
+                    List<Integer> inside = entry.getValue();
+                    if (inside.size() == blocks.get(b).size()) {
+                        continue;
+                    }
+
+                    List<Integer> outside = new ArrayList<>(blocks.get(b));
+                    outside.removeIf(predecessors::get);
+                    int created = blocks.size();
+                    blocks.set(b, outside);
+                    blocks.add(inside);
+                    for (int d : inside) {
+                        block[d] = created;
+                    }
+                    if (inWork[b] || (inside.size() <= outside.size())) {
+                        work.add(created);
+                        inWork[created] = true;
+                    } else {
+                        work.add(b);
+                        inWork[b] = true;
+                    }
+                }
+            }
+        }
+
+        // Number the blocks, the block of the dead state is not included
+        int dead = block[0];
+        int[] number = new int[blocks.size()];
+        int count = 0;
+        for (int b = 0; b < blocks.size(); b++) {
+            number[b] = (b == dead) ? -1 : count++;
+        }
+
+        // Merge the classes that have the same transitions in the minimized DFA
+        int[][] columns = new int[classes][count];
+        for (int b = 0; b < blocks.size(); b++) {
+            if (number[b] >= 0) {
+                int[] row = this.transitions.get(blocks.get(b).getFirst());
+                for (int cls = 0; cls < classes; cls++) {
+                    columns[cls][number[b]] = number[block[row[cls]]];
+                }
+            }
+        }
+        Map<String, Integer> merged = new HashMap<>();
+        int[] classMap = new int[classes];
+        List<int[]> mergedColumns = new ArrayList<>();
+        for (int cls = 0; cls < classes; cls++) {
+            int[] column = columns[cls];
+            classMap[cls] = merged.computeIfAbsent(Arrays.toString(column), k -> {
+                mergedColumns.add(column);
+                return mergedColumns.size() - 1;
+            });
+        }
+        int width = mergedColumns.size();
+
+        List<Integer> nonAsciiStarts = new ArrayList<>();
+        List<Integer> nonAsciiClasses = new ArrayList<>();
+        for (int r = 0; r < this.rangeStarts.length; r++) {
+            int cls = classMap[this.rangeClasses[r]];
+            if (nonAsciiClasses.isEmpty() || (nonAsciiClasses.getLast() != cls)) {
+                nonAsciiStarts.add(this.rangeStarts[r]);
+                nonAsciiClasses.add(cls);
+            }
+        }
+
+        int asciiAt = MoveTableBuilder.HEADER;
+        int rangesAt = asciiAt + 128;
+        int transitionsAt = rangesAt + 1 + (2 * nonAsciiStarts.size());
+        int startsAt = transitionsAt + (count * width);
+        int kindsAt = startsAt + this.names;
+        int movesAt = kindsAt + count;
+        int[] table = new int[movesAt + count];
+
+        table[0] = width;
+        table[1] = asciiAt;
+        table[2] = rangesAt;
+        table[3] = transitionsAt;
+        table[4] = startsAt;
+        table[5] = kindsAt;
+        table[6] = movesAt;
+        for (int c = 0; c < 128; c++) {
+            table[asciiAt + c] = classMap[this.asciiClasses[c]];
+        }
+        table[rangesAt] = nonAsciiStarts.size();
+        for (int r = 0; r < nonAsciiStarts.size(); r++) {
+            table[rangesAt + 1 + r] = nonAsciiStarts.get(r);
+            table[rangesAt + 1 + nonAsciiStarts.size() + r] = nonAsciiClasses.get(r);
+        }
+        for (int b = 0; b < blocks.size(); b++) {
+            int d = number[b];
+            if (d < 0) {
+                continue;
+            }
+            boolean moves = false;
+            for (int cls = 0; cls < width; cls++) {
+                int next = mergedColumns.get(cls)[d];
+                table[transitionsAt + (d * width) + cls] = next;
+                moves |= (next >= 0);
+            }
+            table[kindsAt + d] = this.setKinds.get(blocks.get(b).getFirst());
+            table[movesAt + d] = moves ? 1 : 0;
+        }
+        for (int n = 0; n < this.names; n++) {
+            table[startsAt + n] = number[block[starts[n]]];
+        }
+        return table;
+    }
+
+    /**
+     * Get the sorted and merged non-ASCII ranges of the state as pairs of the first and last
+     * character.
+     */
+    static char[] getNonAsciiRanges(NfaState state) {
+        List<char[]> ranges = new ArrayList<>();
+        if (state.charMoves != null) {
+            for (char c : state.charMoves) {
+                if (c == 0) {
+                    break;
+                }
+                ranges.add(new char[]{c, c});
+            }
+        }
+        if (state.rangeMoves != null) {
+            for (int i = 0; i < state.rangeMoves.length; i += 2) {
+                if (state.rangeMoves[i] == 0) {
+                    break;
+                }
+                ranges.add(new char[]{state.rangeMoves[i], state.rangeMoves[i + 1]});
+            }
+        }
+        ranges.sort((r1, r2) -> Character.compare(r1[0], r2[0]));
+
+        char[] merged = new char[2 * ranges.size()];
+        int size = 0;
+        for (char[] range : ranges) {
+            if ((size > 0) && (range[0] <= (merged[size - 1] + 1))) {
+                merged[size - 1] = (char) Math.max(merged[size - 1], range[1]);
+            } else {
+                merged[size++] = range[0];
+                merged[size++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+}
@@ -65,6 +65,13 @@ public interface Options extends Environment {
         return booleanValue(HiveCC.JJPARSER_NO_DFA);
     }
 
+    /**
+     * Find the table lexer value.
+     */
+    default boolean getTableLexer() {
+        return booleanValue(HiveCC.JJPARSER_TABLE_LEXER);
+    }
+
     /**
      * Find the debug parser value.
      */
@@ -135,6 +142,149 @@ public interface Options extends Environment {
         return intValue(HiveCC.JJPARSER_DEPTH_LIMIT);
     }
 
+    /**
+     * Find the token buffer value.
+     */
+    default boolean getTokenBuffer() {
+        return booleanValue(HiveCC.JJPARSER_TOKEN_BUFFER);
+    }
+
+    /**
+     * Find the lazy images value.
+     */
+    default boolean getLazyImages() {
+        return booleanValue(HiveCC.JJPARSER_LAZY_IMAGES);
+    }
+
+    /**
+     * Find the lazy positions value.
+     */
+    default boolean getLazyPositions() {
+        return booleanValue(HiveCC.JJPARSER_LAZY_POSITIONS);
+    }
+
+    /**
+     * Find the incremental lexer value.
+     */
+    default boolean getIncrementalLexer() {
+        return booleanValue(HiveCC.JJPARSER_INCREMENTAL_LEXER);
+    }
+
+    /**
+     * Find the parser pool value.
+     */
+    default boolean getParserPool() {
+        return booleanValue(HiveCC.JJPARSER_PARSER_POOL);
+    }
+
+    /**
+     * Find the memoize value.
+     */
+    default boolean getMemoize() {
+        return booleanValue(HiveCC.JJPARSER_MEMOIZE);
+    }
+
+    /**
+     * Find the comma separated names of the productions that are memoized.
+     */
+    default String getMemoizeProductions() {
+        return stringValue(HiveCC.JJPARSER_MEMOIZE_PRODUCTIONS);
+    }
+
+    /**
+     * Find the decide lookahead value.
+     */
+    default boolean getDecideLookahead() {
+        return booleanValue(HiveCC.JJPARSER_DECIDE_LOOKAHEAD);
+    }
+
+    /**
+     * Find the lazy error reporting value.
+     */
+    default boolean getLazyErrorReporting() {
+        return booleanValue(HiveCC.JJPARSER_LAZY_ERROR_REPORTING);
+    }
+
+    /**
+     * Find the exception free lookahead value.
+     */
+    default boolean getExceptionFreeLookahead() {
+        return booleanValue(HiveCC.JJPARSER_EXCEPTION_FREE_LOOKAHEAD);
+    }
+
+    /**
+     * Find the lexer thread value.
+     */
+    default boolean getLexerThread() {
+        return booleanValue(HiveCC.JJPARSER_LEXER_THREAD);
+    }
+
+    /**
+     * Find the parse budget value.
+     */
+    default boolean getParseBudget() {
+        return booleanValue(HiveCC.JJPARSER_PARSE_BUDGET);
+    }
+
+    /**
+     * Find the lookahead statistics value.
+     */
+    default boolean getLookaheadStats() {
+        return booleanValue(HiveCC.JJPARSER_LOOKAHEAD_STATS);
+    }
+
+    /**
+     * Find the parse result value.
+     */
+    default boolean getParseResult() {
+        return booleanValue(HiveCC.JJPARSER_PARSE_RESULT);
+    }
+
+    /**
+     * Find the synchronization tokens of the productions that recover from errors, e.g.
+     * "statement: SEMICOLON RBRACE, member: SEMICOLON".
+     */
+    default String getSyncTokens() {
+        return stringValue(HiveCC.JJPARSER_SYNC_TOKENS);
+    }
+
+    /**
+     * Find the productions that are deferred with their opening and closing tokens, e.g.
+     * "body: LBRACE RBRACE".
+     */
+    default String getDeferProductions() {
+        return stringValue(HiveCC.JJPARSER_DEFER_PRODUCTIONS);
+    }
+
+    /**
+     * Find the recognizer value.
+     */
+    default boolean getRecognizer() {
+        return booleanValue(HiveCC.JJPARSER_RECOGNIZER);
+    }
+
+    /**
+     * Find the production of the independent units that are parsed in parallel, with the tokens
+     * that separate them, e.g. "statement: SEMICOLON".
+     */
+    default String getParallelUnits() {
+        return stringValue(HiveCC.JJPARSER_PARALLEL_UNITS);
+    }
+
+    /**
+     * Find the chunked lexer value.
+     */
+    default boolean getChunkedLexer() {
+        return booleanValue(HiveCC.JJPARSER_CHUNKED_LEXER);
+    }
+
+    /**
+     * Find the production that parses each input of a batch.
+     */
+    default String getParserBatch() {
+        return stringValue(HiveCC.JJPARSER_PARSER_BATCH);
+    }
+
     /**
      * Get defined Java package name.
      */
@@ -43,6 +43,14 @@ class SemanticContext {
         return this.options.getOtherAmbiguityCheck();
     }
 
+    public final boolean isLexerThread() {
+        return this.options.getLexerThread();
+    }
+
+    public final boolean isLazyImages() {
+        return this.options.getLazyImages();
+    }
+
     final void onSemanticError(Object node, String message) {
         this.errorCount++;
         System.err.print("Error: ");
@@ -8,15 +8,23 @@ import org.hivevm.cc.parser.JavaCCErrors;
 import org.hivevm.cc.parser.Options;
 import org.hivevm.cc.parser.ParseException;
 import org.hivevm.cc.parser.RegExprSpec;
+import org.hivevm.cc.parser.Token;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 public class Semanticize {
 
+    // An access to the lexical state of the lexer in an action of the parser.
+    private static final Pattern LEXICAL_STATE_SWITCH = Pattern.compile("\\b(SwitchTo|curLexState)\\b");
+
+    // A read of the image field of a token, an assignment is not a read.
+    private static final Pattern IMAGE_READ = Pattern.compile("\\.\\s*image\\b(?!\\s*=[^=])");
+
     private final SemanticRequest request;
     private final SemanticContext context;
 
@@ -141,6 +149,33 @@ public class Semanticize {
                     false);
         }
 
+        /*
+         * The following walks the entire parse tree to make sure that no action switches the lexical
+         * state from the parser, when the lexer runs ahead of the parser on its own thread.
+         */
+        if (context.isLexerThread()) {
+            for (var bnfproduction : request.getNormalProductions()) {
+                TreeWalker.walk(bnfproduction.getExpansion(), semanticize.new LexicalStateChecker(), false);
+            }
+        }
+
+        /*
+         * The following walks the entire parse tree and the lexical actions to warn about the actions
+         * that read the image field of a token. The field is only set for string literals, when the
+         * images are created on demand.
+         */
+        if (context.isLazyImages()) {
+            for (var bnfproduction : request.getNormalProductions()) {
+                TreeWalker.walk(bnfproduction.getExpansion(), semanticize.new ImageChecker(), false);
+            }
+            for (var tokenProduction : request.getTokenProductions()) {
+                for (var respec : tokenProduction.getRespecs()) {
+                    if (respec.act != null)
+                        semanticize.checkImageReads(respec.act.getActionTokens());
+                }
+            }
+        }
+
         /*
          * The following loop ensures that all target lexical states are defined. Also piggybacking on
          * this loop is the detection of <EOF> and <name> in token productions. After reporting an
@@ -726,6 +761,60 @@ public class Semanticize {
 
     }
 
+    private class LexicalStateChecker implements TreeWalker {
+
+        @Override
+        public boolean goDeeper(Expansion e) {
+            return !(e instanceof RegularExpression);
+        }
+
+        @Override
+        public void action(Expansion e) {
+            List<Token> tokens;
+            if (e instanceof Action action)
+                tokens = action.getActionTokens();
+            else if (e instanceof Lookahead la)
+                tokens = la.getActionTokens();
+            else
+                return;
+            for (var token : tokens) {
+                if (Semanticize.LEXICAL_STATE_SWITCH.matcher(token.image).find())
+                    getContext().onSemanticError(token,
+                            "The lexical state can't be switched from the parser, "
+                                    + "the lexer runs on its own thread (LEXER_THREAD).");
+            }
+        }
+
+    }
+
+    private class ImageChecker implements TreeWalker {
+
+        @Override
+        public boolean goDeeper(Expansion e) {
+            return !(e instanceof RegularExpression);
+        }
+
+        @Override
+        public void action(Expansion e) {
+            if (e instanceof Action action)
+                checkImageReads(action.getActionTokens());
+            else if (e instanceof Lookahead la)
+                checkImageReads(la.getActionTokens());
+        }
+    }
+
+    /**
+     * Warns about the reads of the image field of a token in the code, assignments are ignored.
+     */
+    private void checkImageReads(List<Token> tokens) {
+        for (var token : tokens) {
+            if (Semanticize.IMAGE_READ.matcher(token.image).find())
+                getContext().onWarning(token,
+                        "The image of a token is only set for string literals with LAZY_IMAGES, "
+                                + "use getImage() instead.");
+        }
+    }
+
     private class EmptyChecker implements TreeWalker {
 
         @Override
@@ -104,7 +104,7 @@ __NON_ASCII_TABLE_METHOD__
 //@end
 /** Get the next Token. */
 Token * __PARSER_NAME__TokenManager::getNextToken() {
-//@if (HAS_SPECIAL)
+//@if(HAS_SPECIAL)
 	Token *specialToken = nullptr;
 //@fi
 	Token *matchedToken = nullptr;
@@ -122,7 +122,7 @@ Token * __PARSER_NAME__TokenManager::getNextToken() {
 			jjmatchedPos = -1;
 			matchedToken = jjFillToken();
 //@if(HAS_SPECIAL)
-			matchedToken->specialToken = specialToken;
+			matchedToken->specialToken() = specialToken;
 //@fi
 			//@invoke(DUMP_GET_NEXT_TOKEN)
 //@if(MAX_LEX_STATES)
@@ -0,0 +1,313 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * A {@link CharStream} that reads directly from an input held in memory. The characters are
+ * neither copied into a ring buffer nor tracked per character: {@link #backup(int)},
+ * {@link #GetImage()} and {@link #GetSuffix(int)} are computed from the offsets into the input.
+ * <p>
+ * The stream doesn't process java-like unicode escapes. Lines and columns are computed on demand
+ * from an index of the line starts, which is built while the positions are requested.
+ */
+public class ArrayCharStream extends CharStream {
+
+	private char[]       chars;
+	private CharSequence text;
+	private int          length;
+
+	private int pos = -1;
+	private int tokenBegin;
+//@if(KEEP_LINE_COLUMN)
+
+	private int[] lineStarts = new int[64];
+	private int   lineCount  = 1;
+	private int   lineLimit  = 0;
+	private int   lineDelta  = 0;
+	private int   columnLine = -1;
+	private int   columnDelta;
+
+	// The column of the last offset that has been resolved with tabs, the scan of a later offset on
+	// the same line continues from there.
+	private int   tabLine    = -1;
+	private int   tabOffset;
+	private int   tabColumn;
+//@fi
+
+	/**
+	 * Constructs a stream that reads the characters of the array, the array is not copied.
+	 */
+	public ArrayCharStream(char[] chars) {
+		this(chars, chars.length);
+	}
+
+	/**
+	 * Constructs a stream that reads the first length characters of the array, the array is not
+	 * copied.
+	 */
+	public ArrayCharStream(char[] chars, int length) {
+		this.chars = chars;
+		this.text = null;
+		this.length = length;
+	}
+
+	/**
+	 * Constructs a stream that reads the characters of the text, the text is not copied.
+	 */
+	public ArrayCharStream(CharSequence text) {
+		this.chars = null;
+		this.text = text;
+		this.length = text.length();
+	}
+
+	/**
+	 * Reinitialise on the first length characters of the array, the array is not copied.
+	 */
+	public void ReInit(char[] chars, int length) {
+		this.chars = chars;
+		this.text = null;
+		this.length = length;
+		reset();
+	}
+
+	/**
+	 * Reinitialise on the characters of the text, the text is not copied.
+	 */
+	public void ReInit(CharSequence text) {
+		this.chars = null;
+		this.text = text;
+		this.length = text.length();
+		reset();
+	}
+
+	/**
+	 * Resets the position and the line index in place, the index keeps its capacity.
+	 */
+	private void reset() {
+		this.pos = -1;
+		this.tokenBegin = 0;
+//@if(KEEP_LINE_COLUMN)
+		this.lineCount = 1;
+		this.lineLimit = 0;
+		this.lineDelta = 0;
+		this.columnLine = -1;
+		this.columnDelta = 0;
+		this.tabLine = -1;
+//@fi
+	}
+
+	@Override
+	public char BeginToken() throws java.io.IOException {
+		this.tokenBegin = this.pos + 1;
+		return readChar();
+	}
+
+	@Override
+	public char readChar() throws java.io.IOException {
+		if (this.pos + 1 >= this.length) {
+			throw new java.io.IOException();
+		}
+		return charAt(++this.pos);
+	}
+
+	@Override
+	public void backup(int amount) {
+		this.pos -= amount;
+	}
+
+	/**
+	 * Moves the stream to the offset, the next token begins at the offset.
+	 */
+	public void seek(int offset) {
+		this.pos = offset - 1;
+	}
+
+	@Override
+	public int getBeginOffset() {
+		return this.tokenBegin;
+	}
+
+	@Override
+	public int getEndOffset() {
+		return this.pos;
+	}
+
+	/**
+	 * Get the character at the offset.
+	 */
+	public char charAt(int offset) {
+		return (this.chars == null) ? this.text.charAt(offset) : this.chars[offset];
+	}
+
+	/**
+	 * Get the image from the begin offset to the end offset (inclusive).
+	 */
+	public String GetImage(int beginOffset, int endOffset) {
+		if (this.chars == null) {
+			return this.text.subSequence(beginOffset, endOffset + 1).toString();
+		}
+		return new String(this.chars, beginOffset, (endOffset - beginOffset) + 1);
+	}
+//@if(LAZY_IMAGES)
+
+	@Override
+	public CharSequence GetImageView() {
+		return new TokenImage(this, this.tokenBegin, this.pos + 1);
+	}
+//@fi
+
+	@Override
+	public String GetImage() {
+		return (this.pos < this.tokenBegin) ? "" : GetImage(this.tokenBegin, this.pos);
+	}
+
+	@Override
+	public char[] GetSuffix(int len) {
+		char[] ret = new char[len];
+		int begin = (this.pos - len) + 1;
+		if (this.chars == null) {
+			for (int i = 0; i < len; i++) {
+				ret[i] = this.text.charAt(begin + i);
+			}
+		} else {
+			System.arraycopy(this.chars, begin, ret, 0, len);
+		}
+		return ret;
+	}
+
+	@Override
+	public int getEndColumn() {
+//@if(KEEP_LINE_COLUMN)
+		return column(this.pos);
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getEndLine() {
+//@if(KEEP_LINE_COLUMN)
+		return lineIndex(this.pos) + 1 + this.lineDelta;
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getBeginColumn() {
+//@if(KEEP_LINE_COLUMN)
+		return column(this.tokenBegin);
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getBeginLine() {
+//@if(KEEP_LINE_COLUMN)
+		return lineIndex(this.tokenBegin) + 1 + this.lineDelta;
+//@else
+		return -1;
+//@fi
+	}
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+
+	@Override
+	public int getLine(int offset) {
+		return lineIndex(offset) + 1 + this.lineDelta;
+	}
+
+	@Override
+	public int getColumn(int offset) {
+		return column(offset);
+	}
+//@fi
+
+	@Override
+	public void setTabSize(int i) {
+		super.setTabSize(i);
+		this.tabLine = -1;
+	}
+
+	/**
+	 * Adjusts the line and column numbers for the start of the current token, the positions of
+	 * the following characters are shifted accordingly.
+	 */
+	@Override
+	public void adjustBeginLineColumn(int newLine, int newCol) {
+		int index = lineIndex(this.tokenBegin);
+		this.lineDelta = newLine - (index + 1);
+		this.columnLine = index;
+		this.columnDelta = 0;
+		this.columnDelta = newCol - column(this.tokenBegin);
+	}
+
+	/**
+	 * Get the index of the line that contains the offset. The line starts are indexed up to the
+	 * offset on the first request.
+	 */
+	private int lineIndex(int offset) {
+		// The offsets after the input, like the EOF token, are at the last character
+		offset = Math.min(offset, this.length - 1);
+		if (offset < 0) {
+			return 0;
+		}
+		for (int i = this.lineLimit; i <= offset; i++) {
+			char c = charAt(i);
+			if ((c == '\n') || ((c == '\r') && ((i + 1 >= this.length) || (charAt(i + 1) != '\n')))) {
+				if (this.lineCount == this.lineStarts.length) {
+					this.lineStarts = java.util.Arrays.copyOf(this.lineStarts, this.lineCount << 1);
+				}
+				this.lineStarts[this.lineCount++] = i + 1;
+			}
+		}
+		this.lineLimit = Math.max(this.lineLimit, offset + 1);
+
+		int low = 0;
+		int high = this.lineCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.lineStarts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the column of the character at the offset, tabs are expanded to the tab size.
+	 */
+	private int column(int offset) {
+		offset = Math.min(offset, this.length - 1);
+		if (offset < 0) {
+			return 0;
+		}
+		int index = lineIndex(offset);
+		int start = this.lineStarts[index];
+		int tabSize = getTabSize(0);
+		int column;
+		if (tabSize <= 1) {
+			column = (offset - start) + 1;
+		} else {
+			int i = start;
+			column = 0;
+			if ((index == this.tabLine) && (offset >= this.tabOffset)) {
+				i = this.tabOffset + 1;
+				column = this.tabColumn;
+			}
+			for (; i <= offset && i < this.length; i++) {
+				column++;
+				if (charAt(i) == '\t') {
+					column--;
+					column += tabSize - (column % tabSize);
+				}
+			}
+			this.tabLine = index;
+			this.tabOffset = offset;
+			this.tabColumn = column;
+		}
+		return (index == this.columnLine) ? column + this.columnDelta : column;
+	}
+//@fi
+}
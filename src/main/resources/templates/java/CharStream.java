@@ -0,0 +1,133 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * The characters read by the {@link Lexer}. A stream keeps the characters of the current token, so
+ * that the lexer can back up and get the image of the token. The offsets count the characters from
+ * the begin of the input.
+ */
+public abstract class CharStream {
+
+	private int tabSize = 1;
+
+	public void setTabSize(int i) {
+		this.tabSize = i;
+	}
+
+	public int getTabSize(int i) {
+		return this.tabSize;
+	}
+
+	/**
+	 * @return starting character for token.
+	 */
+	public abstract char BeginToken() throws java.io.IOException;
+
+	/**
+	 * Read a character.
+	 */
+	public abstract char readChar() throws java.io.IOException;
+
+	/**
+	 * Retreat.
+	 */
+	public abstract void backup(int amount);
+
+	/**
+	 * @return offset of the first character of the token
+	 */
+	public abstract int getBeginOffset();
+
+	/**
+	 * @return offset of the last character read
+	 */
+	public abstract int getEndOffset();
+
+	/**
+	 * @return line number of token start
+	 */
+	public abstract int getBeginLine();
+
+	/**
+	 * @return column of token start
+	 */
+	public abstract int getBeginColumn();
+
+	/**
+	 * Get end line.
+	 */
+	public abstract int getEndLine();
+
+	/**
+	 * Get end column.
+	 */
+	public abstract int getEndColumn();
+
+	/**
+	 * @see #getEndLine
+	 * @deprecated
+	 */
+	@Deprecated
+	public int getLine() {
+		return getEndLine();
+	}
+
+	/**
+	 * @see #getEndColumn
+	 * @deprecated
+	 */
+	@Deprecated
+	public int getColumn() {
+		return getEndColumn();
+	}
+
+	/**
+	 * @return token image as String
+	 */
+	public abstract String GetImage();
+
+	/**
+	 * @return suffix
+	 */
+	public abstract char[] GetSuffix(int len);
+
+	/**
+	 * Set buffers back to null when finished.
+	 */
+	public void Done() {}
+//@if(KEEP_LINE_COLUMN)
+
+	/**
+	 * Method to adjust line and column numbers for the start of a token.
+	 */
+	public abstract void adjustBeginLineColumn(int newLine, int newCol);
+//@if(LAZY_POSITIONS)
+
+	/**
+	 * Get the line of the character at the offset.
+	 */
+	public abstract int getLine(int offset);
+
+	/**
+	 * Get the column of the character at the offset.
+	 */
+	public abstract int getColumn(int offset);
+//@fi
+//@fi
+//@if(LAZY_IMAGES)
+
+	/**
+	 * @return the character at the offset
+	 */
+	public abstract char charAt(int offset);
+
+	/**
+	 * @return the characters from the begin offset to the end offset (inclusive)
+	 */
+	public abstract String GetImage(int beginOffset, int endOffset);
+
+	/**
+	 * @return a view of the current token image, without copying the characters
+	 */
+	public abstract CharSequence GetImageView();
+//@fi
+}
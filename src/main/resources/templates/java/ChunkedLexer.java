@@ -0,0 +1,332 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Lexes a large input in parallel on a fork-join pool. The input is split into chunks, each chunk
+ * is lexed speculatively in the default lexical state from its first offset and from the starts of
+ * its next lines. The runs are merged in order: the lexing of the input continues from the offset
+ * and the lexical state where the previous chunk has ended, until it agrees with a run of the
+ * chunk. A token that crosses the end of a chunk, like a block comment or a string in another
+ * lexical state, is lexed from its true start.
+ * <p>
+ * The result holds the kinds and the offsets of the tokens, the special tokens are skipped. The
+ * lexical actions must not keep a state between the tokens, as the runs start in the middle of the
+ * input.
+ */
+public class ChunkedLexer {
+
+	// The smallest chunk that is lexed on its own.
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	// The number of runs of a chunk, from its first offset and the starts of the next lines.
+	private static final int CANDIDATES = 4;
+
+	private final java.util.concurrent.ForkJoinPool pool;
+	private final int                               chunks;
+
+	/**
+	 * Constructs a lexer that lexes a chunk per worker of the common pool.
+	 */
+	public ChunkedLexer() {
+		this(java.util.concurrent.ForkJoinPool.commonPool(), 0);
+	}
+
+	/**
+	 * Constructs a lexer that lexes the chunks on the pool. The input is split into the number of
+	 * chunks, or into a chunk per worker of the pool if chunks is 0.
+	 */
+	public ChunkedLexer(java.util.concurrent.ForkJoinPool pool, int chunks) {
+		if (chunks < 0) {
+			throw new IllegalArgumentException("Invalid number of chunks: " + chunks);
+		}
+		this.pool = pool;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Lexes the input and returns its tokens, the last token is the EOF token.
+	 */
+	public Tokens lex(CharSequence input) throws TokenException {
+		int count = (this.chunks == 0) ? this.pool.getParallelism() : this.chunks;
+		count = Math.max(1, Math.min(count, input.length() / ChunkedLexer.MIN_CHUNK_SIZE));
+		Chunk[] parts = new Chunk[count];
+		for (int i = 0; i < count; i++) {
+			int begin = (int) (((long) input.length() * i) / count);
+			int limit = (int) (((long) input.length() * (i + 1)) / count);
+			parts[i] = new Chunk(input, begin, limit);
+			this.pool.execute(parts[i]);
+		}
+
+		Tokens tokens = new Tokens(input);
+		ArrayCharStream stream = new ArrayCharStream(input);
+		Lexer lexer = new Lexer(stream);
+		int offset = 0;
+		int state = lexer.defaultLexState;
+		try {
+			for (Chunk chunk : parts) {
+				chunk.join();
+				Run run = chunk.find(offset, state);
+				if (run == null) {
+					// The lexing continues from the end of the previous chunk until it agrees with a run
+					stream.seek(offset);
+					lexer.ReInit(stream, state);
+					while ((run == null) && (offset < chunk.limit) && !tokens.isClosed()) {
+						int kind = lexer.getNextKind();
+						tokens.add(kind, stream.getBeginOffset(), stream.getEndOffset());
+						offset = stream.getEndOffset() + 1;
+						state = lexer.curLexState;
+						run = chunk.find(offset, state);
+					}
+					if (run == null) {
+						continue;
+					}
+				}
+
+				// The tokens of the runs are taken, a lexical error of the run is thrown from its start
+				int index = run.index(offset, state) + 1;
+				while (true) {
+					for (; index < run.size; index++) {
+						tokens.add(run.kinds[index], run.begins[index], run.ends[index]);
+						offset = run.ends[index] + 1;
+						state = run.states[index];
+					}
+					if (run.join == null) {
+						break;
+					}
+					index = run.joinIndex + 1;
+					run = run.join;
+				}
+				if (run.failed) {
+					stream.seek(offset);
+					lexer.ReInit(stream, state);
+					lexer.getNextKind();
+				}
+			}
+			while (!tokens.isClosed()) {
+				stream.seek(offset);
+				lexer.ReInit(stream, state);
+				tokens.add(lexer.getNextKind(), stream.getBeginOffset(), stream.getEndOffset());
+				offset = stream.getEndOffset() + 1;
+				state = lexer.curLexState;
+			}
+		} finally {
+			for (Chunk chunk : parts) {
+				chunk.cancel(false);
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * The kinds and the offsets of the tokens of an input.
+	 */
+	public static final class Tokens {
+
+		private final CharSequence input;
+
+		private int[] kinds  = new int[256];
+		private int[] begins = new int[256];
+		private int[] ends   = new int[256];
+		private int   size;
+
+		private Tokens(CharSequence input) {
+			this.input = input;
+		}
+
+		private void add(int kind, int begin, int end) {
+			if (this.size == this.kinds.length) {
+				this.kinds = java.util.Arrays.copyOf(this.kinds, this.size << 1);
+				this.begins = java.util.Arrays.copyOf(this.begins, this.size << 1);
+				this.ends = java.util.Arrays.copyOf(this.ends, this.size << 1);
+			}
+			this.kinds[this.size] = kind;
+			this.begins[this.size] = begin;
+			this.ends[this.size] = end;
+			this.size++;
+		}
+
+		private boolean isClosed() {
+			return (this.size > 0) && (this.kinds[this.size - 1] == ParserConstants.EOF);
+		}
+
+		/**
+		 * Get the number of tokens.
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Get the kind of the token at the index.
+		 */
+		public int getKind(int index) {
+			return this.kinds[index];
+		}
+
+		/**
+		 * Get the offset of the first character of the token at the index.
+		 */
+		public int getBeginOffset(int index) {
+			return this.begins[index];
+		}
+
+		/**
+		 * Get the offset of the last character of the token at the index.
+		 */
+		public int getEndOffset(int index) {
+			return this.ends[index];
+		}
+
+		/**
+		 * Get the image of the token at the index.
+		 */
+		public String getImage(int index) {
+			return this.input.subSequence(this.begins[index], this.ends[index] + 1).toString();
+		}
+	}
+
+	/**
+	 * The tokens that are lexed from a start offset in the default lexical state. A run ends after
+	 * the token that reaches the limit of its chunk, after the EOF token, at a lexical error, or
+	 * where it agrees with an earlier run of the chunk.
+	 */
+	private static final class Run {
+
+		private final int start;
+		private final int startState;
+
+		private int[]   kinds  = new int[64];
+		private int[]   begins = new int[64];
+		private int[]   ends   = new int[64];
+		private int[]   states = new int[64];
+		private int     size;
+		private boolean failed;
+
+		// The earlier run that continues this run, after the token at the join index
+		private Run join;
+		private int joinIndex;
+
+		private Run(int start, int startState) {
+			this.start = start;
+			this.startState = startState;
+		}
+
+		private void add(int kind, int begin, int end, int state) {
+			if (this.size == this.kinds.length) {
+				this.kinds = java.util.Arrays.copyOf(this.kinds, this.size << 1);
+				this.begins = java.util.Arrays.copyOf(this.begins, this.size << 1);
+				this.ends = java.util.Arrays.copyOf(this.ends, this.size << 1);
+				this.states = java.util.Arrays.copyOf(this.states, this.size << 1);
+			}
+			this.kinds[this.size] = kind;
+			this.begins[this.size] = begin;
+			this.ends[this.size] = end;
+			this.states[this.size] = state;
+			this.size++;
+		}
+
+		/**
+		 * Get the index of the token after which the run is at the offset in the lexical state, -1
+		 * for the start of the run, or -2 if the run doesn't pass the offset in that state.
+		 */
+		private int index(int offset, int state) {
+			if ((offset == this.start) && (state == this.startState)) {
+				return -1;
+			}
+			int low = 0;
+			int high = this.size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (this.ends[mid] + 1 < offset) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			for (int i = low; (i < this.size) && (this.ends[i] + 1 == offset); i++) {
+				if (this.states[i] == state) {
+					return i;
+				}
+			}
+			return -2;
+		}
+	}
+
+	/**
+	 * A chunk of the input, that is lexed speculatively by its runs.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Chunk extends java.util.concurrent.RecursiveAction {
+
+		private final CharSequence input;
+		private final int          begin;
+		private final int          limit;
+
+		private final java.util.List<Run> runs = new java.util.ArrayList<>();
+
+		private Chunk(CharSequence input, int begin, int limit) {
+			this.input = input;
+			this.begin = begin;
+			this.limit = limit;
+		}
+
+		/**
+		 * Get the run that passes the offset in the lexical state, or <code>null</code>.
+		 */
+		private Run find(int offset, int state) {
+			for (Run run : this.runs) {
+				if (run.index(offset, state) > -2) {
+					return run;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		protected void compute() {
+			ArrayCharStream stream = new ArrayCharStream(this.input);
+			Lexer lexer = new Lexer(stream);
+			int state = lexer.defaultLexState;
+			int start = this.begin;
+			while ((this.runs.size() < ChunkedLexer.CANDIDATES) && (start < this.limit)) {
+				Run run = new Run(start, state);
+				this.runs.add(run);
+				stream.seek(start);
+				lexer.ReInit(stream, state);
+				lex(run, lexer, stream);
+
+				// The next run starts at the following line
+				do {
+					start++;
+				} while ((start < this.limit) && (this.input.charAt(start - 1) != '\n'));
+			}
+		}
+
+		/**
+		 * Lexes the tokens of the run, until the run ends.
+		 */
+		private void lex(Run run, Lexer lexer, ArrayCharStream stream) {
+			while (true) {
+				int kind;
+				try {
+					kind = lexer.getNextKind();
+				} catch (TokenException e) {
+					run.failed = true;
+					return;
+				}
+				int end = stream.getEndOffset();
+				run.add(kind, stream.getBeginOffset(), end, lexer.curLexState);
+				if ((kind == ParserConstants.EOF) || (end + 1 >= this.limit)) {
+					return;
+				}
+				for (Run other : this.runs) {
+					int index = (other == run) ? -2 : other.index(end + 1, lexer.curLexState);
+					if (index > -2) {
+						run.join = other;
+						run.joinIndex = index;
+						return;
+					}
+				}
+			}
+		}
+	}
+}
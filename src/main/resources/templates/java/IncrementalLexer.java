@@ -0,0 +1,412 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Lexes a text held in memory and keeps its tokens up to date while the text is edited, e.g. in
+ * an editor or a language server. An edit lexes the tokens again from the last token that can't
+ * be affected by the edit, until the tokens re-synchronize with the tokens before the edit. The
+ * remaining tokens are reused.
+ * <p>
+ * The tokens are recorded per call of {@link Lexer#getNextToken()}: the special tokens and the
+ * regular token of a call form a group, together with the offset where the call began, the
+ * lexical state of the lexer at that offset and the farthest offset the lexer has read. A MORE
+ * prefix is never pending between two calls, so lexing can restart at any group. A group is lexed
+ * again if the lexer has read a character at or after the edit, lexing stops at the first group
+ * behind the edit that begins at the same offset and in the same lexical state as before.
+ * <p>
+ * The tokens are stored in a gap buffer: the offsets behind the gap are relative to the end of the
+ * text, so the tokens behind an edit are neither moved nor shifted. State that lexical actions
+ * keep besides the lexical state isn't restored. A character that can't be lexed is recorded as a
+ * token of kind {@link #ERROR}, lexing resumes after it.
+ */
+public class IncrementalLexer {
+
+	/**
+	 * The kind of a token for a character that can't be lexed.
+	 */
+	public static final int ERROR = -1;
+
+	private static final int INITIAL_SIZE = 1024;
+
+	private final StringBuilder text;
+	private final Scanner       scanner;
+	private       Stream        stream;
+
+	// The tokens before the gap have absolute offsets, the tokens after the gap have offsets
+	// relative to the length of the text.
+	private int   gapStart;
+	private int   gapEnd;
+	private int[] kinds;
+	private int[] beginOffsets;
+	private int[] endOffsets;
+	// The offset where the group of the token begins and the farthest offset read for the group.
+	// The lexical state is -1 unless the token is the first of its group.
+	private int[] groupOffsets;
+	private int[] groupLimits;
+	private int[] groupStates;
+	// The farthest distance the lexer has read ahead of the offset where a group begins.
+	private int   maxScan;
+
+	private Token[] pendingTokens = new Token[16];
+	private int[]   pendingBegins = new int[16];
+	private int[]   pendingEnds   = new int[16];
+	private int     pending;
+
+	private int changedIndex;
+	private int changedCount;
+
+	/**
+	 * Constructs an incremental lexer and lexes the text, the text is copied.
+	 */
+	public IncrementalLexer(CharSequence text) {
+		this.text = new StringBuilder(text);
+		this.kinds = new int[IncrementalLexer.INITIAL_SIZE];
+		this.beginOffsets = new int[IncrementalLexer.INITIAL_SIZE];
+		this.endOffsets = new int[IncrementalLexer.INITIAL_SIZE];
+		this.groupOffsets = new int[IncrementalLexer.INITIAL_SIZE];
+		this.groupLimits = new int[IncrementalLexer.INITIAL_SIZE];
+		this.groupStates = new int[IncrementalLexer.INITIAL_SIZE];
+		this.gapEnd = IncrementalLexer.INITIAL_SIZE;
+		this.stream = new Stream(this.text);
+		this.scanner = new Scanner(this.stream);
+		lex(0, this.scanner.defaultLexState, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Replaces the length characters at the offset with the replacement and lexes the tokens that
+	 * are affected by the edit.
+	 *
+	 * @return the index of the first token that has been lexed again
+	 */
+	public int edit(int offset, int length, CharSequence replacement) {
+		if ((offset < 0) || (length < 0) || (offset + length > this.text.length())) {
+			throw new IndexOutOfBoundsException(
+					"Invalid edit of " + length + " characters at offset " + offset);
+		}
+
+		int index = restartIndex(offset);
+		int start = offset(this.groupOffsets, index);
+		int state = this.groupStates[physical(index)];
+
+		// The tokens from the index are moved behind the gap, before the length of the text changes
+		moveGap(index);
+		this.text.replace(offset, offset + length, replacement.toString());
+		this.stream = new Stream(this.text);
+		lex(start, state, offset + replacement.length());
+		return index;
+	}
+
+	/**
+	 * Get the text.
+	 */
+	public final CharSequence text() {
+		return this.text;
+	}
+
+	/**
+	 * Get the number of tokens, including the special tokens and the EOF token.
+	 */
+	public final int size() {
+		return this.gapStart + (this.kinds.length - this.gapEnd);
+	}
+
+	/**
+	 * Get the number of tokens that have been lexed again by the last edit, starting at the index
+	 * returned by {@link #edit(int, int, CharSequence)}.
+	 */
+	public final int changedCount() {
+		return this.changedCount;
+	}
+
+	/**
+	 * Get the kind of the token at the index.
+	 */
+	public final int kind(int index) {
+		return this.kinds[physical(index)];
+	}
+
+	/**
+	 * Get the offset of the first character of the token at the index.
+	 */
+	public final int beginOffset(int index) {
+		return offset(this.beginOffsets, index);
+	}
+
+	/**
+	 * Get the offset of the last character of the token at the index.
+	 */
+	public final int endOffset(int index) {
+		return offset(this.endOffsets, index);
+	}
+
+	/**
+	 * Get the image of the token at the index.
+	 */
+	public final String image(int index) {
+		int begin = beginOffset(index);
+		int end = endOffset(index);
+		return (end < begin) ? "" : this.text.substring(begin, end + 1);
+	}
+
+	/**
+	 * Returns true if the token at the index is a special token, that precedes a regular token.
+	 */
+	public final boolean isSpecial(int index) {
+		return (index + 1 < size()) && (this.groupStates[physical(index + 1)] < 0);
+	}
+
+	/**
+	 * Get the index of the first group, that may have read a character at the offset.
+	 */
+	private int restartIndex(int offset) {
+		int low = 0;
+		int high = size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (offset(this.groupOffsets, mid) <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		int index = low;
+		while (this.groupStates[physical(index)] < 0) {
+			index--;
+		}
+		// A group can't read further ahead than the farthest distance seen so far
+		int first = offset - this.maxScan;
+		for (int i = index - 1; (i >= 0) && (offset(this.groupOffsets, i) >= first); i--) {
+			if ((this.groupStates[physical(i)] >= 0) && (offset(this.groupLimits, i) >= offset)) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Lexes the groups from the offset, until a group re-synchronizes with a group behind the gap
+	 * at or after the resync offset.
+	 */
+	private void lex(int offset, int state, int resync) {
+		this.stream.seek(offset);
+		this.scanner.ReInit(this.stream, state);
+		this.changedIndex = this.gapStart;
+		for (; ; ) {
+			int start = this.stream.getEndOffset() + 1;
+			int groupState = this.scanner.curLexState;
+			this.stream.limit = start;
+			this.pending = 0;
+
+			Token token;
+			try {
+				token = this.scanner.getNextToken();
+			} catch (TokenException e) {
+				token = null;
+			}
+
+			int limit = this.stream.limit;
+			this.maxScan = Math.max(this.maxScan, limit - start);
+			for (int i = 0; i < this.pending; i++) {
+				add(this.pendingTokens[i].kind, this.pendingBegins[i], this.pendingEnds[i], start,
+						limit, (i == 0) ? groupState : -1);
+				this.pendingTokens[i] = null;
+			}
+
+			if (token == null) {
+				int error = this.stream.getBeginOffset();
+				add(IncrementalLexer.ERROR, error, error, start, limit,
+						(this.pending == 0) ? groupState : -1);
+				this.stream.seek(error + 1);
+				this.scanner.SwitchTo(groupState);
+			} else if (token.kind == 0) {
+				// The EOF token replaces the remaining tokens
+				this.gapEnd = this.kinds.length;
+				break;
+			}
+
+			if (resync(this.stream.getEndOffset() + 1, this.scanner.curLexState, resync)) {
+				break;
+			}
+		}
+		this.changedCount = this.gapStart - this.changedIndex;
+	}
+
+	/**
+	 * Removes the groups behind the gap that begin before the offset or before the resync offset.
+	 *
+	 * @return true if the next group behind the gap begins at the offset in the lexical state
+	 */
+	private boolean resync(int offset, int state, int resync) {
+		int length = this.text.length();
+		while (this.gapEnd < this.kinds.length) {
+			int groupOffset = this.groupOffsets[this.gapEnd] + length;
+			if ((groupOffset >= offset) && (groupOffset >= resync)) {
+				return (groupOffset == offset) && (this.groupStates[this.gapEnd] == state);
+			}
+			this.gapEnd++;
+		}
+		return false;
+	}
+
+	/**
+	 * Records a token filled by the lexer, the kind is taken when the group is complete.
+	 */
+	private void fill(Token token) {
+		if (this.pending == this.pendingTokens.length) {
+			int size = this.pending << 1;
+			this.pendingTokens = java.util.Arrays.copyOf(this.pendingTokens, size);
+			this.pendingBegins = java.util.Arrays.copyOf(this.pendingBegins, size);
+			this.pendingEnds = java.util.Arrays.copyOf(this.pendingEnds, size);
+		}
+		this.pendingTokens[this.pending] = token;
+		this.pendingBegins[this.pending] = this.stream.getBeginOffset();
+		this.pendingEnds[this.pending] = this.stream.getEndOffset();
+		this.pending++;
+	}
+
+	/**
+	 * Adds a token before the gap.
+	 */
+	private void add(int kind, int begin, int end, int groupOffset, int groupLimit, int groupState) {
+		if (this.gapStart == this.gapEnd) {
+			grow();
+		}
+		int i = this.gapStart++;
+		this.kinds[i] = kind;
+		this.beginOffsets[i] = begin;
+		this.endOffsets[i] = end;
+		this.groupOffsets[i] = groupOffset;
+		this.groupLimits[i] = groupLimit;
+		this.groupStates[i] = groupState;
+	}
+
+	/**
+	 * Get the index of the token in the arrays.
+	 */
+	private int physical(int index) {
+		return (index < this.gapStart) ? index : index + (this.gapEnd - this.gapStart);
+	}
+
+	/**
+	 * Get the absolute offset of the token at the index.
+	 */
+	private int offset(int[] offsets, int index) {
+		return (index < this.gapStart)
+				? offsets[index]
+				: offsets[index + (this.gapEnd - this.gapStart)] + this.text.length();
+	}
+
+	/**
+	 * Moves the gap in front of the token at the index.
+	 */
+	private void moveGap(int index) {
+		int length = this.text.length();
+		if (index < this.gapStart) {
+			int count = this.gapStart - index;
+			move(index, this.gapEnd - count, count, -length);
+			this.gapStart -= count;
+			this.gapEnd -= count;
+		} else if (index > this.gapStart) {
+			int count = index - this.gapStart;
+			move(this.gapEnd, this.gapStart, count, length);
+			this.gapStart += count;
+			this.gapEnd += count;
+		}
+	}
+
+	/**
+	 * Moves the tokens in the arrays, the offsets are shifted by the delta.
+	 */
+	private void move(int from, int to, int count, int delta) {
+		System.arraycopy(this.kinds, from, this.kinds, to, count);
+		System.arraycopy(this.groupStates, from, this.groupStates, to, count);
+		for (int[] offsets : new int[][] { this.beginOffsets, this.endOffsets, this.groupOffsets,
+				this.groupLimits }) {
+			System.arraycopy(offsets, from, offsets, to, count);
+			for (int i = to; i < to + count; i++) {
+				offsets[i] += delta;
+			}
+		}
+	}
+
+	private void grow() {
+		int capacity = this.kinds.length;
+		int tail = capacity - this.gapEnd;
+		int size = capacity << 1;
+		this.kinds = grow(this.kinds, size, tail);
+		this.beginOffsets = grow(this.beginOffsets, size, tail);
+		this.endOffsets = grow(this.endOffsets, size, tail);
+		this.groupOffsets = grow(this.groupOffsets, size, tail);
+		this.groupLimits = grow(this.groupLimits, size, tail);
+		this.groupStates = grow(this.groupStates, size, tail);
+		this.gapEnd = size - tail;
+	}
+
+	private int[] grow(int[] array, int size, int tail) {
+		int[] result = java.util.Arrays.copyOf(array, size);
+		System.arraycopy(array, array.length - tail, result, size - tail, tail);
+		return result;
+	}
+
+	/**
+	 * A lexer that records the offsets of the tokens it fills.
+	 */
+	private final class Scanner extends Lexer {
+
+		private Scanner(CharStream stream) {
+			super(stream);
+		}
+
+		@Override
+		protected Token jjFillToken() {
+			Token token = super.jjFillToken();
+			IncrementalLexer.this.fill(token);
+			return token;
+		}
+	}
+
+	/**
+	 * A stream that records the farthest offset read. The positions are reported as if the text
+	 * was a single line, so that the lines of the text aren't indexed on every edit.
+	 */
+	private static final class Stream extends ArrayCharStream {
+
+		private final int length;
+		private       int limit;
+
+		private Stream(CharSequence text) {
+			super(text);
+			this.length = text.length();
+		}
+
+		@Override
+		public char readChar() throws java.io.IOException {
+			if (getEndOffset() + 1 >= this.length) {
+				this.limit = this.length;
+			}
+			char c = super.readChar();
+			this.limit = Math.max(this.limit, getEndOffset());
+			return c;
+		}
+
+		@Override
+		public int getBeginLine() {
+			return 1;
+		}
+
+		@Override
+		public int getBeginColumn() {
+			return getBeginOffset() + 1;
+		}
+
+		@Override
+		public int getEndLine() {
+			return 1;
+		}
+
+		@Override
+		public int getEndColumn() {
+			return getEndOffset() + 1;
+		}
+	}
+}
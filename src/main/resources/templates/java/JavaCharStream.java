@@ -1,10 +1,17 @@
 package __JAVA_PACKAGE__;
 
 /**
- * An implementation of interface CharStream, where the stream is assumed to contain only ASCII
+ * An implementation of {@link CharStream}, where the stream is assumed to contain only ASCII
  * characters (with java-like unicode escape processing).
+ * <p>
+ * The characters of the current token are kept in a ring buffer that reuses the space behind the
+ * token and doubles its size when a token doesn't fit. Lines and columns are not recorded per
+ * character: the line and column before a token are advanced over the characters of the previous
+ * token when the next token begins, the positions inside the current token are computed on request.
+ * Each character is still scanned once, only with lazy positions no scan is made. Then only the
+ * line breaks are recorded, and the lines and columns of any offset are resolved from them.
  */
-class JavaCharStream {
+class JavaCharStream extends CharStream {
 
 	private static final int BUFFER_SIZE = 4096;
 
@@ -37,80 +44,68 @@ class JavaCharStream {
 	private int   bufsize;
 	private int   available;
 	private int   tokenBegin;
-	private int[] bufline;
-	private int[] bufcolumn;
+	private int   tokenBeginOffset;
+	private int   offset = -1;
 
 	private int column = 0;
 	private int line   = 1;
 
 	private boolean prevCharIsCR = false;
 	private boolean prevCharIsLF = false;
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+
+	// The offsets at which the lines start.
+	private int[] lineStarts = new int[64];
+	private int   lineCount  = 1;
+	private int   lineBreak  = -1;
+	private int   lineDelta  = 0;
+	private int   columnLine = -1;
+	private int   columnDelta;
+//@else
+
+	// The offset of the last character that is included in the line and column.
+	private int lineOffset = -1;
+
+	// The line and column before the first character of the current token.
+	private int     tokenLine   = 1;
+	private int     tokenColumn = 0;
+	private boolean tokenCR     = false;
+	private boolean tokenLF     = false;
+
+	// The offsets and the additional columns of the unicode escapes.
+	private int[] escapes = new int[8];
+	private int   escapeCount;
+//@fi
+//@fi
 
 	private final Provider inputStream;
 
 	private char[]  nextCharBuf;
 	private char[]  buffer;
+//@if(LAZY_IMAGES)
+	private char[]  text;
+	private String  source;
+//@fi
 	private int     maxNextCharInd  = 0;
 	private int     nextCharInd     = -1;
 	private int     inBuf           = 0;
-	private int     tabSize         = 1;
 	private boolean trackLineColumn = true;
 
-	public void setTabSize(int i) {
-		this.tabSize = i;
-	}
-
-	public int getTabSize(int i) {
-		return this.tabSize;
-	}
-
 	protected void ExpandBuff(boolean wrapAround) {
-		char[] newbuffer = new char[this.bufsize + 2048];
-//@if(KEEP_LINE_COLUMN)
-		int[] newbufline = new int[this.bufsize + 2048];
-		int[] newbufcolumn = new int[this.bufsize + 2048];
-//@fi
-		try {
-			if (wrapAround) {
-				System.arraycopy(this.buffer, this.tokenBegin, newbuffer, 0,
-						this.bufsize - this.tokenBegin);
-				System.arraycopy(this.buffer, 0, newbuffer, this.bufsize - this.tokenBegin,
-						this.bufpos);
-				this.buffer = newbuffer;
-//@if(KEEP_LINE_COLUMN)
-				System.arraycopy(this.bufline, this.tokenBegin, newbufline, 0,
-						this.bufsize - this.tokenBegin);
-				System.arraycopy(this.bufline, 0, newbufline, this.bufsize - this.tokenBegin,
-						this.bufpos);
-				this.bufline = newbufline;
-
-				System.arraycopy(this.bufcolumn, this.tokenBegin, newbufcolumn, 0,
-						this.bufsize - this.tokenBegin);
-				System.arraycopy(this.bufcolumn, 0, newbufcolumn, this.bufsize - this.tokenBegin,
-						this.bufpos);
-				this.bufcolumn = newbufcolumn;
-//@fi
-				this.bufpos += (this.bufsize - this.tokenBegin);
-			} else {
-				System.arraycopy(this.buffer, this.tokenBegin, newbuffer, 0,
-						this.bufsize - this.tokenBegin);
-				this.buffer = newbuffer;
-//@if(KEEP_LINE_COLUMN)
-				System.arraycopy(this.bufline, this.tokenBegin, newbufline, 0,
-						this.bufsize - this.tokenBegin);
-				this.bufline = newbufline;
-
-				System.arraycopy(this.bufcolumn, this.tokenBegin, newbufcolumn, 0,
-						this.bufsize - this.tokenBegin);
-				this.bufcolumn = newbufcolumn;
-//@fi
-				this.bufpos -= this.tokenBegin;
-			}
-		} catch (Exception t) {
-			throw new RuntimeException(t.getMessage());
+		int newsize = this.bufsize << 1;
+		char[] newbuffer = new char[newsize];
+		if (wrapAround) {
+			System.arraycopy(this.buffer, this.tokenBegin, newbuffer, 0, this.bufsize - this.tokenBegin);
+			System.arraycopy(this.buffer, 0, newbuffer, this.bufsize - this.tokenBegin, this.bufpos);
+			this.bufpos += (this.bufsize - this.tokenBegin);
+		} else {
+			System.arraycopy(this.buffer, this.tokenBegin, newbuffer, 0, this.bufsize - this.tokenBegin);
+			this.bufpos -= this.tokenBegin;
 		}
 
-		this.available = (this.bufsize += 2048);
+		this.buffer = newbuffer;
+		this.available = this.bufsize = newsize;
 		this.tokenBegin = 0;
 	}
 
@@ -129,14 +124,10 @@ class JavaCharStream {
 				this.maxNextCharInd += i;
 			}
 		} catch (java.io.IOException e) {
+			--this.offset;
 			if (this.bufpos != 0) {
 				--this.bufpos;
 				backup(0);
-//@if(KEEP_LINE_COLUMN)
-			} else {
-				this.bufline[this.bufpos] = this.line;
-				this.bufcolumn[this.bufpos] = this.column;
-//@fi
 			}
 			throw e;
 		}
@@ -154,8 +145,16 @@ class JavaCharStream {
 	 * @return starting character for token.
 	 */
 	public char BeginToken() throws java.io.IOException {
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+		beginLineColumn();
+//@fi
+//@fi
+		this.tokenBeginOffset = this.offset + 1;
 		if (this.inBuf > 0) {
 			--this.inBuf;
+			++this.offset;
 
 			if (++this.bufpos == this.bufsize) {
 				this.bufpos = 0;
@@ -171,9 +170,14 @@ class JavaCharStream {
 		return readChar();
 	}
 
+	/**
+	 * Makes room for the next character: the space behind the token is reused if at least a quarter
+	 * of the buffer is free, otherwise the buffer is doubled.
+	 */
 	protected void AdjustBuffSize() {
+		int reusable = this.bufsize >> 2;
 		if (this.available == this.bufsize) {
-			if (this.tokenBegin > 2048) {
+			if (this.tokenBegin > reusable) {
 				this.bufpos = 0;
 				this.available = this.tokenBegin;
 			} else {
@@ -181,13 +185,80 @@ class JavaCharStream {
 			}
 		} else if (this.available > this.tokenBegin) {
 			this.available = this.bufsize;
-		} else if ((this.tokenBegin - this.available) < 2048) {
+		} else if ((this.tokenBegin - this.available) <= reusable) {
 			ExpandBuff(true);
 		} else {
 			this.available = this.tokenBegin;
 		}
 	}
 //@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+
+	/**
+	 * Records the line break at the offset, a '\n' that follows a '\r' belongs to the same line
+	 * break. Line breaks that are read again after a backup are ignored.
+	 */
+	private void lineBreak(char c, int offset) {
+		int start = this.lineStarts[this.lineCount - 1];
+		if (start > offset) {
+			return;
+		}
+		if ((c == '\n') && (offset > 0) && (start == offset) && (this.lineBreak == (offset - 1))) {
+			this.lineStarts[this.lineCount - 1] = offset + 1;
+			return;
+		}
+		if (c == '\r') {
+			this.lineBreak = offset;
+		}
+		if (this.lineCount == this.lineStarts.length) {
+			this.lineStarts = java.util.Arrays.copyOf(this.lineStarts, this.lineCount << 1);
+		}
+		this.lineStarts[this.lineCount++] = offset + 1;
+	}
+
+	/**
+	 * Get the line of the character at the offset.
+	 */
+	public int getLine(int offset) {
+		return lineIndex(readOffset(offset)) + 1 + this.lineDelta;
+	}
+
+	/**
+	 * Get the column of the character at the offset, the columns count the characters after the
+	 * processing of the unicode escapes.
+	 */
+	public int getColumn(int offset) {
+		offset = readOffset(offset);
+		int index = lineIndex(offset);
+		int column = (offset - this.lineStarts[index]) + 1;
+		return (index == this.columnLine) ? column + this.columnDelta : column;
+	}
+
+	/**
+	 * Get the offset limited to the characters read. The offsets after the characters, like the
+	 * EOF token, are at the last character.
+	 */
+	private int readOffset(int offset) {
+		return Math.min(offset, this.offset + this.inBuf);
+	}
+
+	/**
+	 * Get the index of the line that contains the offset.
+	 */
+	private int lineIndex(int offset) {
+		int low = 0;
+		int high = this.lineCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.lineStarts[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+//@else
 
 	protected void UpdateLineColumn(char c) {
 		this.column++;
@@ -213,21 +284,120 @@ class JavaCharStream {
 				break;
 			case '\t':
 				this.column--;
-				this.column += (this.tabSize - (this.column % this.tabSize));
+				this.column += (getTabSize(0) - (this.column % getTabSize(0)));
 				break;
 			default:
 				break;
 		}
+	}
+
+	/**
+	 * Moves the line and column to the character at the offset. The characters are scanned from
+	 * the start of the current token, offsets before the token can't be resolved.
+	 */
+	private void moveLineColumn(int offset) {
+		offset = Math.min(offset, this.offset + this.inBuf);
+		if (offset < this.lineOffset) {
+			this.line = this.tokenLine;
+			this.column = this.tokenColumn;
+			this.prevCharIsCR = this.tokenCR;
+			this.prevCharIsLF = this.tokenLF;
+			this.lineOffset = this.tokenBeginOffset - 1;
+		}
+		if (offset <= this.lineOffset) {
+			return;
+		}
 
-		this.bufline[this.bufpos] = this.line;
-		this.bufcolumn[this.bufpos] = this.column;
+		int pos = this.bufpos - (this.offset - (this.lineOffset + 1));
+		if (pos < 0) {
+			pos += this.bufsize;
+		} else if (pos >= this.bufsize) {
+			pos -= this.bufsize;
+		}
+		int escape = 0;
+		while ((escape < this.escapeCount) && (this.escapes[escape << 1] < this.lineOffset)) {
+			escape++;
+		}
+		for (int i = this.lineOffset + 1; i <= offset; i++) {
+			if ((escape < this.escapeCount) && (this.escapes[escape << 1] == i - 1)) {
+				this.column += this.escapes[(escape++ << 1) + 1];
+			}
+			if ((escape < this.escapeCount) && (this.escapes[escape << 1] == i)) {
+				UpdateLineColumn('\\');
+			} else {
+				UpdateLineColumn(this.buffer[pos]);
+			}
+			if (++pos == this.bufsize) {
+				pos = 0;
+			}
+		}
+		this.lineOffset = offset;
+	}
+
+	/**
+	 * Get the column of the character at the offset. The empty token at the end of the input gets
+	 * the column that follows the characters read.
+	 */
+	private int columnAt(int offset) {
+		moveLineColumn(offset);
+		return (this.lineOffset < this.tokenBeginOffset)
+				? this.column + escapeColumns(this.lineOffset)
+				: this.column;
+	}
+
+	/**
+	 * Remembers the line and column before the next token, before the characters of the previous
+	 * token are released. The characters that haven't been scanned for a position are scanned now,
+	 * so this is called for every token.
+	 */
+	private void beginLineColumn() {
+		moveLineColumn(this.offset);
+		this.tokenLine = this.line;
+		this.tokenColumn = this.column;
+		this.tokenCR = this.prevCharIsCR;
+		this.tokenLF = this.prevCharIsLF;
+
+		int escape = 0;
+		while ((escape < this.escapeCount) && (this.escapes[escape << 1] < this.offset)) {
+			escape++;
+		}
+		if (escape > 0) {
+			this.escapeCount -= escape;
+			System.arraycopy(this.escapes, escape << 1, this.escapes, 0, this.escapeCount << 1);
+		}
+	}
+
+	/**
+	 * Records a unicode escape at the current offset, the additional columns are added to the
+	 * characters after the escape.
+	 */
+	private void escapeLineColumn(int columns) {
+		if ((this.escapeCount << 1) == this.escapes.length) {
+			this.escapes = java.util.Arrays.copyOf(this.escapes, this.escapes.length << 1);
+		}
+		this.escapes[this.escapeCount << 1] = this.offset;
+		this.escapes[(this.escapeCount++ << 1) + 1] = columns;
+	}
+
+	/**
+	 * Get the additional columns of the unicode escape at the offset.
+	 */
+	private int escapeColumns(int offset) {
+		for (int i = 0; i < this.escapeCount; i++) {
+			if (this.escapes[i << 1] == offset) {
+				return this.escapes[(i << 1) + 1];
+			}
+		}
+		return 0;
 	}
+//@fi
 //@fi
 
 	/**
 	 * Read a character.
 	 */
 	public char readChar() throws java.io.IOException {
+		++this.offset;
 		if (this.inBuf > 0) {
 			--this.inBuf;
 
@@ -244,24 +414,36 @@ class JavaCharStream {
 			AdjustBuffSize();
 		}
 
-		if ((this.buffer[this.bufpos] = c = ReadByte()) == '\\') {
-//@if(KEEP_LINE_COLUMN)
-			UpdateLineColumn(c);
+		this.buffer[this.bufpos] = c = ReadByte();
+//@if(LAZY_IMAGES)
+		retain(c);
 //@fi
-
+		if (c == '\\') {
 			int backSlashCnt = 1;
 
 			for (; ; ) // Read all the backslashes
 			{
+				++this.offset;
 				if (++this.bufpos == this.available) {
 					AdjustBuffSize();
 				}
 
 				try {
-					if ((this.buffer[this.bufpos] = c = ReadByte()) != '\\') {
-						UpdateLineColumn(c);
+					this.buffer[this.bufpos] = c = ReadByte();
+//@if(LAZY_IMAGES)
+					retain(c);
+//@fi
+					if (c != '\\') {
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+						if ((c == '\n') || (c == '\r')) {
+							lineBreak(c, this.offset);
+						}
+//@fi
+//@fi
 						// found a non-backslash char.
 						if ((c == 'u') && ((backSlashCnt & 1) == 1)) {
+							--this.offset;
 							if (--this.bufpos < 0) {
 								this.bufpos = this.bufsize - 1;
 							}
@@ -281,20 +463,17 @@ class JavaCharStream {
 					return '\\';
 				}
 
-//@if(KEEP_LINE_COLUMN)
-				UpdateLineColumn(c);
-//@fi
 				backSlashCnt++;
 			}
 
 			// Here, we have seen an odd number of backslash's followed by a 'u'
-			try {
-				while ((c = ReadByte()) == 'u') {
 //@if(KEEP_LINE_COLUMN)
-					++this.column;
-//@else
-					;
+			int escapeOffset = this.offset;
 //@fi
+			int columns = 5;
+			try {
+				while ((c = ReadByte()) == 'u') {
+					++columns;
 				}
 
 				this.buffer[this.bufpos] =
@@ -302,17 +481,31 @@ class JavaCharStream {
 								JavaCharStream.hexval(ReadByte()) << 8)
 								| (JavaCharStream.hexval(ReadByte()) << 4) | JavaCharStream.hexval(
 								ReadByte()));
-
+//@if(LAZY_IMAGES)
+				retain(c);
+//@fi
 //@if(KEEP_LINE_COLUMN)
-				this.column += 4;
+//@if(LAZY_POSITIONS)
+//@else
+				escapeLineColumn(columns);
+//@fi
 //@fi
 			} catch (java.io.IOException e) {
 //@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+				int line = getLine(escapeOffset);
+				int column = getColumn(escapeOffset) + (columns - 4);
+//@else
+				moveLineColumn(escapeOffset - 1);
+				boolean newLine = this.prevCharIsCR || this.prevCharIsLF;
+				int line = newLine ? this.line + 1 : this.line;
+				int column = (newLine ? 1 : this.column + escapeColumns(escapeOffset - 1) + 1)
+						+ (columns - 4);
+//@fi
 				throw new RuntimeException(
-						"Invalid escape character at line " + this.line + " column " + this.column
-								+ ".");
+						"Invalid escape character at line " + line + " column " + column + ".");
 //@else
-				throw new RuntimeException(\"Invalid escape character in input\");
+				throw new RuntimeException("Invalid escape character in input");
 //@fi
 			}
 
@@ -322,38 +515,15 @@ class JavaCharStream {
 				backup(backSlashCnt - 1);
 				return '\\';
 			}
-		} else {
-//@if(KEEP_LINE_COLUMN)
-			UpdateLineColumn(c);
-//@fi
-			return c;
 		}
-	}
-
-	/**
-	 * @see #getEndColumn
-	 * @deprecated
-	 */
-	@Deprecated
-	public int getColumn() {
 //@if(KEEP_LINE_COLUMN)
-		return this.bufcolumn[this.bufpos];
-//@else
-		return -1;
+//@if(LAZY_POSITIONS)
+		if ((c == '\n') || (c == '\r')) {
+			lineBreak(c, this.offset);
+		}
 //@fi
-	}
-
-	/**
-	 * @see #getEndLine
-	 * @deprecated
-	 */
-	@Deprecated
-	public int getLine() {
-//@if(KEEP_LINE_COLUMN)
-		return this.bufline[this.bufpos];
-//@else
-		return -1;
 //@fi
+		return c;
 	}
 
 	/**
@@ -361,7 +531,11 @@ class JavaCharStream {
 	 */
 	public int getEndColumn() {
 //@if(KEEP_LINE_COLUMN)
-		return this.bufcolumn[this.bufpos];
+//@if(LAZY_POSITIONS)
+		return getColumn(this.offset);
+//@else
+		return columnAt(this.offset);
+//@fi
 //@else
 		return -1;
 //@fi
@@ -372,7 +546,12 @@ class JavaCharStream {
 	 */
 	public int getEndLine() {
 //@if(KEEP_LINE_COLUMN)
-		return this.bufline[this.bufpos];
+//@if(LAZY_POSITIONS)
+		return getLine(this.offset);
+//@else
+		moveLineColumn(this.offset);
+		return this.line;
+//@fi
 //@else
 		return -1;
 //@fi
@@ -383,7 +562,11 @@ class JavaCharStream {
 	 */
 	public int getBeginColumn() {
 //@if(KEEP_LINE_COLUMN)
-		return this.bufcolumn[this.tokenBegin];
+//@if(LAZY_POSITIONS)
+		return getColumn(this.tokenBeginOffset);
+//@else
+		return columnAt(this.tokenBeginOffset);
+//@fi
 //@else
 		return -1;
 //@fi
@@ -394,18 +577,38 @@ class JavaCharStream {
 	 */
 	public int getBeginLine() {
 //@if(KEEP_LINE_COLUMN)
-		return this.bufline[this.tokenBegin];
+//@if(LAZY_POSITIONS)
+		return getLine(this.tokenBeginOffset);
+//@else
+		moveLineColumn(this.tokenBeginOffset);
+		return this.line;
+//@fi
 //@else
 		return -1;
 //@fi
 	}
 
+	/**
+	 * @return offset of the first character of the token
+	 */
+	public int getBeginOffset() {
+		return this.tokenBeginOffset;
+	}
+
+	/**
+	 * @return offset of the last character read
+	 */
+	public int getEndOffset() {
+		return this.offset;
+	}
+
 	/**
 	 * Retreat.
 	 */
 	public void backup(int amount) {
 
 		this.inBuf += amount;
+		this.offset -= amount;
 		if ((this.bufpos -= amount) < 0) {
 			this.bufpos += this.bufsize;
 		}
@@ -422,13 +625,62 @@ class JavaCharStream {
 //@fi
 		this.available = this.bufsize = JavaCharStream.BUFFER_SIZE;
 		this.buffer = new char[JavaCharStream.BUFFER_SIZE];
-//@if(KEEP_LINE_COLUMN)
-		this.bufline = new int[JavaCharStream.BUFFER_SIZE];
-		this.bufcolumn = new int[JavaCharStream.BUFFER_SIZE];
-//@fi
 		this.nextCharBuf = new char[JavaCharStream.BUFFER_SIZE];
+//@if(LAZY_IMAGES)
+		if (dstream instanceof StringProvider) {
+			this.source = ((StringProvider) dstream).getString();
+		} else {
+			this.text = new char[JavaCharStream.BUFFER_SIZE];
+		}
+//@fi
+	}
+//@if(LAZY_IMAGES)
+
+	/**
+	 * Retains the character at the current offset, the retained input is kept until the stream is
+	 * garbage collected, so that token images can be created on demand. The characters of a string
+	 * are not copied, they are read from the string until a unicode escape moves the offsets.
+	 */
+	private void retain(char c) {
+		if (this.source != null) {
+			if (this.source.charAt(this.offset) == c) {
+				return;
+			}
+			this.text = new char[Math.max(this.offset + 1, JavaCharStream.BUFFER_SIZE)];
+			this.source.getChars(0, this.offset, this.text, 0);
+			this.source = null;
+		}
+		if (this.offset >= this.text.length) {
+			this.text = java.util.Arrays.copyOf(this.text, Math.max(this.offset + 1, this.text.length << 1));
+		}
+		this.text[this.offset] = c;
+	}
+
+	/**
+	 * @return the retained character at the offset
+	 */
+	public char charAt(int offset) {
+		return (this.source == null) ? this.text[offset] : this.source.charAt(offset);
 	}
 
+	/**
+	 * @return the retained characters from the begin offset to the end offset (inclusive)
+	 */
+	public String GetImage(int beginOffset, int endOffset) {
+		if (this.source != null) {
+			return this.source.substring(beginOffset, endOffset + 1);
+		}
+		return new String(this.text, beginOffset, (endOffset - beginOffset) + 1);
+	}
+
+	/**
+	 * @return a view of the current token image, without copying the characters
+	 */
+	public CharSequence GetImageView() {
+		return new TokenImage(this, this.tokenBeginOffset, this.offset + 1);
+	}
+//@fi
+
 	/**
 	 * @return token image as String
 	 */
@@ -464,10 +716,6 @@ class JavaCharStream {
 	public void Done() {
 		this.nextCharBuf = null;
 		this.buffer = null;
-//@if(KEEP_LINE_COLUMN)
-		this.bufline = null;
-		this.bufcolumn = null;
-//@fi
 	}
 //@if(KEEP_LINE_COLUMN)
 
@@ -475,43 +723,20 @@ class JavaCharStream {
 	 * Method to adjust line and column numbers for the start of a token.
 	 */
 	public void adjustBeginLineColumn(int newLine, int newCol) {
-		int start = this.tokenBegin;
-		int len;
-
-		if (this.bufpos >= this.tokenBegin) {
-			len = (this.bufpos - this.tokenBegin) + this.inBuf + 1;
-		} else {
-			len = (this.bufsize - this.tokenBegin) + this.bufpos + 1 + this.inBuf;
-		}
-
-		int i = 0, j = 0, k = 0;
-		int nextColDiff = 0, columnDiff = 0;
-
-		while ((i < len) && (this.bufline[j = start % this.bufsize] == this.bufline[k =
-				++start % this.bufsize])) {
-			this.bufline[j] = newLine;
-			nextColDiff = (columnDiff + this.bufcolumn[k]) - this.bufcolumn[j];
-			this.bufcolumn[j] = newCol + columnDiff;
-			columnDiff = nextColDiff;
-			i++;
-		}
-
-		if (i < len) {
-			this.bufline[j] = newLine++;
-			this.bufcolumn[j] = newCol + columnDiff;
-
-			while (i++ < len) {
-				if (this.bufline[j = start % this.bufsize] != this.bufline[++start
-						% this.bufsize]) {
-					this.bufline[j] = newLine++;
-				} else {
-					this.bufline[j] = newLine;
-				}
-			}
-		}
-
-		this.line = this.bufline[j];
-		this.column = this.bufcolumn[j];
+//@if(LAZY_POSITIONS)
+		int index = lineIndex(this.tokenBeginOffset);
+		this.lineDelta = newLine - (index + 1);
+		this.columnLine = index;
+		this.columnDelta = 0;
+		this.columnDelta = newCol - getColumn(this.tokenBeginOffset);
+//@else
+		this.tokenLine = newLine;
+		this.tokenColumn = newCol - 1;
+		this.tokenCR = false;
+		this.tokenLF = false;
+		this.lineOffset = Integer.MAX_VALUE;
+		moveLineColumn(this.offset);
+//@fi
 	}
 
 	boolean getTrackLineColumn() {
@@ -10,14 +10,14 @@ class Lexer {
 //@fi
 
 //@foreach(LOHI_BYTES)
-	static long[] jjbitVec__LOHI_BYTES_INDEX__ = {__LOHI_BYTES_VALUE__};
+	static final long[] jjbitVec__LOHI_BYTES_INDEX__ = {__LOHI_BYTES_VALUE__};
 //@end
 	//@invoke(DUMP_NFA_AND_DFA)
 
 	/**
 	 * Token literal values.
 	 */
-	public static String[] jjstrLiteralImages = {
+	static final String[] jjstrLiteralImages = {
 		//@invoke(DUMP_LITERAL_IMAGES)
 	};
 
@@ -42,8 +42,12 @@ class Lexer {
 			beginColumn = endColumn = input_stream.getEndColumn();
 //@fi
 		} else {
+//@if(LAZY_IMAGES)
+			curTokenImage = jjstrLiteralImages[jjmatchedKind];
+//@else
 			String im = jjstrLiteralImages[jjmatchedKind];
 			curTokenImage = (im == null) ? input_stream.GetImage() : im;
+//@fi
 //@if(KEEP_LINE_COOL)
 			beginLine = input_stream.getBeginLine();
 			beginColumn = input_stream.getBeginColumn();
@@ -51,9 +55,13 @@ class Lexer {
 			endColumn = input_stream.getEndColumn();
 //@fi
 		}
+//@else
+//@if(LAZY_IMAGES)
+		curTokenImage = jjstrLiteralImages[jjmatchedKind];
 //@else
 		String im = jjstrLiteralImages[jjmatchedKind];
 		curTokenImage = (im == null) ? input_stream.GetImage() : im;
+//@fi
 //@if(KEEP_LINE_COOL)
 		beginLine = input_stream.getBeginLine();
 		beginColumn = input_stream.getBeginColumn();
@@ -62,6 +70,17 @@ class Lexer {
 //@fi
 //@fi
 		t = new Token(jjmatchedKind, curTokenImage);
+//@if(LAZY_IMAGES)
+		t.beginOffset = input_stream.getBeginOffset();
+		t.endOffset = input_stream.getEndOffset();
+		t.input = input_stream;
+//@else
+//@if(LAZY_POSITIONS)
+		t.beginOffset = input_stream.getBeginOffset();
+		t.endOffset = input_stream.getEndOffset();
+		t.input = input_stream;
+//@fi
+//@fi
 //@if(KEEP_LINE_COOL)
 		t.beginLine = beginLine;
 		t.endLine = endLine;
@@ -70,6 +89,68 @@ class Lexer {
 //@fi
 		return t;
 	}
+//@if(TOKEN_BUFFER)
+
+	protected void jjFillBuffer(TokenBuffer buffer, Token specialToken) {
+		final String curTokenImage;
+		final int beginOffset;
+		final int endOffset;
+//@if(KEEP_LINE_COOL)
+		final int beginLine;
+		final int endLine;
+		final int beginColumn;
+		final int endColumn;
+//@fi
+//@if(HAS_EMPTY_MATCH)
+		if (jjmatchedPos < 0) {
+			curTokenImage = (image == null) ? "" : image.toString();
+			endOffset = input_stream.getEndOffset();
+			beginOffset = endOffset + 1;
+//@if(KEEP_LINE_COOL)
+			beginLine = endLine = input_stream.getEndLine();
+			beginColumn = endColumn = input_stream.getEndColumn();
+//@fi
+		} else {
+//@if(LAZY_IMAGES)
+			curTokenImage = null;
+//@else
+			curTokenImage = (jjstrLiteralImages[jjmatchedKind] == null && !(input_stream instanceof ArrayCharStream))
+					? input_stream.GetImage() : null;
+//@fi
+			beginOffset = input_stream.getBeginOffset();
+			endOffset = input_stream.getEndOffset();
+//@if(KEEP_LINE_COOL)
+			beginLine = input_stream.getBeginLine();
+			beginColumn = input_stream.getBeginColumn();
+			endLine = input_stream.getEndLine();
+			endColumn = input_stream.getEndColumn();
+//@fi
+		}
+//@else
+//@if(LAZY_IMAGES)
+		curTokenImage = null;
+//@else
+		// An input that is held in memory provides the image from the offsets on demand
+		curTokenImage = (jjstrLiteralImages[jjmatchedKind] == null && !(input_stream instanceof ArrayCharStream))
+				? input_stream.GetImage() : null;
+//@fi
+		beginOffset = input_stream.getBeginOffset();
+		endOffset = input_stream.getEndOffset();
+//@if(KEEP_LINE_COOL)
+		beginLine = input_stream.getBeginLine();
+		beginColumn = input_stream.getBeginColumn();
+		endLine = input_stream.getEndLine();
+		endColumn = input_stream.getEndColumn();
+//@fi
+//@fi
+		buffer.input = input_stream;
+		buffer.add(jjmatchedKind, curTokenImage, beginOffset, endOffset,
+//@if(KEEP_LINE_COOL)
+				beginLine, beginColumn, endLine, endColumn,
+//@fi
+				specialToken);
+	}
+//@fi
 
 	//@invoke(DUMP_STATE_SETS)
 
@@ -117,10 +198,59 @@ class Lexer {
 			//@invoke(DUMP_GET_NEXT_TOKEN)
 		}
 	}
+//@if(TOKEN_BUFFER)
+
+	/**
+	 * Appends the next Token to the buffer, without creating a {@link Token}.
+	 *
+	 * @return the kind of the token
+	 */
+	public int getNextToken(TokenBuffer buffer) {
+//@if(HAS_SPECIAL)
+		Token specialToken = null;
+//@fi
+		Token matchedToken;
+		int curPos = 0;
+
+		EOFLoop:
+		for (; ; ) {
+			try {
+				curChar = input_stream.BeginToken();
+			} catch (Exception e) {
+				jjmatchedKind = 0;
+				jjmatchedPos = -1;
+				//@invoke(DUMP_GET_NEXT_TOKEN_BUFFER)
+		}
+	}
+//@fi
+//@if(NEXT_KIND)
+
+	/**
+	 * Get the kind of the next token, for the Recognizer and the pre-scan of the ParallelParser. A
+	 * {@link Token} is only created if a lexical action needs it.
+	 */
+	public int getNextKind() {
+//@if(HAS_SPECIAL)
+		Token specialToken = null;
+//@fi
+		Token matchedToken;
+		int curPos = 0;
+
+		EOFLoop:
+		for (; ; ) {
+			try {
+				curChar = input_stream.BeginToken();
+			} catch (Exception e) {
+				jjmatchedKind = 0;
+				jjmatchedPos = -1;
+				//@invoke(DUMP_GET_NEXT_KIND)
+		}
+	}
+//@fi
 
 //@if(DEBUG_TOKEN_MANAGER)
-	protected static int[][][] statesForState = __STATES_FOR_STATE__;
-	protected static int[][] kindForState = __KIND_FOR_STATE__;
+	protected static final int[][][] statesForState = __STATES_FOR_STATE__;
+	protected static final int[][] kindForState = __KIND_FOR_STATE__;
 //@fi
 //@if(HAS_LOOP)
 	int[] jjemptyLineNo = new int[__MAX_LEX_STATES__];
@@ -170,6 +300,60 @@ class Lexer {
 		jjCheckNAdd(state2);
 	}
 
+//@if(TABLE_LEXER)
+	/**
+	 * Unpacks a move table, each value is stored in two characters.
+	 */
+	private static int[] jjUnpack(String... parts) {
+		String packed = String.join("", parts);
+		int[] table = new int[packed.length() / 2];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (packed.charAt(2 * i) << 16) | packed.charAt((2 * i) + 1);
+		}
+		return table;
+	}
+
+	/**
+	 * Moves from the state of the DFA on the current character, using the move table of the lexical
+	 * state. The kind of the next state is matched at the position.
+	 *
+	 * @return the next state or -1 if there are no further moves
+	 */
+	private int jjMoveDfa(int[] table, int state, int curPos) {
+		if (state < 0) {
+			return -1;
+		}
+		int c = curChar;
+		int cls;
+		if (c < 128) {
+			cls = table[table[1] + c];
+		} else {
+			int ranges = table[2];
+			int low = 0;
+			int high = table[ranges] - 1;
+			while (low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if (table[ranges + 1 + mid] <= c) {
+					low = mid;
+				} else {
+					high = mid - 1;
+				}
+			}
+			cls = table[ranges + 1 + table[ranges] + low];
+		}
+		int next = table[table[3] + (state * table[0]) + cls];
+		if (next < 0) {
+			return -1;
+		}
+		int kind = table[table[5] + next];
+		if (kind != 0x7fffffff) {
+			jjmatchedKind = kind;
+			jjmatchedPos = curPos;
+		}
+		return (table[table[6] + next] == 0) ? -1 : next;
+	}
+
+//@fi
 //@if(CHECK_NADD_STATES_DUAL_NEEDED)
 	private void jjCheckNAddStates(int start, int end) {
 		do {
@@ -189,14 +373,14 @@ class Lexer {
 	/**
 	 * Constructor.
 	 */
-	public Lexer(JavaCharStream stream) {
+	public Lexer(CharStream stream) {
 		input_stream = stream;
 	}
 
 	/**
 	 * Constructor.
 	 */
-	public Lexer(JavaCharStream stream, int lexState) {
+	public Lexer(CharStream stream, int lexState) {
 		ReInit(stream);
 		SwitchTo(lexState);
 	}
@@ -204,12 +388,15 @@ class Lexer {
 	/**
 	 * Reinitialise parser.
 	 */
-	public void ReInit(JavaCharStream stream) {
+	public void ReInit(CharStream stream) {
 		jjmatchedPos = 0;
 		jjnewStateCnt = 0;
 		curLexState = defaultLexState;
 		input_stream = stream;
 		ReInitRounds();
+//@if(HAS_LOOP)
+		java.util.Arrays.fill(jjbeenHere, false);
+//@fi
 	}
 
 	private void ReInitRounds() {
@@ -223,7 +410,7 @@ class Lexer {
 	/**
 	 * Reinitialise parser.
 	 */
-	public void ReInit(JavaCharStream stream, int lexState) {
+	public void ReInit(CharStream stream, int lexState) {
 		ReInit(stream);
 		SwitchTo(lexState);
 	}
@@ -243,18 +430,18 @@ class Lexer {
 	/**
 	 * Lexer state names.
 	 */
-	public static String[] lexStateNames = {
+	static final String[] lexStateNames = {
 //@foreach(STATE_NAMES)
 			"__STATE_NAMES_VALUE__",
 //@end
 	};
 	//@invoke(DUMP_STATIC_VAR_DECLARATIONS)
 
-	private       JavaCharStream input_stream;
-	private final int[]          jjrounds   = new int[__STATE_SET_SIZE__];
-	private final int[]          jjstateSet = new int[__STATE_SET_SIZE_2__];
-	private final StringBuilder  jjimage    = new StringBuilder();
-	private       StringBuilder  image      = jjimage;
-	private       int            jjimageLen;
-	protected     int            curChar;
+	private       CharStream    input_stream;
+	private final int[]         jjrounds   = new int[__STATE_SET_SIZE__];
+	private final int[]         jjstateSet = new int[__STATE_SET_SIZE_2__];
+	private final StringBuilder jjimage    = new StringBuilder();
+	private       StringBuilder image      = jjimage;
+	private       int           jjimageLen;
+	protected     int           curChar;
 }
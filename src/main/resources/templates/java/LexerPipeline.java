@@ -0,0 +1,251 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * A lexer that runs ahead of the parser on its own thread. The tokens of the source lexer are
+ * published into a bounded single-producer/single-consumer ring, that the parser consumes through
+ * {@link #getNextToken()}. A thread that finds the ring empty or full spins briefly, before it
+ * parks until the other thread has made progress.
+ * <p>
+ * The pipeline is passed to the parser in place of the source lexer and closed, when the parser
+ * is done:
+ * <pre>
+ * try (LexerPipeline lexer = new LexerPipeline(stream)) {
+ *     new Parser(lexer).Input();
+ * }
+ * </pre>
+ * The lexical state of the source lexer can't be switched from the parser, the grammar is checked
+ * for it when the parser is generated. An exception of the source lexer is thrown, when the parser
+ * reaches the token that has failed. The thread ends after the EOF token, further tokens are read
+ * from the source lexer directly. A pipeline that is dropped without being closed stops its thread,
+ * once it has been garbage collected.
+ */
+public class LexerPipeline extends Lexer implements AutoCloseable {
+
+	private static final int CAPACITY   = 1024;
+	// The tokens that are published or taken, before a parked thread is woken up. A parked thread
+	// wakes up by itself after PARK_NANOS, so that a few pending tokens aren't delayed for long.
+	private static final int BATCH      = 256;
+	private static final int PARK_NANOS = 50_000;
+	// Spinning only pays off, if the other thread runs on another processor.
+	private static final int SPINS      = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+	private static final java.lang.ref.Cleaner CLEANER = java.lang.ref.Cleaner.create();
+
+	private final Channel                         channel;
+	private final java.lang.ref.Cleaner.Cleanable cleanable;
+
+	// The tokens the consumer can take without waiting.
+	private long available;
+
+	/**
+	 * Constructs a pipeline that lexes the stream on a daemon platform thread.
+	 */
+	public LexerPipeline(Provider stream) {
+		this(new Lexer(new JavaCharStream(stream)));
+	}
+
+	/**
+	 * Constructs a pipeline that lexes the stream on a thread of the factory, e.g. a virtual thread.
+	 */
+	public LexerPipeline(Provider stream, java.util.concurrent.ThreadFactory factory) {
+		this(new Lexer(new JavaCharStream(stream)), factory);
+	}
+
+	/**
+	 * Constructs a pipeline that runs the source lexer on a daemon platform thread.
+	 */
+	public LexerPipeline(Lexer source) {
+		this(source, runnable -> {
+			Thread thread = new Thread(runnable, "LexerPipeline");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Constructs a pipeline that runs the source lexer on a thread of the factory, e.g. a virtual
+	 * thread.
+	 */
+	public LexerPipeline(Lexer source, java.util.concurrent.ThreadFactory factory) {
+		super(null);
+		this.channel = new Channel(source, factory);
+		// The thread and the cleaning action only refer to the channel, never to the pipeline
+		this.cleanable = LexerPipeline.CLEANER.register(this, this.channel::close);
+	}
+
+	/**
+	 * Get the next Token, waits until the source lexer has published it.
+	 */
+	@Override
+	public Token getNextToken() {
+		Channel channel = this.channel;
+		long index = channel.head;
+		if (index == this.available) {
+			this.available = channel.awaitTokens(index);
+			if (this.available == index) {
+				Throwable e = channel.failure;
+				if (e instanceof RuntimeException)
+					throw (RuntimeException) e;
+				if (e instanceof Error)
+					throw (Error) e;
+				return channel.source.getNextToken();
+			}
+		}
+
+		int slot = (int) index & (LexerPipeline.CAPACITY - 1);
+		Token token = channel.ring[slot];
+		channel.ring[slot] = null;
+		channel.head = index + 1;
+		Thread waiting = channel.producer;
+		if ((waiting != null) && ((index + 1) % LexerPipeline.BATCH == 0))
+			java.util.concurrent.locks.LockSupport.unpark(waiting);
+		return token;
+	}
+//@if(NEXT_KIND)
+
+	/**
+	 * Get the kind of the next token, the token has been created by the source lexer anyway.
+	 */
+	@Override
+	public int getNextKind() {
+		return getNextToken().kind;
+	}
+//@fi
+
+	/**
+	 * The lexical state can't be switched while the source lexer runs ahead.
+	 */
+	@Override
+	public void SwitchTo(int lexState) {
+		throw new UnsupportedOperationException("The lexical state can't be switched in a pipeline");
+	}
+
+	/**
+	 * A pipeline can't be reinitialised, a new pipeline is created for a new stream.
+	 */
+	@Override
+	public void ReInit(CharStream stream) {
+		throw new UnsupportedOperationException("A pipeline can't be reinitialised");
+	}
+
+	/**
+	 * Stops the thread of the source lexer, after it has lexed the current token.
+	 */
+	@Override
+	public void close() {
+		this.cleanable.clean();
+	}
+
+	/**
+	 * The ring between the thread of the source lexer and the consumer of the pipeline.
+	 */
+	private static final class Channel {
+
+		private final Lexer   source;
+		private final Token[] ring;
+		private final Thread  thread;
+
+		// The number of tokens published by the producer and taken by the consumer.
+		private volatile long      tail;
+		private volatile long      head;
+		// The consumer or the producer, while it is parked.
+		private volatile Thread    consumer;
+		private volatile Thread    producer;
+		private volatile boolean   finished;
+		private volatile boolean   closed;
+		private volatile Throwable failure;
+
+		// The tokens the producer can publish without waiting.
+		private long capacity;
+
+		private Channel(Lexer source, java.util.concurrent.ThreadFactory factory) {
+			this.source = source;
+			this.ring = new Token[LexerPipeline.CAPACITY];
+			this.capacity = LexerPipeline.CAPACITY;
+			this.thread = factory.newThread(this::produce);
+			this.thread.start();
+		}
+
+		/**
+		 * Stops the thread, when the pipeline is closed or has been garbage collected.
+		 */
+		private void close() {
+			this.closed = true;
+			java.util.concurrent.locks.LockSupport.unpark(this.thread);
+		}
+
+		/**
+		 * Lexes the tokens of the source lexer until the EOF token, runs on the thread of the
+		 * pipeline.
+		 */
+		private void produce() {
+			try {
+				long index = 0;
+				Token token;
+				do {
+					token = this.source.getNextToken();
+					if ((index == this.capacity) && !awaitSpace(index))
+						return;
+					this.ring[(int) index & (LexerPipeline.CAPACITY - 1)] = token;
+					this.tail = ++index;
+					Thread waiting = this.consumer;
+					if ((waiting != null) && (index % LexerPipeline.BATCH == 0))
+						java.util.concurrent.locks.LockSupport.unpark(waiting);
+				} while (token.kind != ParserConstants.EOF && !this.closed);
+			} catch (Throwable e) {
+				this.failure = e;
+			} finally {
+				this.finished = true;
+				Thread waiting = this.consumer;
+				if (waiting != null)
+					java.util.concurrent.locks.LockSupport.unpark(waiting);
+			}
+		}
+
+		/**
+		 * Waits until the token at the index has been published, returns the number of published
+		 * tokens. The index is returned, if the thread has finished.
+		 */
+		private long awaitTokens(long index) {
+			for (int spins = 0; ; spins++) {
+				long published = this.tail;
+				if (published > index)
+					return published;
+				if (this.finished)
+					return this.tail;
+				if (spins < LexerPipeline.SPINS) {
+					Thread.onSpinWait();
+					continue;
+				}
+				this.consumer = Thread.currentThread();
+				if ((this.tail == index) && !this.finished)
+					java.util.concurrent.locks.LockSupport.parkNanos(this, LexerPipeline.PARK_NANOS);
+				this.consumer = null;
+			}
+		}
+
+		/**
+		 * Waits until the slot for the token at the index has been taken, returns <code>false</code>
+		 * if the pipeline has been closed.
+		 */
+		private boolean awaitSpace(long index) {
+			for (int spins = 0; ; spins++) {
+				long taken = this.head;
+				if (index - taken < LexerPipeline.CAPACITY) {
+					this.capacity = taken + LexerPipeline.CAPACITY;
+					return true;
+				}
+				if (this.closed)
+					return false;
+				if (spins < LexerPipeline.SPINS) {
+					Thread.onSpinWait();
+					continue;
+				}
+				this.producer = Thread.currentThread();
+				if ((index - this.head >= LexerPipeline.CAPACITY) && !this.closed)
+					java.util.concurrent.locks.LockSupport.parkNanos(this, LexerPipeline.PARK_NANOS);
+				this.producer = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * The statistics of a syntactic lookahead, identified by its location in the grammar. A lookahead
+ * that scans many more tokens than it reaches backtracks a lot: the production is worth
+ * rewriting, e.g. by factoring out the common prefix of the alternatives.
+ * <p>
+ * A lookahead that is decided by the kinds of the next tokens doesn't backtrack, it reports the
+ * tokens it has tested as scanned.
+ */
+public final class LookaheadStats {
+
+	/**
+	 * Orders the statistics by the location of the lookahead.
+	 */
+	public static final java.util.Comparator<LookaheadStats> BY_LOCATION =
+			java.util.Comparator.comparingInt(LookaheadStats::getLine).thenComparingInt(LookaheadStats::getColumn);
+
+	/**
+	 * Orders the statistics by the tokens scanned, the most expensive lookahead first.
+	 */
+	public static final java.util.Comparator<LookaheadStats> BY_SCANNED_TOKENS =
+			java.util.Comparator.comparingLong(LookaheadStats::getScannedTokens).reversed();
+
+	private final String production;
+	private final int    line;
+	private final int    column;
+	private final long   invocations;
+	private final long   scannedTokens;
+	private final int    maxDepth;
+
+	/**
+	 * Constructs the statistics of a lookahead.
+	 */
+	LookaheadStats(String production, int line, int column, long invocations, long scannedTokens, int maxDepth) {
+		this.production = production;
+		this.line = line;
+		this.column = column;
+		this.invocations = invocations;
+		this.scannedTokens = scannedTokens;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Get the name of the production that contains the lookahead.
+	 */
+	public String getProduction() {
+		return this.production;
+	}
+
+	/**
+	 * Get the line of the lookahead in the grammar.
+	 */
+	public int getLine() {
+		return this.line;
+	}
+
+	/**
+	 * Get the column of the lookahead in the grammar.
+	 */
+	public int getColumn() {
+		return this.column;
+	}
+
+	/**
+	 * Get the number of times the lookahead has been evaluated.
+	 */
+	public long getInvocations() {
+		return this.invocations;
+	}
+
+	/**
+	 * Get the number of tokens scanned by all evaluations, a token that is scanned again after
+	 * backtracking is counted again.
+	 */
+	public long getScannedTokens() {
+		return this.scannedTokens;
+	}
+
+	/**
+	 * Get the average number of tokens scanned by an evaluation.
+	 */
+	public double getAverageScannedTokens() {
+		return (this.invocations == 0) ? 0 : (double) this.scannedTokens / this.invocations;
+	}
+
+	/**
+	 * Get the deepest token an evaluation has reached, relative to the current token.
+	 */
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	@Override
+	public String toString() {
+		return this.production + " at line " + this.line + ", column " + this.column + ": " + this.invocations
+				+ " invocations, " + this.scannedTokens + " tokens scanned, depth " + this.maxDepth;
+	}
+}
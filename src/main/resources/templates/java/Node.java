@@ -16,6 +16,10 @@ public class Node {
 	private Token  firstToken;
 	private Token  lastToken;
 //@fi
+//@if(DEFER_PRODUCTIONS)
+	// Adds the children of a deferred production on first access
+	private java.util.function.Consumer<Node> expander;
+//@fi
 
 	public Node(Parser p, int i) {
 		this.id = i;
@@ -56,10 +60,16 @@ public class Node {
 	}
 
 	public Node jjtGetChild(int i) {
+//@if(DEFER_PRODUCTIONS)
+		jjtExpand();
+//@fi
 		return this.children[i];
 	}
 
 	public int jjtGetNumChildren() {
+//@if(DEFER_PRODUCTIONS)
+		jjtExpand();
+//@fi
 		return (this.children == null) ? 0 : this.children.length;
 	}
 
@@ -88,6 +98,33 @@ public class Node {
 		this.lastToken = token;
 	}
 
+//@fi
+//@if(DEFER_PRODUCTIONS)
+	/**
+	 * Defers the children of the node, they are added by the expander on first access.
+	 */
+	public void jjtDefer(java.util.function.Consumer<Node> expander) {
+		this.expander = expander;
+	}
+
+	/**
+	 * Returns <code>true</code> if the children of the node haven't been added yet.
+	 */
+	public boolean jjtIsDeferred() {
+		return this.expander != null;
+	}
+
+	/**
+	 * Adds the children of a deferred node.
+	 */
+	public void jjtExpand() {
+		if (this.expander != null) {
+			java.util.function.Consumer<Node> expander = this.expander;
+			this.expander = null;
+			expander.accept(this);
+		}
+	}
+
 //@fi
 //@if(VISITOR)
 
@@ -113,6 +150,9 @@ public class Node {
 	public Object childrenAccept(NodeVisitor visitor, __VISITOR_DATA_TYPE__ data) throws __VISITOR_EXCEPTION__ {
 //@else
 	public Object childrenAccept(NodeVisitor visitor, __VISITOR_DATA_TYPE__ data) {
+//@fi
+//@if(DEFER_PRODUCTIONS)
+		jjtExpand();
 //@fi
 		if (children != null) {
 			for (int i = 0; i < children.length; ++i) {
@@ -144,6 +184,9 @@ public class Node {
 
 	public void dump(String prefix) {
 		System.out.println(toString(prefix));
+//@if(DEFER_PRODUCTIONS)
+		jjtExpand();
+//@fi
 		if (this.children != null) {
 			for (Node child : this.children) {
 				Node n = child;
@@ -2,18 +2,21 @@ package __JAVA_PACKAGE__;
 
 class NodeState {
 
-	private final java.util.List<Node>    nodes;
-	private final java.util.List<Integer> marks;
+	// The stacks are arrays, so that a reset keeps their capacity and marks aren't boxed
+	private Node[] nodes;
+	private int[]  marks;
 
 	private int     sp;          // number of nodes on stack
 	private int     mk;          // current mark
+	private int     mp;          // number of marks on stack
 	private boolean node_created;
 
 	public NodeState() {
-		this.nodes = new java.util.ArrayList<>();
-		this.marks = new java.util.ArrayList<>();
+		this.nodes = new Node[16];
+		this.marks = new int[16];
 		this.sp = 0;
 		this.mk = 0;
+		this.mp = 0;
 	}
 
 	/*
@@ -29,23 +32,25 @@ class NodeState {
 	 * method.
 	 */
 	public void reset() {
-		this.nodes.clear();
-		this.marks.clear();
+		java.util.Arrays.fill(this.nodes, 0, this.sp, null);
 		this.sp = 0;
 		this.mk = 0;
+		this.mp = 0;
 	}
 
 	/*
 	 * Returns the root node of the AST. It only makes sense to call this after a successful parse.
 	 */
 	public Node rootNode() {
-		return this.nodes.get(0);
+		return this.nodes[0];
 	}
 
 	/* Pushes a node on to the stack. */
 	public void pushNode(Node n) {
-		this.nodes.add(n);
-		++this.sp;
+		if (this.sp == this.nodes.length) {
+			this.nodes = java.util.Arrays.copyOf(this.nodes, this.sp << 1);
+		}
+		this.nodes[this.sp++] = n;
 	}
 
 	/*
@@ -53,14 +58,16 @@ class NodeState {
 	 */
 	public Node popNode() {
 		if (--this.sp < this.mk) {
-			this.mk = this.marks.remove(this.marks.size() - 1);
+			this.mk = popMark();
 		}
-		return this.nodes.remove(this.nodes.size() - 1);
+		Node n = this.nodes[this.sp];
+		this.nodes[this.sp] = null;
+		return n;
 	}
 
 	/* Returns the node currently on the top of the stack. */
 	public Node peekNode() {
-		return this.nodes.get(this.nodes.size() - 1);
+		return this.nodes[this.sp - 1];
 	}
 
 	/*
@@ -75,12 +82,15 @@ class NodeState {
 		while (this.sp > this.mk) {
 			popNode();
 		}
-		this.mk = this.marks.remove(this.marks.size() - 1);
+		this.mk = popMark();
 	}
 
 
 	public void openNodeScope(Node n) {
-		this.marks.add(this.mk);
+		if (this.mp == this.marks.length) {
+			this.marks = java.util.Arrays.copyOf(this.marks, this.mp << 1);
+		}
+		this.marks[this.mp++] = this.mk;
 		this.mk = this.sp;
 		n.jjtOpen();
 	}
@@ -92,7 +102,7 @@ class NodeState {
 	 * pushed on to the stack.
 	 */
 	public void closeNodeScope(Node n, int num) {
-		this.mk = this.marks.remove(this.marks.size() - 1);
+		this.mk = popMark();
 		while (num-- > 0) {
 			Node c = popNode();
 			c.jjtSetParent(n);
@@ -113,7 +123,7 @@ class NodeState {
 	public void closeNodeScope(Node n, boolean condition) {
 		if (condition) {
 			int a = nodeArity();
-			this.mk = this.marks.remove(this.marks.size() - 1);
+			this.mk = popMark();
 			while (a-- > 0) {
 				Node c = popNode();
 				c.jjtSetParent(n);
@@ -123,8 +133,12 @@ class NodeState {
 			pushNode(n);
 			this.node_created = true;
 		} else {
-			this.mk = this.marks.remove(this.marks.size() - 1);
+			this.mk = popMark();
 			this.node_created = false;
 		}
 	}
+
+	private int popMark() {
+		return this.marks[--this.mp];
+	}
 }
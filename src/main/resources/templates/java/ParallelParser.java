@@ -0,0 +1,173 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Parses a large input, that is a sequence of independent __PARALLEL_UNIT__ units, on a fork-join
+ * pool. A pre-scan lexes the input and splits it into chunks after the boundary tokens, that end
+ * in the default lexical state. Each chunk is parsed by its own parser, the units of the chunks
+ * are stitched in order.
+ * <p>
+ * A boundary token is assumed to end a unit at the top level. A chunk that fails because the
+ * boundary was nested in a unit is merged with the following chunks and parsed again, a syntax
+ * error of the input is thrown from the parse of the merged chunks. The actions of the units must
+ * not depend on the state the parser keeps between the units.
+ */
+public class ParallelParser {
+
+	// The smallest chunk, if the size isn't set.
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	private final java.util.concurrent.ForkJoinPool pool;
+	private final int                               chunkSize;
+
+	/**
+	 * Constructs a parser that parses the chunks on the common pool.
+	 */
+	public ParallelParser() {
+		this(java.util.concurrent.ForkJoinPool.commonPool(), 0);
+	}
+
+	/**
+	 * Constructs a parser that parses the chunks on the pool. The chunks have at least chunkSize
+	 * characters, or a size that keeps the workers of the pool busy if chunkSize is 0.
+	 */
+	public ParallelParser(java.util.concurrent.ForkJoinPool pool, int chunkSize) {
+		if (chunkSize < 0) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Parses the units of the input in parallel, and returns them in the order of the input.
+	 */
+	public java.util.List<__PARALLEL_TYPE__> parse(CharSequence input) throws ParseException {
+		java.util.List<Chunk> chunks = split(input);
+		for (Chunk chunk : chunks) {
+			this.pool.execute(chunk);
+		}
+
+		java.util.List<__PARALLEL_TYPE__> units = new java.util.ArrayList<>();
+		int index = 0;
+		while (index < chunks.size()) {
+			Chunk chunk = chunks.get(index);
+			chunk.join();
+			// A chunk that fails is merged with twice as many chunks on each attempt
+			for (int merged = 2; chunk.failure != null; merged <<= 1) {
+				int last = Math.min(index + merged, chunks.size()) - 1;
+				if (index == last) {
+					for (Chunk pending : chunks) {
+						pending.cancel(false);
+					}
+					if (chunk.failure instanceof TokenException e) {
+						throw e;
+					}
+					throw (ParseException) chunk.failure;
+				}
+				chunk = new Chunk(input, chunk.begin, chunks.get(last).end, chunk.line, chunk.column);
+				chunk.compute();
+				index = last;
+			}
+			units.addAll(chunk.units);
+			index++;
+		}
+		return units;
+	}
+
+	/**
+	 * Splits the input into chunks after the boundary tokens. The lexer only reports the kinds of
+	 * the tokens, a lexical error ends the pre-scan and is reported by the parse of the last chunk.
+	 */
+	private java.util.List<Chunk> split(CharSequence input) {
+		int size = this.chunkSize;
+		if (size == 0) {
+			size = Math.max(ParallelParser.MIN_CHUNK_SIZE, input.length() / (4 * this.pool.getParallelism()));
+		}
+
+		java.util.List<Chunk> chunks = new java.util.ArrayList<>();
+		ArrayCharStream stream = new ArrayCharStream(input);
+		Lexer lexer = new Lexer(stream);
+		int begin = 0;
+		int line = 1;
+		int column = 1;
+		try {
+			for (int kind = lexer.getNextKind(); kind != ParserConstants.EOF; kind = lexer.getNextKind()) {
+				if (!ParallelParser.isBoundary(kind) || (lexer.curLexState != lexer.defaultLexState)) {
+					continue;
+				}
+				int end = stream.getEndOffset() + 1;
+				if (end - begin < size) {
+					continue;
+				}
+				chunks.add(new Chunk(input, begin, end, line, column));
+				begin = end;
+//@if(KEEP_LINE_COLUMN)
+				char last = input.charAt(end - 1);
+				if ((last == '\n') || ((last == '\r') && ((end == input.length()) || (input.charAt(end) != '\n')))) {
+					line = stream.getEndLine() + 1;
+					column = 1;
+				} else {
+					line = stream.getEndLine();
+					column = stream.getEndColumn() + 1;
+				}
+//@fi
+			}
+		} catch (TokenException e) {
+			// The lexical error is thrown by the parser of the last chunk
+		}
+		chunks.add(new Chunk(input, begin, input.length(), line, column));
+		return chunks;
+	}
+
+	/**
+	 * Returns <code>true</code> if the kind is a boundary token.
+	 */
+	private static boolean isBoundary(int kind) {
+		switch (kind) {
+//@foreach(PARALLEL_BOUNDARIES)
+			case ParserConstants.__PARALLEL_BOUNDARIES_NAME__:
+//@end
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * A chunk of the input, that is parsed by its own parser. The stream of the chunk starts at the
+	 * line and column of its first character.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Chunk extends java.util.concurrent.RecursiveAction {
+
+		private final CharSequence input;
+		private final int          begin;
+		private final int          end;
+		private final int          line;
+		private final int          column;
+
+		private java.util.List<__PARALLEL_TYPE__> units;
+		private Exception                         failure;
+
+		private Chunk(CharSequence input, int begin, int end, int line, int column) {
+			this.input = input;
+			this.begin = begin;
+			this.end = end;
+			this.line = line;
+			this.column = column;
+		}
+
+		@Override
+		protected void compute() {
+			ArrayCharStream stream = new ArrayCharStream(java.nio.CharBuffer.wrap(this.input, this.begin, this.end));
+//@if(KEEP_LINE_COLUMN)
+			stream.adjustBeginLineColumn(this.line, this.column);
+//@fi
+			try {
+				this.units = new Parser(new Lexer(stream)).jj_parse_units();
+			} catch (ParseException | TokenException e) {
+				this.failure = e;
+			}
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Limits the work of a parse on untrusted input: the number of tokens the parser consumes, the
+ * number of tokens the syntactic lookaheads scan, a deadline and a cancellation flag. A budget is
+ * set on the parser with {@link Parser#setBudget(ParseBudget)}, a {@link ParseBudgetException} is
+ * thrown when the budget is exceeded.
+ * <p>
+ * The parser doesn't check the budget for each token: it is granted up to {@link #INTERVAL}
+ * tokens and scan steps at a time, the used tokens and steps are charged when the grant is used
+ * up. The deadline and the cancellation flag are checked at the same time, so they take effect
+ * within an interval. A budget is used by a single parse, only {@link #cancel()} may be called
+ * from another thread. The depth of the recursion is limited by the option DEPTH_LIMIT.
+ */
+public class ParseBudget {
+
+	/**
+	 * The maximum number of tokens and scan steps that are granted at a time.
+	 */
+	public static final int INTERVAL = 1024;
+
+	/**
+	 * The limit of a budget that is unlimited.
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private final long    maxTokens;
+	private final long    maxScanSteps;
+	private final boolean timed;
+	private final long    deadline;
+
+	private long             tokens;
+	private long             scanSteps;
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructs a budget without a deadline.
+	 *
+	 * @param maxTokens    the maximum number of tokens the parser consumes
+	 * @param maxScanSteps the maximum number of tokens the syntactic lookaheads scan
+	 */
+	public ParseBudget(long maxTokens, long maxScanSteps) {
+		this(maxTokens, maxScanSteps, null);
+	}
+
+	/**
+	 * Constructs a budget.
+	 *
+	 * @param maxTokens    the maximum number of tokens the parser consumes
+	 * @param maxScanSteps the maximum number of tokens the syntactic lookaheads scan
+	 * @param timeout      the time from now until the deadline, or <code>null</code>
+	 */
+	public ParseBudget(long maxTokens, long maxScanSteps, java.time.Duration timeout) {
+		if (maxTokens < 0 || maxScanSteps < 0) {
+			throw new IllegalArgumentException("Invalid budget: " + maxTokens + ", " + maxScanSteps);
+		}
+		this.maxTokens = maxTokens;
+		this.maxScanSteps = maxScanSteps;
+		this.timed = (timeout != null);
+		this.deadline = this.timed ? System.nanoTime() + timeout.toNanos() : 0;
+	}
+
+	/**
+	 * Cancels the parse, the parser throws a {@link ParseBudgetException} within an interval.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the parse has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Get the number of tokens charged to the budget.
+	 */
+	public long getTokens() {
+		return this.tokens;
+	}
+
+	/**
+	 * Get the number of scan steps charged to the budget.
+	 */
+	public long getScanSteps() {
+		return this.scanSteps;
+	}
+
+	/**
+	 * Charges the used tokens, returns the number of tokens granted until the next charge.
+	 */
+	int grantTokens(int used) {
+		this.tokens += used;
+		if (this.tokens > this.maxTokens) {
+			throw new ParseBudgetException("The parse exceeds the maximum of " + this.maxTokens + " tokens",
+					ParseBudgetException.TOKENS);
+		}
+		check();
+		return ParseBudget.grant(this.maxTokens - this.tokens);
+	}
+
+	/**
+	 * Charges the used scan steps, returns the number of steps granted until the next charge.
+	 */
+	int grantScanSteps(int used) {
+		this.scanSteps += used;
+		if (this.scanSteps > this.maxScanSteps) {
+			throw new ParseBudgetException(
+					"The lookahead exceeds the maximum of " + this.maxScanSteps + " scan steps",
+					ParseBudgetException.SCAN_STEPS);
+		}
+		check();
+		return ParseBudget.grant(this.maxScanSteps - this.scanSteps);
+	}
+
+	/**
+	 * Get the grant for the remaining units. The grant includes the unit that exceeds the budget,
+	 * so that it is charged before it is used.
+	 */
+	private static int grant(long remaining) {
+		return (remaining < ParseBudget.INTERVAL) ? (int) remaining + 1 : ParseBudget.INTERVAL;
+	}
+
+	private void check() {
+		if (this.cancelled) {
+			throw new ParseBudgetException("The parse has been cancelled", ParseBudgetException.CANCELLED);
+		}
+		if (this.timed && (System.nanoTime() - this.deadline > 0)) {
+			throw new ParseBudgetException("The parse exceeds its deadline", ParseBudgetException.DEADLINE);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Thrown when a parse exceeds its {@link ParseBudget}. The exception is unchecked, because the
+ * budget is also checked by the syntactic lookaheads.
+ */
+public class ParseBudgetException extends RuntimeException {
+
+	/**
+	 * The version identifier for this Serializable class. Increment only if the <i>serialized</i>
+	 * form of the class changes.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	// The parser has consumed too many tokens.
+	public static final int TOKENS     = 0;
+	// The syntactic lookaheads have scanned too many tokens.
+	public static final int SCAN_STEPS = 1;
+	// The deadline has passed.
+	public static final int DEADLINE   = 2;
+	// The parse has been cancelled.
+	public static final int CANCELLED  = 3;
+
+
+	// Indicates the reason why the exception is thrown. It will have one of the above 4 values.
+	public final int errorCode;
+
+
+	/**
+	 * Constructor with message and reason.
+	 */
+	public ParseBudgetException(String message, int reason) {
+		super(message);
+		this.errorCode = reason;
+	}
+}
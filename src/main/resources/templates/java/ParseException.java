@@ -21,7 +21,7 @@ public class ParseException extends java.text.ParseException {
 	 * The end of line string (we do not use System.getProperty("") so that we are compatible with
 	 * Android/GWT);
 	 */
-	protected static String EOL = "\n";
+	protected static final String EOL = "\n";
 
 
 	public ParseException(Token currentTokenVal, int[][] expectedTokenSequencesVal,
@@ -114,7 +114,7 @@ public class ParseException extends java.text.ParseException {
 
 		Token tok = currentToken.next;
 		for (int i = 0; i < maxSize; i++) {
-			String tokenText = tok.image;
+			String tokenText = tok.toString();
 			String escapedTokenText = ParseException.add_escapes(tokenText);
 			if (i != 0) {
 				sb.append(" ");
@@ -131,8 +131,8 @@ public class ParseException extends java.text.ParseException {
 		}
 //@if(KEEP_LINE_COLUMN)
 		sb.append(ParseException.EOL).append(ParseException.INDENT)
-				.append("at line ").append(currentToken.next.beginLine)
-				.append(", column ").append(currentToken.next.beginColumn);
+				.append("at line ").append(currentToken.next.getBeginLine())
+				.append(", column ").append(currentToken.next.getBeginColumn());
 //@fi
 		sb.append(".").append(ParseException.EOL);
 
@@ -0,0 +1,90 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * The result of {@link Parser#tryParse(String)}: a parse that fails is reported by the result
+ * instead of a {@link ParseException}. A failure records the token that doesn't match and the kind
+ * of token that has been expected, the message is built on demand.
+ */
+public final class ParseResult {
+
+	/**
+	 * The result of a successful parse.
+	 */
+	static final ParseResult SUCCESS = new ParseResult(null, -1, null);
+
+	private final Token  token;
+	private final int    expectedKind;
+	private       String message;
+
+	/**
+	 * Constructs the result of a failed parse.
+	 */
+	ParseResult(Token token, int expectedKind, String message) {
+		this.token = token;
+		this.expectedKind = expectedKind;
+		this.message = message;
+	}
+
+	/**
+	 * Returns <code>true</code> if the parse has succeeded.
+	 */
+	public boolean isSuccess() {
+		return this == ParseResult.SUCCESS;
+	}
+
+	/**
+	 * Get the token that doesn't match, or <code>null</code> if the parse has succeeded or the
+	 * lexer has failed.
+	 */
+	public Token getToken() {
+		return this.token;
+	}
+
+	/**
+	 * Get the kind of token that has been expected, or -1 if the parse has failed in a choice.
+	 */
+	public int getExpectedKind() {
+		return this.expectedKind;
+	}
+//@if(KEEP_LINE_COLUMN)
+
+	/**
+	 * Get the line of the token that doesn't match, or 0.
+	 */
+	public int getLine() {
+		return (this.token == null) ? 0 : this.token.getBeginLine();
+	}
+
+	/**
+	 * Get the column of the token that doesn't match, or 0.
+	 */
+	public int getColumn() {
+		return (this.token == null) ? 0 : this.token.getBeginColumn();
+	}
+//@fi
+
+	/**
+	 * Get the message of the failure, or <code>null</code> if the parse has succeeded.
+	 */
+	public String getMessage() {
+		if ((this.message == null) && !isSuccess()) {
+			String encountered = (this.token.kind == 0) ? ParserConstants.tokenImage[0] : this.token.toString();
+//@if(KEEP_LINE_COLUMN)
+			String message = "Parse error at line " + getLine() + ", column " + getColumn() + ".  Encountered: "
+					+ encountered;
+//@else
+			String message = "Parse error at <unknown location>.  Encountered: " + encountered;
+//@fi
+			if (this.expectedKind >= 0) {
+				message += ".  Was expecting: " + ParserConstants.tokenImage[this.expectedKind];
+			}
+			this.message = message;
+		}
+		return this.message;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "Success" : getMessage();
+	}
+}
@@ -15,12 +15,33 @@ public class Parser
 //@fi
 
 	//@invoke(DUMP_NORMALPRODUCTIONS)
+//@if(LAZY_ERRORS)
+	//@invoke(DUMP_REPLAY_PRODUCTIONS)
+//@fi
 	//@invoke(DUMP_LOOKAHEADS)
 	//@invoke(DUMP_EXPANSIONS)
 	/**
 	 * Generated Token Manager.
 	 */
 	public Lexer token_source;
+//@if(PARSER_POOL)
+	/**
+	 * The stream that is reset in place by {@link #ReInit(CharSequence)}.
+	 */
+	ArrayCharStream            jj_input;
+//@fi
+//@if(TOKEN_BUFFER)
+	/**
+	 * Token buffer, the current token is at index {@link #jj_pos}.
+	 */
+//@if(LAZY_ERRORS)
+	public TokenBuffer         jj_tokens = new TokenBuffer();
+//@else
+	public final TokenBuffer   jj_tokens = new TokenBuffer();
+//@fi
+	private int                jj_pos;
+	private int                jj_ntk;
+//@else
 	/**
 	 * Current token.
 	 */
@@ -33,11 +54,74 @@ public class Parser
 //@else
 	private int                jj_ntk;
 //@fi
+//@fi
 //@if(DEPTH_LIMIT)
 	private int                jj_depth;
 //@fi
+//@if(PARSE_BUDGET)
+	/**
+	 * The budget of the parse, the tokens and the scan steps are charged in intervals: the
+	 * remaining credit is counted down and the budget is checked when it is used up.
+	 */
+	private ParseBudget        jj_budget;
+	private int                jj_budget_tokens = Integer.MAX_VALUE;
+	private int                jj_budget_token_grant = Integer.MAX_VALUE;
+	private int                jj_budget_steps = Integer.MAX_VALUE;
+	private int                jj_budget_step_grant = Integer.MAX_VALUE;
+//@fi
+//@if(LOOKAHEAD_STATS)
+	/**
+	 * The statistics of the syntactic lookaheads: the invocations, the tokens scanned and the
+	 * deepest token reached, by the index of the lookahead.
+	 */
+	private long               jj_la_steps;
+	private final long[]       jj_la_calls   = new long[Parser.jj_la_productions.length];
+	private final long[]       jj_la_scanned = new long[Parser.jj_la_productions.length];
+	private final int[]        jj_la_depths  = new int[Parser.jj_la_productions.length];
+
+	private static final String[] jj_la_productions = {
+//@foreach(LOOKAHEAD_LOCATIONS)
+			"__LOOKAHEAD_LOCATIONS_PRODUCTION__",
+//@end
+	};
+	private static final int[] jj_la_lines = {
+//@foreach(LOOKAHEAD_LOCATIONS)
+			__LOOKAHEAD_LOCATIONS_LINE__,
+//@end
+	};
+	private static final int[] jj_la_columns = {
+//@foreach(LOOKAHEAD_LOCATIONS)
+			__LOOKAHEAD_LOCATIONS_COLUMN__,
+//@end
+	};
+//@fi
+//@if(PARSE_RESULT)
+	/**
+	 * Set while {@link #tryParse(String)} runs, a failure is recorded in {@link #jj_error} and
+	 * signalled by {@link #jj_failure}.
+	 */
+	private boolean            jj_try;
+	private ParseResult        jj_error;
+//@fi
+//@if(RECOVERY)
+	/**
+	 * The errors the productions with synchronization tokens have recovered from.
+	 */
+	private final java.util.List<ParseException> jj_errors = new java.util.ArrayList<>();
+//@fi
+//@if(DEFERRED)
+	// The deferred productions are skipped, the next one is parsed while a node is expanded.
+	private boolean            jj_deferred = true;
+	private boolean            jj_expanding;
+	// The tokens that open and close a deferred production alike.
+	private static final int[] jj_quotes = { __DEFERRED_QUOTES__ };
+//@fi
 //@if(MASK_INDEX)
+//@if(TOKEN_BUFFER)
+	private int                jj_scanpos, jj_lastpos;
+//@else
 	private Token              jj_scanpos, jj_lastpos;
+//@fi
 	private int                jj_la;
 //@if(LOOKAHEAD_NEEDED)
 	/** Whether we are looking ahead. */
@@ -48,6 +132,19 @@ public class Parser
 //@if(ERROR_REPORTING)
 	private int                jj_gen;
 	private final int[]        jj_la1    = new int[__MASK_INDEX__];
+//@if(LAZY_ERRORS)
+	/**
+	 * Whether the expected tokens are recorded, only while a failed parse is replayed.
+	 */
+	private boolean            jj_replay;
+	/**
+	 * The outermost production that runs, with the index of the token it has started after. A
+	 * failed parse is replayed from there.
+	 */
+	private int                jj_replay_depth;
+	private int                jj_replay_production;
+	private int                jj_replay_start;
+//@fi
 //@foreach(TOKEN_MASKS)
 	private static final int[] jj_la1___TOKEN_MASKS_INDEX__  = { __TOKEN_MASKS_VALUE__};
 //@end
@@ -56,7 +153,29 @@ public class Parser
 //@if(ERROR_REPORTING)
 	private final JJCalls[]    jj_2_rtns = new JJCalls[__JJ2_INDEX__];
 	private boolean            jj_rescan = false;
-	private int                jj_gc     = 0;
+	/**
+	 * The saved calls in the order of {@link #jj_save}, with the generation they were saved with.
+	 * The token of a call is released when the parser has consumed past its generation. The
+	 * generations are not ordered, a call that is still needed holds back the calls saved after it,
+	 * their tokens follow its token and are reachable from it anyway.
+	 */
+	private JJCalls[]          jj_saved      = new JJCalls[64];
+	private int[]              jj_saved_gens = new int[64];
+	private int                jj_saved_head;
+	private int                jj_saved_size;
+//@fi
+//@if(JJ3_MEMO)
+	/**
+	 * The memoized results of the lookahead routines, an open addressing hash table on the
+	 * routine and the token index. Entries of an older stamp are empty.
+	 */
+	private long[]             jj_memo_keys   = new long[Parser.JJ_MEMO_SIZE];
+	private int[]              jj_memo_ends   = new int[Parser.JJ_MEMO_SIZE];
+	private int[]              jj_memo_fars   = new int[Parser.JJ_MEMO_SIZE];
+	private int[]              jj_memo_stamps = new int[Parser.JJ_MEMO_SIZE];
+	private int                jj_memo_stamp;
+	private int                jj_memo_count;
+	private int                jj_scanmax;
 //@fi
 //@fi
 
@@ -84,15 +203,24 @@ public class Parser
 	 */
 	public Parser(Lexer tm) {
 		token_source = tm;
+//@if(TOKEN_BUFFER)
+		jj_tokens.clear();
+		jj_pos = 0;
+		jj_ntk = -1;
+//@else
 		token = new Token();
 //@if(CACHE_TOKENS)
 		token.next = jj_nt = token_source.getNextToken();
 //@else
 		jj_ntk = -1;
 //@fi
+//@fi
 //@if(DEPTH_LIMIT)
 		jj_depth = -1;
 //@fi
+//@if(JJ3_MEMO)
+		jj_memo_reset();
+//@fi
 //@if(ERROR_REPORTING)
 		jj_gen = 0;
 //@if(MASK_INDEX)
@@ -111,15 +239,35 @@ public class Parser
 	 */
 	public void ReInit(Lexer tm) {
 		token_source = tm;
+//@if(TOKEN_BUFFER)
+		jj_tokens.clear();
+		jj_pos = 0;
+		jj_ntk = -1;
+//@else
 		token = new Token();
 //@if(CACHE_TOKENS)
 		token.next = jj_nt = token_source.getNextToken();
 //@else
 		jj_ntk = -1;
 //@fi
+//@fi
 //@if(DEPTH_LIMIT)
 		jj_depth = -1;
 //@fi
+//@if(JJ3_MEMO)
+		jj_memo_reset();
+//@fi
+//@if(PARSE_BUDGET)
+		setBudget(null);
+//@fi
+//@if(RECOVERY)
+		jj_errors.clear();
+//@fi
+//@if(MASK_INDEX)
+//@if(LOOKAHEAD_NEEDED)
+		jj_lookingAhead = false;
+//@fi
+//@fi
 //@if(USE_AST)
 		jjtree.reset();
 //@fi
@@ -130,13 +278,464 @@ public class Parser
 			jj_la1[i] = -1;
 //@fi
 //@if(JJ2_INDEX)
-		for (int i = 0; i < jj_2_rtns.length; i++)
-			jj_2_rtns[i] = new JJCalls();
+		java.util.Arrays.fill(jj_saved, null);
+		jj_saved_head = 0;
+		jj_saved_size = 0;
+		for (int i = 0; i < jj_2_rtns.length; i++) {
+			// The calls are reset in place, the chains keep their length
+			for (JJCalls c = jj_2_rtns[i]; c != null; c = c.next) {
+				c.gen = 0;
+//@if(TOKEN_BUFFER)
+				c.first = 0;
+//@else
+				c.first = null;
+//@fi
+				c.arg = 0;
+			}
+		}
 //@fi
 //@fi
 	}
+//@if(PARSER_POOL)
 
+	/**
+	 * Reinitialise on the text. The {@link ArrayCharStream} and the lexer of the parser are reset
+	 * in place, they are created on the first call.
+	 */
+	public void ReInit(CharSequence text) {
+		if (jj_input == null)
+			jj_input = new ArrayCharStream(text);
+		else
+			jj_input.ReInit(text);
+		if (token_source == null)
+			token_source = new Lexer(jj_input);
+		else
+			token_source.ReInit(jj_input);
+		ReInit(token_source);
+	}
+//@fi
+//@if(PARSE_BUDGET)
+
+	/**
+	 * Sets the budget of the parse, the parse is unlimited without a budget. The budget is removed
+	 * by ReInit.
+	 */
+	public void setBudget(ParseBudget budget) {
+		// A budget is charged and checked on the first token
+		int grant = (budget == null) ? Integer.MAX_VALUE : 1;
+		jj_budget = budget;
+		jj_budget_tokens = jj_budget_token_grant = grant;
+		jj_budget_steps = jj_budget_step_grant = grant;
+	}
+
+	/**
+	 * Charges the consumed tokens to the budget, when the granted tokens are used up.
+	 */
+	private void jj_budget_tokens() {
+		int used = jj_budget_token_grant - jj_budget_tokens;
+		jj_budget_tokens = jj_budget_token_grant =
+				(jj_budget == null) ? Integer.MAX_VALUE : jj_budget.grantTokens(used);
+	}
+
+	/**
+	 * Charges the scan steps of the lookaheads to the budget, when the granted steps are used up.
+	 */
+	private void jj_budget_steps() {
+		int used = jj_budget_step_grant - jj_budget_steps;
+		jj_budget_steps = jj_budget_step_grant =
+				(jj_budget == null) ? Integer.MAX_VALUE : jj_budget.grantScanSteps(used);
+	}
+//@fi
+//@if(LOOKAHEAD_STATS)
+
+	/**
+	 * Get a snapshot of the statistics of the syntactic lookaheads, ordered by their location in
+	 * the grammar. The statistics are kept across ReInit, until they are reset.
+	 */
+	public java.util.List<LookaheadStats> getLookaheadStats() {
+		java.util.List<LookaheadStats> stats = new java.util.ArrayList<>(jj_la_calls.length);
+		for (int i = 0; i < jj_la_calls.length; i++) {
+			stats.add(new LookaheadStats(Parser.jj_la_productions[i], Parser.jj_la_lines[i], Parser.jj_la_columns[i],
+					jj_la_calls[i], jj_la_scanned[i], jj_la_depths[i]));
+		}
+		stats.sort(LookaheadStats.BY_LOCATION);
+		return stats;
+	}
+
+	/**
+	 * Resets the statistics of the syntactic lookaheads.
+	 */
+	public void resetLookaheadStats() {
+		java.util.Arrays.fill(jj_la_calls, 0);
+		java.util.Arrays.fill(jj_la_scanned, 0);
+		java.util.Arrays.fill(jj_la_depths, 0);
+	}
+
+	/**
+	 * Counts an invocation of the lookahead with the depth it has reached and the tokens it has
+	 * scanned.
+	 */
+	private void jj_la_count(int index, int depth, long scanned) {
+		jj_la_calls[index]++;
+		jj_la_scanned[index] += scanned;
+		if (depth > jj_la_depths[index])
+			jj_la_depths[index] = depth;
+	}
+//@fi
+//@if(PARSE_RESULT)
+
+	/**
+	 * Parses the input with the production, a failure is returned instead of thrown. The failure
+	 * doesn't build a ParseException, the productions are unwound by a preallocated signal without
+	 * a stack trace. The production must not have parameters.
+	 */
+	public ParseResult tryParse(String production) {
+		jj_try = true;
+		jj_error = null;
+		try {
+			jj_try_production(production);
+			return ParseResult.SUCCESS;
+		} catch (ParseFailure e) {
+			return jj_error;
+		} catch (ParseException e) {
+			// Thrown by an action of the grammar
+			return new ParseResult((e.currentToken == null) ? null : e.currentToken.next, -1, e.getMessage());
+		} catch (TokenException e) {
+			return new ParseResult(null, -1, e.getMessage());
+		} finally {
+			jj_try = false;
+		}
+	}
+
+	private void jj_try_production(String production) throws ParseException {
+		switch (production) {
+//@foreach(TRY_PRODUCTIONS)
+			case "__TRY_PRODUCTIONS_NAME__":
+				__TRY_PRODUCTIONS_NAME__();
+				break;
+//@end
+			default:
+				throw new IllegalArgumentException("Unknown production: " + production);
+		}
+	}
+
+	/**
+	 * Records the failure at the next token, returns the signal that unwinds the productions.
+	 */
+	private ParseFailure jj_fail(int kind) {
+		jj_error = new ParseResult(getToken(1), kind, null);
+		return Parser.jj_failure;
+	}
+
+	@SuppressWarnings("serial")
+	static private final class ParseFailure extends java.lang.RuntimeException {
+		private ParseFailure() {
+			// The stack trace is never filled in
+			super(null, null, false, false);
+		}
+	}
+
+	static private final ParseFailure jj_failure = new ParseFailure();
+//@fi
+//@if(RECOVERY)
+
+	/**
+	 * Get the errors the parser has recovered from, in the order they have occurred. The errors are
+	 * cleared by ReInit.
+	 */
+	public java.util.List<ParseException> getErrors() {
+		return java.util.Collections.unmodifiableList(jj_errors);
+	}
+
+	/**
+	 * Records the error of a production and skips the tokens up to and including the next
+	 * synchronization token, so that the parse continues after the production. The EOF token is
+	 * never skipped.
+	 */
+	private void jj_recover(ParseException error, int... kinds) {
+		jj_errors.add(error);
+		for (int kind = getToken(1).kind; kind != EOF; kind = getToken(1).kind) {
+			getNextToken();
+			for (int sync : kinds) {
+				if (kind == sync)
+					return;
+			}
+		}
+	}
+//@fi
+//@if(PARALLEL)
+
+	/**
+	 * Parses the units of a chunk of the ParallelParser up to the end of the input, and returns
+	 * them in order.
+	 */
+	java.util.List<__PARALLEL_TYPE__> jj_parse_units() throws ParseException {
+//@if(PARALLEL_NODE)
+//@if(TOKEN_BUFFER)
+		while (getTokenKind(1) != EOF)
+//@else
+		while (getToken(1).kind != EOF)
+//@fi
+			__PARALLEL_UNIT__();
+		Node[] units = new Node[jjtree.nodeArity()];
+		for (int i = units.length - 1; i >= 0; i--)
+			units[i] = jjtree.popNode();
+		return java.util.Arrays.asList(units);
+//@else
+		java.util.List<__PARALLEL_TYPE__> units = new java.util.ArrayList<>();
+//@if(TOKEN_BUFFER)
+		while (getTokenKind(1) != EOF)
+//@else
+		while (getToken(1).kind != EOF)
+//@fi
+			units.add(__PARALLEL_UNIT__());
+		return units;
+//@fi
+	}
+//@fi
+//@if(DEFERRED)
+
+	/**
+	 * Sets whether the deferred productions are skipped. A skipped production is parsed on the first
+	 * access to the children of its node, a syntax error in it is thrown as an
+	 * IllegalStateException at that time.
+	 */
+	public void setDeferred(boolean deferred) {
+		jj_deferred = deferred;
+	}
+
+	/**
+	 * Returns <code>true</code> if the deferred production is parsed instead of skipped.
+	 */
+	private boolean jj_parse_deferred() {
+		if (jj_expanding) {
+			jj_expanding = false;
+			return true;
+		}
+		return !jj_deferred;
+	}
+
+	/**
+	 * Skips the tokens of a deferred production from the opening token to the balanced closing
+	 * token, the node parses them on first access. The tokens between a pair of quotes, the tokens
+	 * that open and close a deferred production alike, aren't counted. The skipped tokens are
+	 * copied up to an EOF token, so that the node doesn't keep the tokens that follow them.
+	 */
+	private void jj_skip(Node node, int production, int open, int close) throws ParseException {
+		Token first = Parser.jj_copy(jj_consume_token(open));
+		Token last = first;
+		int quote = -1;
+		for (int depth = 1; depth > 0;) {
+			int kind = getToken(1).kind;
+			if (kind == EOF)
+				jj_consume_token((quote < 0) ? close : quote);
+			last = last.next = Parser.jj_copy(getNextToken());
+			if (quote >= 0) {
+				if (kind == quote)
+					quote = -1;
+			} else if (kind == close)
+				depth--;
+			else if (kind == open)
+				depth++;
+			else if (Parser.jj_is_quote(kind))
+				quote = kind;
+		}
+		Token eof = new Token(EOF, "");
+//@if(KEEP_LINE_COLUMN)
+		eof.beginLine = eof.endLine = last.endLine;
+		eof.beginColumn = eof.endColumn = last.endColumn;
+//@fi
+		last.next = eof;
+		node.jjtDefer(Parser.jj_expander(production, first));
+	}
+
+	private static boolean jj_is_quote(int kind) {
+		for (int quote : Parser.jj_quotes) {
+			if (kind == quote)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get a copy of the token that isn't linked to the next token.
+	 */
+	private static Token jj_copy(Token token) {
+		Token copy = new Token(token.kind, token.image);
+		copy.specialToken = token.specialToken;
+//@if(KEEP_LINE_COLUMN)
+		copy.beginLine = token.beginLine;
+		copy.beginColumn = token.beginColumn;
+		copy.endLine = token.endLine;
+		copy.endColumn = token.endColumn;
+//@fi
+		return copy;
+	}
+
+	/**
+	 * Get the expander of a deferred node, it parses the copied tokens from the first token on a
+	 * new parser and adds the children of the parsed node.
+	 */
+	private static java.util.function.Consumer<Node> jj_expander(int production, Token first) {
+		return node -> {
+			Parser parser = new Parser(new DeferredLexer(first));
+			parser.jj_expanding = true;
+			try {
+				parser.jj_deferred_production(production);
+			} catch (ParseException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+			Node parsed = parser.jjtree.rootNode();
+			for (int i = 0; i < parsed.jjtGetNumChildren(); i++) {
+				Node child = parsed.jjtGetChild(i);
+				child.jjtSetParent(node);
+				node.jjtAddChild(child, i);
+			}
+			node.jjtSetValue(parsed.jjtGetValue());
+		};
+	}
+
+	private void jj_deferred_production(int production) throws ParseException {
+		switch (production) {
+//@foreach(DEFERRED_PRODUCTIONS)
+			case __DEFERRED_PRODUCTIONS_INDEX__:
+				__DEFERRED_PRODUCTIONS_NAME__();
+				break;
+//@end
+			default:
+				throw new IllegalArgumentException("Unknown production: " + production);
+		}
+	}
+
+	/**
+	 * Provides the first token of a deferred production, the parser follows the links of the
+	 * tokens from there. The tokens have been lexed already, the lexer has no stream.
+	 */
+	private static final class DeferredLexer extends Lexer {
+
+		private Token next;
+
+		private DeferredLexer(Token first) {
+			super(null);
+			this.next = first;
+		}
+
+		@Override
+		public Token getNextToken() {
+			Token token = (this.next == null) ? new Token(EOF, "") : this.next;
+			this.next = null;
+			return token;
+		}
+//@if(NEXT_KIND)
+
+		@Override
+		public int getNextKind() {
+			return getNextToken().kind;
+		}
+//@fi
+
+		@Override
+		public void SwitchTo(int lexState) {
+			throw new UnsupportedOperationException("The tokens of a deferred production have been lexed");
+		}
+
+		@Override
+		public void ReInit(CharStream stream) {
+			throw new UnsupportedOperationException("The tokens of a deferred production have been lexed");
+		}
+	}
+//@fi
+
+//@if(TOKEN_BUFFER)
 	private Token jj_consume_token(int kind) throws ParseException {
+		jj_consume(kind);
+		return jj_tokens.get(jj_pos);
+	}
+
+	private void jj_consume(int kind) throws ParseException {
+//@if(PARSE_BUDGET)
+		if (--jj_budget_tokens <= 0)
+			jj_budget_tokens();
+//@fi
+		int oldPos = jj_pos;
+		if (jj_kind_at(++jj_pos) == kind) {
+			jj_ntk = -1;
+//@if(DEBUG_PARSER)
+			trace_token(jj_tokens.get(jj_pos), "");
+//@fi
+//@if(ERROR_REPORTING)
+//@if(LAZY_ERRORS)
+			if (jj_replay)
+				jj_gen++;
+//@else
+			jj_gen++;
+//@fi
+//@fi
+			return;
+		}
+		jj_pos = oldPos;
+		jj_ntk = -1;
+//@if(PARSE_RESULT)
+		if (jj_try)
+			throw jj_fail(kind);
+//@fi
+//@if(ERROR_REPORTING)
+		this.jj_kind = kind;
+//@fi
+		throw generateParseException();
+	}
+
+	/**
+	 * Get the kind of the token at the index, reads tokens from the lexer as needed. The tokens
+	 * that can't be read anymore are released when the buffer is full.
+	 */
+	private int jj_kind_at(int index) {
+		while (index >= jj_tokens.size()) {
+			if (jj_tokens.isFull())
+				jj_tokens.release(jj_keep());
+			token_source.getNextToken(jj_tokens);
+		}
+		return jj_tokens.kind(index);
+	}
+
+	/**
+	 * Get the index of the oldest token that may still be read: the current token, or the first
+	 * token of a saved lookahead that is rescanned for the expected tokens.
+	 */
+	private int jj_keep() {
+		int keep = jj_pos;
+//@if(LAZY_ERRORS)
+		// A failed parse is replayed from the token the outermost production has started after
+		if (jj_replay_depth > 0 && jj_replay_start < keep)
+			keep = jj_replay_start;
+//@fi
+//@if(JJ2_INDEX)
+//@if(ERROR_REPORTING)
+		// The calls are saved in the order of their first tokens, the oldest one still needed is the
+		// first one of the ring after the released calls are dropped
+		while (jj_saved_size > 0) {
+			JJCalls c = jj_saved[jj_saved_head];
+			int gen = jj_saved_gens[jj_saved_head];
+			if (c.gen == gen && gen > jj_gen) {
+				if (c.first < keep)
+					keep = c.first;
+				break;
+			}
+			jj_saved[jj_saved_head] = null;
+			jj_saved_head = (jj_saved_head + 1) & (jj_saved.length - 1);
+			jj_saved_size--;
+		}
+//@fi
+//@fi
+		return keep;
+	}
+
+//@else
+	private Token jj_consume_token(int kind) throws ParseException {
+//@if(PARSE_BUDGET)
+		if (--jj_budget_tokens <= 0)
+			jj_budget_tokens();
+//@fi
 //@if(CACHE_TOKENS)
 		Token oldToken = token;
 		if ((token = jj_nt).next == null)
@@ -154,16 +753,18 @@ public class Parser
 //@if(ERROR_REPORTING)
 			jj_gen++;
 //@if(JJ2_INDEX)
-			if (++jj_gc > 100) {
-				jj_gc = 0;
-				for (int i = 0; i < jj_2_rtns.length; i++) {
-					JJCalls c = jj_2_rtns[i];
-					while (c != null) {
-						if (c.gen < jj_gen)
-							c.first = null;
-						c = c.next;
-					}
+			while (jj_saved_size > 0) {
+				JJCalls c = jj_saved[jj_saved_head];
+				int gen = jj_saved_gens[jj_saved_head];
+				// An entry of a call that has been saved again is dropped, the later entry releases it
+				if (c.gen == gen) {
+					if (gen > jj_gen)
+						break;
+					c.first = null;
 				}
+				jj_saved[jj_saved_head] = null;
+				jj_saved_head = (jj_saved_head + 1) & (jj_saved.length - 1);
+				jj_saved_size--;
 			}
 //@fi
 //@fi
@@ -176,13 +777,25 @@ public class Parser
 		jj_nt = token;
 //@fi
 		this.token = oldToken;
+//@if(PARSE_RESULT)
+		if (jj_try)
+			throw jj_fail(kind);
+//@fi
 //@if(ERROR_REPORTING)
 		this.jj_kind = kind;
 //@fi
 		throw generateParseException();
 	}
+//@fi
 
 //@if(JJ2_INDEX)
+//@if(EXCEPTION_FREE_LOOKAHEAD)
+	/**
+	 * Set if the scan has reached the amount of the lookahead. The jj3 routines return
+	 * <code>true</code> like a failure, until the lookahead has been left.
+	 */
+	private boolean jj_la_done;
+//@else
 	@SuppressWarnings("serial")
 	static private final class LookaheadSuccess extends java.lang.RuntimeException {
 		@Override
@@ -192,8 +805,41 @@ public class Parser
 	}
 
 	static private final LookaheadSuccess jj_ls = new LookaheadSuccess();
+//@fi
 
 	private boolean jj_scan_token(int kind) {
+//@if(PARSE_BUDGET)
+		if (--jj_budget_steps <= 0)
+			jj_budget_steps();
+//@fi
+//@if(LOOKAHEAD_STATS)
+		jj_la_steps++;
+//@fi
+//@if(TOKEN_BUFFER)
+		if (jj_scanpos == jj_lastpos) {
+			jj_la--;
+			jj_lastpos = ++jj_scanpos;
+		} else {
+			jj_scanpos++;
+		}
+//@if(JJ3_MEMO)
+		if (jj_scanpos > jj_scanmax)
+			jj_scanmax = jj_scanpos;
+//@fi
+		int scanKind = jj_kind_at(jj_scanpos);
+//@if(ERROR_REPORTING)
+		if (jj_rescan) {
+			if (jj_scanpos >= jj_pos)
+				jj_add_error_token(kind, jj_scanpos - jj_pos);
+//@if(DEBUG_LOOKAHEAD)
+		} else {
+			trace_scan(jj_tokens.get(jj_scanpos), kind);
+//@fi
+		}
+//@fi
+		if (scanKind != kind)
+			return true;
+//@else
 		if (jj_scanpos == jj_lastpos) {
 			jj_la--;
 			if (jj_scanpos.next == null) {
@@ -225,10 +871,151 @@ public class Parser
 //@fi
 		if (jj_scanpos.kind != kind)
 			return true;
+//@fi
+//@if(EXCEPTION_FREE_LOOKAHEAD)
+		if (jj_la == 0 && jj_scanpos == jj_lastpos)
+			return jj_la_done = true;
+//@else
 		if (jj_la == 0 && jj_scanpos == jj_lastpos)
 			throw Parser.jj_ls;
+//@fi
 		return false;
 	}
+//@if(JJ2_DECISION)
+
+	/**
+	 * Get the kind of the token at the index after the current token, for the lookaheads that are
+	 * decided without a scan.
+	 */
+	private int jj_la_kind(int index) {
+//@if(TOKEN_BUFFER)
+		return jj_kind_at(jj_pos + index);
+//@else
+		Token t = token;
+		for (int i = 0; i < index; i++) {
+			if (t.next != null)
+				t = t.next;
+			else
+				t = t.next = token_source.getNextToken();
+		}
+		return t.kind;
+//@fi
+	}
+//@if(ERROR_REPORTING)
+
+	/**
+	 * Saves a lookahead that was decided without a scan, as if the scan had read the tokens.
+	 */
+	private boolean jj_2_decided(int index, int xla, int scanned, boolean result) {
+//@if(LAZY_ERRORS)
+		if (!jj_replay)
+			return result;
+//@fi
+		jj_la = xla - scanned;
+		jj_save(index, xla);
+		return result;
+	}
+//@fi
+//@fi
+//@if(JJ3_MEMO)
+
+	private static final int JJ_MEMO_SIZE = 256;
+	private static final int JJ_MEMO_MISS = -2;
+
+	/**
+	 * Forgets the memoized results of the previous input.
+	 */
+	private void jj_memo_reset() {
+		if (++jj_memo_stamp == 0) {
+			java.util.Arrays.fill(jj_memo_stamps, 0);
+			jj_memo_stamp = 1;
+		}
+		jj_memo_count = 0;
+	}
+
+	private int jj_memo_slot(long key) {
+		int mask = jj_memo_keys.length - 1;
+		int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (jj_memo_stamps[slot] == jj_memo_stamp && jj_memo_keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Get the memoized result of the routine at the current scan position: the position after a
+	 * successful scan, -1 if the scan failed or {@link #JJ_MEMO_MISS}. A result is only reused if
+	 * the scan did not reach the limit of the current lookahead.
+	 */
+	private int jj_memo_get(int routine) {
+//@if(ERROR_REPORTING)
+		if (jj_rescan)
+			return Parser.JJ_MEMO_MISS;
+//@fi
+		int slot = jj_memo_slot(((long) routine << 32) | jj_scanpos);
+		if (jj_memo_stamps[slot] != jj_memo_stamp)
+			return Parser.JJ_MEMO_MISS;
+		int far = jj_memo_fars[slot];
+		if (far - jj_lastpos >= jj_la)
+			return Parser.JJ_MEMO_MISS;
+		if (far > jj_lastpos) {
+			jj_la -= far - jj_lastpos;
+			jj_lastpos = far;
+		}
+		if (far > jj_scanmax)
+			jj_scanmax = far;
+		int end = jj_memo_ends[slot];
+		if (end >= 0)
+			jj_scanpos = end;
+		return end;
+	}
+
+	/**
+	 * Memoizes the result of the routine that started the scan at the position.
+	 */
+	private boolean jj_memo_put(int routine, int start, int max, boolean failed) {
+//@if(EXCEPTION_FREE_LOOKAHEAD)
+		if (jj_la_done)
+			return true;
+//@fi
+		int far = jj_scanmax;
+		if (jj_memo_count >= (jj_memo_keys.length >> 1))
+			jj_memo_grow();
+		long key = ((long) routine << 32) | start;
+		int slot = jj_memo_slot(key);
+		if (jj_memo_stamps[slot] != jj_memo_stamp) {
+			jj_memo_stamps[slot] = jj_memo_stamp;
+			jj_memo_keys[slot] = key;
+			jj_memo_count++;
+		}
+		jj_memo_ends[slot] = failed ? -1 : jj_scanpos;
+		jj_memo_fars[slot] = far;
+		if (max > far)
+			jj_scanmax = max;
+		return failed;
+	}
+
+	private void jj_memo_grow() {
+		long[] keys = jj_memo_keys;
+		int[] ends = jj_memo_ends;
+		int[] fars = jj_memo_fars;
+		int[] stamps = jj_memo_stamps;
+		int length = keys.length << 1;
+		jj_memo_keys = new long[length];
+		jj_memo_ends = new int[length];
+		jj_memo_fars = new int[length];
+		jj_memo_stamps = new int[length];
+		for (int i = 0; i < keys.length; i++) {
+			if (stamps[i] == jj_memo_stamp) {
+				int slot = jj_memo_slot(keys[i]);
+				jj_memo_stamps[slot] = jj_memo_stamp;
+				jj_memo_keys[slot] = keys[i];
+				jj_memo_ends[slot] = ends[i];
+				jj_memo_fars[slot] = fars[i];
+			}
+		}
+	}
+//@fi
 
 //@fi
 
@@ -236,6 +1023,27 @@ public class Parser
 	 * Get the next Token.
 	 */
 	final public Token getNextToken() {
+//@if(PARSE_BUDGET)
+		if (--jj_budget_tokens <= 0)
+			jj_budget_tokens();
+//@fi
+//@if(TOKEN_BUFFER)
+		jj_kind_at(++jj_pos);
+		jj_ntk = -1;
+//@if(ERROR_REPORTING)
+//@if(LAZY_ERRORS)
+		if (jj_replay)
+			jj_gen++;
+//@else
+		jj_gen++;
+//@fi
+//@fi
+//@if(DEBUG_PARSER)
+		trace_token(jj_tokens.get(jj_pos), " (in getNextToken)");
+//@fi
+		return jj_tokens.get(jj_pos);
+	}
+//@else
 //@if(CACHE_TOKENS)
 		if ((token = jj_nt).next != null)
 			jj_nt = jj_nt.next;
@@ -256,11 +1064,33 @@ public class Parser
 //@fi
 		return this.token;
 	}
+//@fi
 
 	/**
 	 * Get the specific Token.
 	 */
 	final public Token getToken(int index) {
+//@if(TOKEN_BUFFER)
+		return jj_tokens.get(jj_index(index));
+	}
+
+	/**
+	 * Get the kind of the specific Token.
+	 */
+	final public int getTokenKind(int index) {
+		return jj_kind_at(jj_index(index));
+	}
+
+	private int jj_index(int index) {
+//@if(LOOKAHEAD_NEEDED)
+		int t = jj_lookingAhead ? jj_scanpos : jj_pos;
+//@else
+		int t = jj_pos;
+//@fi
+		jj_kind_at(t + index);
+		return t + index;
+	}
+//@else
 //@if(LOOKAHEAD_NEEDED)
 		Token t = jj_lookingAhead ? jj_scanpos : token;
 //@else
@@ -274,7 +1104,13 @@ public class Parser
 		}
 		return t;
 	}
+//@fi
 
+//@if(TOKEN_BUFFER)
+	private int jj_ntk_f() {
+		return (jj_ntk = jj_kind_at(jj_pos + 1));
+	}
+//@else
 //@if(CACHE_TOKENS)
 //@else
 	private int jj_ntk_f() {
@@ -284,6 +1120,7 @@ public class Parser
 			return (jj_ntk = jj_nt.kind);
 	}
 //@fi
+//@fi
 
 //@if(ERROR_REPORTING)
 	private final java.util.List<int[]> jj_expentries = new java.util.ArrayList<>();
@@ -334,6 +1171,15 @@ public class Parser
 	 * Generate ParseException.
 	 */
 	public ParseException generateParseException() {
+//@if(LAZY_ERRORS)
+		if (!this.jj_replay) {
+			ParseException e = jj_replay_parse();
+			if (e != null) {
+				this.jj_kind = -1;
+				return e;
+			}
+		}
+//@fi
 		this.jj_expentries.clear();
 		boolean[] la1tokens = new boolean[__TOKEN_COUNT__];
 		if (this.jj_kind >= 0) {
@@ -367,19 +1213,80 @@ public class Parser
 		for (int i = 0; i < this.jj_expentries.size(); i++) {
 			exptokseq[i] = this.jj_expentries.get(i);
 		}
+//@if(TOKEN_BUFFER)
+		int maxSize = 1;
+		for (int[] sequence : exptokseq) {
+			maxSize = Math.max(maxSize, sequence.length);
+		}
+		jj_kind_at(this.jj_pos + maxSize);
+		Token token = this.jj_tokens.link(this.jj_pos, maxSize);
+//@else
+		Token token = this.token;
+//@fi
 
-		return new ParseException(this.token, exptokseq, ParserConstants.tokenImage,
+		return new ParseException(token, exptokseq, ParserConstants.tokenImage,
 				this.token_source == null ? null : Lexer.lexStateNames[this.token_source.curLexState]);
 	}
+//@if(LAZY_ERRORS)
+
+	/**
+	 * Records the outermost production and the token it starts after, when the production is
+	 * entered.
+	 */
+	private void jj_replay_enter(int production) {
+		jj_replay_production = production;
+		jj_replay_start = jj_pos;
+	}
+
+	/**
+	 * Replays the parse with the recording of the expected tokens. The replay runs the action-free
+	 * copy of the outermost production from the token it has started after, on a new parser that
+	 * shares the tokens. The semantic lookaheads are assumed to hold. It returns <code>null</code>
+	 * if the replay doesn't fail at the same token as the parse.
+	 */
+	private ParseException jj_replay_parse() {
+		if (jj_replay_depth == 0)
+			return null;
+		Parser replay = new Parser(this.token_source);
+		replay.jj_tokens = this.jj_tokens;
+		replay.jj_pos = this.jj_replay_start;
+		replay.jj_replay = true;
+		replay.trace_enabled = false;
+		try {
+			replay.jj_replay_production(this.jj_replay_production);
+		} catch (ParseException e) {
+			if (replay.jj_pos == this.jj_pos)
+				return e;
+		} catch (RuntimeException e) {
+			// The replay doesn't fail like the parse
+		}
+		return null;
+	}
+
+	private void jj_replay_production(int production) throws ParseException {
+		switch (production) {
+//@foreach(REPLAY_PRODUCTIONS)
+			case __REPLAY_PRODUCTIONS_INDEX__:
+				jj_replay___REPLAY_PRODUCTIONS_NAME__();
+				break;
+//@end
+			default:
+		}
+	}
+//@fi
 
 //@else
 	/** Generate ParseException. */
 	public ParseException generateParseException() {
+//@if(TOKEN_BUFFER)
+		Token errortok = getToken(1);
+//@else
 		Token errortok = token.next;
+//@fi
 //@if(KEEP_LINE_COLUMN)
-		int line = errortok.beginLine, column = errortok.beginColumn;
+		int line = errortok.getBeginLine(), column = errortok.getBeginColumn();
 //@fi
-		String mess = (errortok.kind == 0) ? tokenImage[0] : errortok.image;
+		String mess = (errortok.kind == 0) ? tokenImage[0] : errortok.toString();
 //@if(KEEP_LINE_COLUMN)
 		 return new ParseException("Parse error at line " + line + ", column " + column + ".  "
 			 + "Encountered: " + mess);
@@ -443,7 +1350,7 @@ public class Parser
 				System.out.print(": \\"" + TokenException.addEscapes(" + "t.image) + "\\"");
 			}
 			genCodeLine(
-				"	   System.out.println(" at line " + t.beginLine + " + "" column " + t.beginColumn + ">" + where);
+				"	   System.out.println(" at line " + t.getBeginLine() + " + "" column " + t.getBeginColumn() + ">" + where);
 		}
 	}
 
@@ -456,8 +1363,8 @@ public class Parser
 			if (t1.kind != 0 && !tokenImage[t1.kind].equals("\\"" + t1.image + "\\"")) {
 				 System.out.print(": \\"" + TokenException.addEscapes(" + "t1.image) + "\\"");
 			}
-			System.out.println(" at line " + t1.beginLine + ""
-				+ " column " + t1.beginColumn + ">; Expected token: <" + tokenImage[t2] + ">");
+			System.out.println(" at line " + t1.getBeginLine() + ""
+				+ " column " + t1.getBeginColumn() + ">; Expected token: <" + tokenImage[t2] + ">");
 		}
 	}
 
@@ -480,6 +1387,28 @@ public class Parser
 	private void jj_rescan_token() {
 		this.jj_rescan = true;
 		for (int i = 0; i < __JJ2_INDEX__; i++) {
+//@if(EXCEPTION_FREE_LOOKAHEAD)
+			JJCalls p = this.jj_2_rtns[i];
+
+			do {
+				if (p.gen > this.jj_gen) {
+					this.jj_la = p.arg;
+					this.jj_lastpos = this.jj_scanpos = p.first;
+					switch (i) {
+//@foreach(JJ2_OFFSET)
+						case __JJ2_OFFSET_INDEX__:
+							jj_3___JJ2_OFFSET_VALUE__();
+							break;
+//@end
+					}
+					if (this.jj_la_done) {
+						this.jj_la_done = false;
+						break;
+					}
+				}
+				p = p.next;
+			} while (p != null);
+//@else
 			try {
 				JJCalls p = this.jj_2_rtns[i];
 
@@ -499,6 +1428,7 @@ public class Parser
 				} while (p != null);
 			} catch (LookaheadSuccess ls) {
 			}
+//@fi
 		}
 		this.jj_rescan = false;
 	}
@@ -514,14 +1444,70 @@ public class Parser
 		}
 
 		p.gen = (this.jj_gen + xla) - this.jj_la;
+//@if(TOKEN_BUFFER)
+		p.first = this.jj_pos;
+//@else
 		p.first = this.token;
+//@fi
+		if (this.jj_saved_size == this.jj_saved.length) {
+			jj_saved_compact();
+		}
+		int tail = (this.jj_saved_head + this.jj_saved_size++) & (this.jj_saved.length - 1);
+		this.jj_saved[tail] = p;
+		this.jj_saved_gens[tail] = p.gen;
 		p.arg = xla;
 	}
 
+	/**
+	 * Drops the calls of the full ring that have been released or saved again. The ring only grows
+	 * if more than half of the calls are still needed.
+	 */
+	private void jj_saved_compact() {
+		int mask = this.jj_saved.length - 1;
+		int size = 0;
+		for (int i = 0; i < this.jj_saved_size; i++) {
+			int j = (this.jj_saved_head + i) & mask;
+			JJCalls c = this.jj_saved[j];
+			int gen = this.jj_saved_gens[j];
+			this.jj_saved[j] = null;
+			if (c.gen != gen)
+				continue;
+			if (gen <= this.jj_gen) {
+//@if(TOKEN_BUFFER)
+//@else
+				c.first = null;
+//@fi
+				continue;
+			}
+			int k = (this.jj_saved_head + size++) & mask;
+			this.jj_saved[k] = c;
+			this.jj_saved_gens[k] = gen;
+		}
+		this.jj_saved_size = size;
+
+		if (size > (this.jj_saved.length >> 1)) {
+			// The ring is unrolled into a larger one
+			JJCalls[] saved = new JJCalls[this.jj_saved.length << 1];
+			int[] gens = new int[saved.length];
+			for (int i = 0; i < this.jj_saved_size; i++) {
+				int j = (this.jj_saved_head + i) & (this.jj_saved.length - 1);
+				saved[i] = this.jj_saved[j];
+				gens[i] = this.jj_saved_gens[j];
+			}
+			this.jj_saved = saved;
+			this.jj_saved_gens = gens;
+			this.jj_saved_head = 0;
+		}
+	}
+
 	static final class JJCalls {
 
 		int     gen;
+//@if(TOKEN_BUFFER)
+		int     first;
+//@else
 		Token   first;
+//@fi
 		int     arg;
 		JJCalls next;
 	}
@@ -0,0 +1,240 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Parses many inputs concurrently with the __BATCH_PRODUCTION__ production. Each input is read and
+ * parsed by its own task on an executor, by default a virtual thread per input. The number of
+ * inputs that are read and parsed at once is bounded, the parsers are reused through a
+ * {@link ParserPool} of that size. The results are streamed in the order the inputs complete, with
+ * the time each input has waited for its turn and the time spent to read and parse it.
+ * <p>
+ * The parsers of the batch only share the static tables of the generated classes. The tables of
+ * the lexer are package-private, the token images of {@link ParserConstants#tokenImage} are public
+ * and must not be modified. A value must not depend on the parser that has produced it, the parser
+ * is returned to the pool once the input has been parsed.
+ */
+public class ParserBatch implements AutoCloseable {
+
+	private final java.util.concurrent.ExecutorService executor;
+	private final boolean                              shutdown;
+	private final java.util.concurrent.Semaphore       permits;
+	private final ParserPool                           pool;
+
+	/**
+	 * Constructs a batch that reads and parses each input on its own virtual thread, as many
+	 * inputs are parsed at once as there are processors.
+	 */
+	public ParserBatch() {
+		this(java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor(),
+				Runtime.getRuntime().availableProcessors(), true);
+	}
+
+	/**
+	 * Constructs a batch that reads and parses the inputs on the executor, up to parallelism inputs
+	 * are parsed at once. The executor is not shut down when the batch is closed.
+	 */
+	public ParserBatch(java.util.concurrent.ExecutorService executor, int parallelism) {
+		this(executor, parallelism, false);
+	}
+
+	private ParserBatch(java.util.concurrent.ExecutorService executor, int parallelism, boolean shutdown) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+		}
+		this.executor = executor;
+		this.shutdown = shutdown;
+		this.permits = new java.util.concurrent.Semaphore(parallelism);
+		this.pool = new ParserPool(parallelism);
+	}
+
+	/**
+	 * Parses the files, that are decoded as UTF-8.
+	 */
+	public java.util.stream.Stream<Result> parseFiles(java.util.Collection<java.nio.file.Path> paths) {
+		return parseFiles(paths, java.nio.charset.StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the files, that are decoded with the charset. A file that can't be read is reported
+	 * by a failed result.
+	 */
+	public java.util.stream.Stream<Result> parseFiles(java.util.Collection<java.nio.file.Path> paths,
+			java.nio.charset.Charset charset) {
+		java.util.List<java.util.concurrent.Callable<Result>> tasks = new java.util.ArrayList<>(paths.size());
+		for (java.nio.file.Path path : paths) {
+			tasks.add(() -> parse(path.toString(), () -> java.nio.file.Files.readString(path, charset)));
+		}
+		return submit(tasks);
+	}
+
+	/**
+	 * Parses the sources, that are mapped by their names.
+	 */
+	public java.util.stream.Stream<Result> parse(java.util.Map<String, ? extends CharSequence> sources) {
+		java.util.List<java.util.concurrent.Callable<Result>> tasks = new java.util.ArrayList<>(sources.size());
+		sources.forEach((name, text) -> tasks.add(() -> parse(name, () -> text)));
+		return submit(tasks);
+	}
+
+	/**
+	 * Shuts down the executor, if it has been created by the batch.
+	 */
+	@Override
+	public void close() {
+		if (this.shutdown) {
+			this.executor.close();
+		}
+	}
+
+	/**
+	 * Submits the tasks, the stream takes the results as the tasks complete. Closing the stream
+	 * cancels the tasks that haven't completed.
+	 */
+	private java.util.stream.Stream<Result> submit(java.util.List<java.util.concurrent.Callable<Result>> tasks) {
+		java.util.concurrent.CompletionService<Result> completion =
+				new java.util.concurrent.ExecutorCompletionService<>(this.executor);
+		java.util.List<java.util.concurrent.Future<Result>> futures = new java.util.ArrayList<>(tasks.size());
+		for (java.util.concurrent.Callable<Result> task : tasks) {
+			futures.add(completion.submit(task));
+		}
+
+		java.util.Iterator<Result> results = new java.util.Iterator<>() {
+
+			private int taken;
+
+			@Override
+			public boolean hasNext() {
+				return this.taken < futures.size();
+			}
+
+			@Override
+			public Result next() {
+				if (!hasNext()) {
+					throw new java.util.NoSuchElementException();
+				}
+				this.taken++;
+				try {
+					return completion.take().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for a result", e);
+				} catch (java.util.concurrent.ExecutionException e) {
+					// The failures of a parse are results, only errors are left
+					throw (Error) e.getCause();
+				}
+			}
+		};
+		return java.util.stream.StreamSupport
+				.stream(java.util.Spliterators.spliterator(results, futures.size(),
+						java.util.Spliterator.NONNULL), false)
+				.onClose(() -> futures.forEach(f -> f.cancel(true)));
+	}
+
+	/**
+	 * Reads and parses an input, once a permit has been taken. The time spent waiting for the
+	 * permit isn't part of the duration.
+	 */
+	private Result parse(String name, java.util.concurrent.Callable<? extends CharSequence> source) {
+		long start = System.nanoTime();
+		try {
+			this.permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Result(name, null, e, System.nanoTime() - start, 0);
+		}
+		long begin = System.nanoTime();
+		try {
+			__BATCH_TYPE__ value = null;
+			Parser parser = this.pool.acquire(source.call());
+			try {
+//@if(BATCH_VALUE)
+				value = parser.__BATCH_PRODUCTION__();
+//@else
+				parser.__BATCH_PRODUCTION__();
+//@if(BATCH_NODE)
+				value = parser.rootNode();
+//@fi
+//@fi
+			} finally {
+				this.pool.release(parser);
+			}
+			return new Result(name, value, null, begin - start, System.nanoTime() - begin);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Result(name, null, e, begin - start, System.nanoTime() - begin);
+		} catch (Exception e) {
+			return new Result(name, null, e, begin - start, System.nanoTime() - begin);
+		} finally {
+			this.permits.release();
+		}
+	}
+
+	/**
+	 * The result of an input of the batch: the value of the production, or the failure that has
+	 * stopped the input. A failure is a {@link ParseException}, a {@link TokenException}, an
+	 * exception of an action, or the exception of a file that can't be read.
+	 */
+	public static final class Result {
+
+		private final String         name;
+		private final __BATCH_TYPE__ value;
+		private final Exception      failure;
+		private final long           waitNanos;
+		private final long           nanos;
+
+		private Result(String name, __BATCH_TYPE__ value, Exception failure, long waitNanos, long nanos) {
+			this.name = name;
+			this.value = value;
+			this.failure = failure;
+			this.waitNanos = waitNanos;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Get the name of the input, the path of a file.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Returns <code>true</code> if the input has been parsed.
+		 */
+		public boolean isSuccess() {
+			return this.failure == null;
+		}
+
+		/**
+		 * Get the value of the production, or <code>null</code> if the input has failed.
+		 */
+		public __BATCH_TYPE__ getValue() {
+			return this.value;
+		}
+
+		/**
+		 * Get the failure of the input, or <code>null</code> if the input has been parsed.
+		 */
+		public Exception getFailure() {
+			return this.failure;
+		}
+
+		/**
+		 * Get the time the input has waited for its turn, before it has been read.
+		 */
+		public java.time.Duration getWaitDuration() {
+			return java.time.Duration.ofNanos(this.waitNanos);
+		}
+
+		/**
+		 * Get the time spent to read and parse the input.
+		 */
+		public java.time.Duration getDuration() {
+			return java.time.Duration.ofNanos(this.nanos);
+		}
+
+		@Override
+		public String toString() {
+			return this.name + ": " + (isSuccess() ? "Success" : this.failure.getMessage()) + " ("
+					+ (this.nanos / 1000) + "us)";
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * A thread-safe pool of parsers, that are reused for many short inputs. A pooled parser keeps its
+ * lexer and its {@link ArrayCharStream}: acquiring the parser resets the stream, the lexer and the
+ * parser in place for the text, the tables of the parser aren't allocated again.
+ * <p>
+ * The idle parsers are kept in the slots of an atomic array, the threads probe the slots from
+ * different positions without taking a lock. A parser that is released while all slots are taken
+ * is left to the garbage collector. An idle parser keeps the tokens of its last input until it is
+ * acquired again. The text is read by an {@link ArrayCharStream}, that doesn't process java-like
+ * unicode escapes.
+ */
+public class ParserPool {
+
+	private final java.util.concurrent.atomic.AtomicReferenceArray<Parser> parsers;
+
+	/**
+	 * Constructs a pool that keeps up to capacity idle parsers.
+	 */
+	public ParserPool(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.parsers = new java.util.concurrent.atomic.AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * Get an idle parser reset on the text, a new parser is created if no parser is idle.
+	 */
+	public Parser acquire(CharSequence text) {
+		int length = this.parsers.length();
+		int index = ParserPool.probe(length);
+		for (int i = 0; i < length; i++) {
+			Parser parser = this.parsers.get(index);
+			if ((parser != null) && this.parsers.compareAndSet(index, parser, null)) {
+				parser.ReInit(text);
+				return parser;
+			}
+			if (++index == length) {
+				index = 0;
+			}
+		}
+
+		ArrayCharStream input = new ArrayCharStream(text);
+		Parser parser = new Parser(new Lexer(input));
+		parser.jj_input = input;
+		return parser;
+	}
+
+	/**
+	 * Returns the parser to the pool, the parser must not be used after it has been released.
+	 */
+	public void release(Parser parser) {
+		int length = this.parsers.length();
+		int index = ParserPool.probe(length);
+		for (int i = 0; i < length; i++) {
+			if ((this.parsers.get(index) == null) && this.parsers.compareAndSet(index, null, parser)) {
+				return;
+			}
+			if (++index == length) {
+				index = 0;
+			}
+		}
+	}
+
+	/**
+	 * Get the slot where the current thread starts to probe.
+	 */
+	private static int probe(int length) {
+		int hash = System.identityHashCode(Thread.currentThread());
+		return ((hash ^ (hash >>> 16)) & 0x7fffffff) % length;
+	}
+}
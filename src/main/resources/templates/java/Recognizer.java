@@ -0,0 +1,158 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * The recognizer of the grammar: it decides whether the input matches a production, without
+ * running the actions, building nodes or creating tokens. Only the kinds of the tokens flow from
+ * the lexer, the semantic lookaheads are assumed to hold.
+ */
+public class Recognizer implements ParserConstants {
+
+	//@invoke(DUMP_NORMALPRODUCTIONS)
+	//@invoke(DUMP_LOOKAHEADS)
+	//@invoke(DUMP_EXPANSIONS)
+	/**
+	 * Generated Token Manager.
+	 */
+	public Lexer               token_source;
+	/**
+	 * The kinds of the tokens, the current token is at index {@link #jj_pos}.
+	 */
+	private int[]              jj_kinds = new int[64];
+	private int                jj_size;
+	private int                jj_pos;
+	private int                jj_ntk;
+//@if(JJ2_INDEX)
+	private int                jj_scanpos, jj_lastpos;
+	private int                jj_la;
+//@fi
+
+	/**
+	 * Constructor.
+	 */
+	public Recognizer(Provider stream) {
+		this(new Lexer(new JavaCharStream(stream)));
+	}
+
+	/**
+	 * Constructor.
+	 */
+	public Recognizer(String dsl) throws TokenException {
+		this(new StringProvider(dsl));
+	}
+
+	/**
+	 * Constructor with generated Token Manager.
+	 */
+	public Recognizer(Lexer tm) {
+		ReInit(tm);
+	}
+
+	/**
+	 * Reinitialise.
+	 */
+	public void ReInit(Lexer tm) {
+		token_source = tm;
+		jj_size = 1;
+		jj_pos = 0;
+		jj_ntk = -1;
+	}
+
+	/**
+	 * Returns <code>true</code> if the input starts with the production. Like the parser, the
+	 * production only has to match the whole input if it ends with the EOF token.
+	 */
+	public boolean recognize(String production) {
+		try {
+			switch (production) {
+//@foreach(RECOGNIZER_PRODUCTIONS)
+				case "__RECOGNIZER_PRODUCTIONS_NAME__":
+					__RECOGNIZER_PRODUCTIONS_NAME__();
+					break;
+//@end
+				default:
+					throw new IllegalArgumentException("Unknown production: " + production);
+			}
+			return true;
+		} catch (Mismatch | TokenException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Consumes the next token of the kind. The consumed kinds are dropped once they fill half of
+	 * the buffer, which never happens during a lookahead.
+	 */
+	private void jj_consume(int kind) {
+		if (jj_pos >= (jj_kinds.length >> 1)) {
+			jj_size -= jj_pos;
+			System.arraycopy(jj_kinds, jj_pos, jj_kinds, 0, jj_size);
+			jj_pos = 0;
+		}
+		if (jj_kind_at(jj_pos + 1) != kind)
+			throw Recognizer.jj_mismatch;
+		jj_pos++;
+		jj_ntk = -1;
+	}
+
+	/**
+	 * Get the kind of the token at the index, reads the kinds from the lexer as needed.
+	 */
+	private int jj_kind_at(int index) {
+		while (index >= jj_size) {
+			if (jj_size == jj_kinds.length)
+				jj_kinds = java.util.Arrays.copyOf(jj_kinds, jj_size << 1);
+			jj_kinds[jj_size++] = token_source.getNextKind();
+		}
+		return jj_kinds[index];
+	}
+
+	private int jj_ntk_f() {
+		return (jj_ntk = jj_kind_at(jj_pos + 1));
+	}
+//@if(JJ2_DECISION)
+
+	/**
+	 * Get the kind of the token at the index after the current token, for the lookaheads that are
+	 * decided without a scan.
+	 */
+	private int jj_la_kind(int index) {
+		return jj_kind_at(jj_pos + index);
+	}
+//@fi
+//@if(JJ2_INDEX)
+
+	@SuppressWarnings("serial")
+	static private final class LookaheadSuccess extends java.lang.RuntimeException {
+		@Override
+		public Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	static private final LookaheadSuccess jj_ls = new LookaheadSuccess();
+
+	private boolean jj_scan_token(int kind) {
+		if (jj_scanpos == jj_lastpos) {
+			jj_la--;
+			jj_lastpos = ++jj_scanpos;
+		} else {
+			jj_scanpos++;
+		}
+		if (jj_kind_at(jj_scanpos) != kind)
+			return true;
+		if (jj_la == 0 && jj_scanpos == jj_lastpos)
+			throw Recognizer.jj_ls;
+		return false;
+	}
+//@fi
+
+	@SuppressWarnings("serial")
+	static private final class Mismatch extends java.lang.RuntimeException {
+		private Mismatch() {
+			// The stack trace is never filled in
+			super(null, null, false, false);
+		}
+	}
+
+	static private final Mismatch jj_mismatch = new Mismatch();
+}
@@ -14,6 +14,13 @@ public class StringProvider implements Provider {
 		this._position = 0;
 	}
 
+	/**
+	 * Get the string, before the provider is closed.
+	 */
+	String getString() {
+		return this._string;
+	}
+
 	@Override
 	public int read(char[] cbuf, int off, int len) throws IOException {
 		int numCharsOutstandingInString = this._size - this._position;
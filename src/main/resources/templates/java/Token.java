@@ -37,6 +37,8 @@ public class Token {
 	 */
 	public Token specialToken;
 //@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
 
 
 	// The location in the file stream of the token.
@@ -44,6 +46,33 @@ public class Token {
 	public int beginColumn;
 	public int endLine;
 	public int endColumn;
+//@fi
+//@fi
+//@if(LAZY_IMAGES)
+
+
+	// The offsets of the first and last character of the token in the input.
+	public int beginOffset;
+	public int endOffset;
+
+	/**
+	 * The input of the token, that retains the characters of the image if the image is created on
+	 * demand.
+	 */
+	CharStream input;
+//@else
+//@if(LAZY_POSITIONS)
+
+
+	// The offsets of the first and last character of the token in the input.
+	public int beginOffset;
+	public int endOffset;
+
+	/**
+	 * The input of the token, that resolves the lines and columns of the offsets.
+	 */
+	CharStream input;
+//@fi
 //@fi
 
 	/**
@@ -59,12 +88,84 @@ public class Token {
 		this.kind = kind;
 		this.image = image;
 	}
+//@if(KEEP_LINE_COLUMN)
+
+	/**
+	 * Get the line of the first character of the token.
+	 */
+	public int getBeginLine() {
+//@if(LAZY_POSITIONS)
+		return (this.input == null) ? 0 : this.input.getLine(this.beginOffset);
+//@else
+		return this.beginLine;
+//@fi
+	}
+
+	/**
+	 * Get the column of the first character of the token.
+	 */
+	public int getBeginColumn() {
+//@if(LAZY_POSITIONS)
+		return (this.input == null) ? 0 : this.input.getColumn(this.beginOffset);
+//@else
+		return this.beginColumn;
+//@fi
+	}
+
+	/**
+	 * Get the line of the last character of the token.
+	 */
+	public int getEndLine() {
+//@if(LAZY_POSITIONS)
+		return (this.input == null) ? 0 : this.input.getLine(this.endOffset);
+//@else
+		return this.endLine;
+//@fi
+	}
+
+	/**
+	 * Get the column of the last character of the token.
+	 */
+	public int getEndColumn() {
+//@if(LAZY_POSITIONS)
+		return (this.input == null) ? 0 : this.input.getColumn(this.endOffset);
+//@else
+		return this.endColumn;
+//@fi
+	}
+//@fi
+//@if(LAZY_IMAGES)
+
+	/**
+	 * Returns the image as a view on the input, without creating a {@link String}.
+	 */
+	public CharSequence imageView() {
+		if (this.image != null || this.input == null) {
+			return this.image;
+		}
+		return new TokenImage(this.input, this.beginOffset, this.endOffset + 1);
+	}
+
+	/**
+	 * Returns the image, the {@link String} is created on the first call.
+	 */
+	public String getImage() {
+		if (this.image == null && this.input != null) {
+			this.image = this.input.GetImage(this.beginOffset, this.endOffset);
+		}
+		return this.image;
+	}
+//@fi
 
 	/**
 	 * Returns the image.
 	 */
 	@Override
 	public final String toString() {
+//@if(LAZY_IMAGES)
+		return getImage();
+//@else
 		return this.image;
+//@fi
 	}
 }
@@ -0,0 +1,371 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * Stores the tokens of the input as parallel primitive arrays (struct of arrays). A {@link Token}
+ * object is only created when it is requested with {@link #get(int)}, every other access works on
+ * the token index.
+ * <p>
+ * Index 0 is reserved for the start token that precedes the first token of the input.
+ * <p>
+ * The tokens before the oldest token the parser may still read are released when the buffer is
+ * full, the space is reused for the next tokens. The index of a token doesn't change, a released
+ * token can't be accessed anymore.
+ */
+public class TokenBuffer {
+
+	private static final int INITIAL_SIZE = 1024;
+
+	private int      size;
+	private int      base;
+	private int[]    kinds;
+	private String[] images;
+	private int[]    beginOffsets;
+	private int[]    endOffsets;
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+	private int[]    beginLines;
+	private int[]    beginColumns;
+	private int[]    endLines;
+	private int[]    endColumns;
+//@fi
+//@fi
+	private Token[]  specials;
+	private Token[]  tokens;
+
+	/**
+	 * The input of the tokens, that retains the characters of the images and resolves the
+	 * positions if they are created on demand.
+	 */
+	CharStream input;
+
+	/**
+	 * Constructs an empty buffer.
+	 */
+	public TokenBuffer() {
+		this.kinds = new int[TokenBuffer.INITIAL_SIZE];
+		this.images = new String[TokenBuffer.INITIAL_SIZE];
+		this.beginOffsets = new int[TokenBuffer.INITIAL_SIZE];
+		this.endOffsets = new int[TokenBuffer.INITIAL_SIZE];
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+		this.beginLines = new int[TokenBuffer.INITIAL_SIZE];
+		this.beginColumns = new int[TokenBuffer.INITIAL_SIZE];
+		this.endLines = new int[TokenBuffer.INITIAL_SIZE];
+		this.endColumns = new int[TokenBuffer.INITIAL_SIZE];
+//@fi
+//@fi
+		clear();
+	}
+
+	/**
+	 * Removes all tokens, the buffer keeps its capacity.
+	 */
+	public final void clear() {
+		this.size = 1;
+		this.base = 0;
+		this.specials = null;
+		this.tokens = null;
+		java.util.Arrays.fill(this.images, null);
+	}
+
+	/**
+	 * Get the number of tokens, including the start token and the released tokens.
+	 */
+	public final int size() {
+		return this.size;
+	}
+
+	/**
+	 * Get the kind of the token at the index.
+	 */
+	public final int kind(int index) {
+		return this.kinds[index - this.base];
+	}
+
+	/**
+	 * Get the image of the token at the index.
+	 */
+	public final String image(int index) {
+		int i = index - this.base;
+		String image = this.images[i];
+		if (image == null && index > 0) {
+			image = Lexer.jjstrLiteralImages[this.kinds[i]];
+//@if(LAZY_IMAGES)
+			if (image == null && this.input != null) {
+				image = this.images[i] = this.input.GetImage(this.beginOffsets[i], this.endOffsets[i]);
+			}
+//@else
+			if (image == null && this.input instanceof ArrayCharStream) {
+				// The input is held in memory, the image is created from the offsets on demand
+				image = this.images[i] =
+						((ArrayCharStream) this.input).GetImage(this.beginOffsets[i], this.endOffsets[i]);
+			}
+//@fi
+		}
+		return image;
+	}
+//@if(LAZY_IMAGES)
+
+	/**
+	 * Get the image of the token at the index as a view on the input, without creating a
+	 * {@link String}.
+	 */
+	public final CharSequence imageView(int index) {
+		int i = index - this.base;
+		String image = this.images[i];
+		if (image == null && index > 0) {
+			image = Lexer.jjstrLiteralImages[this.kinds[i]];
+			if (image == null && this.input != null) {
+				return new TokenImage(this.input, this.beginOffsets[i], this.endOffsets[i] + 1);
+			}
+		}
+		return image;
+	}
+//@fi
+
+	/**
+	 * Get the offset of the first character of the token at the index.
+	 */
+	public final int beginOffset(int index) {
+		return this.beginOffsets[index - this.base];
+	}
+
+	/**
+	 * Get the offset of the last character of the token at the index.
+	 */
+	public final int endOffset(int index) {
+		return this.endOffsets[index - this.base];
+	}
+//@if(KEEP_LINE_COLUMN)
+
+	/**
+	 * Get the line of the first character of the token at the index.
+	 */
+	public final int beginLine(int index) {
+//@if(LAZY_POSITIONS)
+		return this.input.getLine(this.beginOffsets[index - this.base]);
+//@else
+		return this.beginLines[index - this.base];
+//@fi
+	}
+
+	/**
+	 * Get the column of the first character of the token at the index.
+	 */
+	public final int beginColumn(int index) {
+//@if(LAZY_POSITIONS)
+		return this.input.getColumn(this.beginOffsets[index - this.base]);
+//@else
+		return this.beginColumns[index - this.base];
+//@fi
+	}
+
+	/**
+	 * Get the line of the last character of the token at the index.
+	 */
+	public final int endLine(int index) {
+//@if(LAZY_POSITIONS)
+		return this.input.getLine(this.endOffsets[index - this.base]);
+//@else
+		return this.endLines[index - this.base];
+//@fi
+	}
+
+	/**
+	 * Get the column of the last character of the token at the index.
+	 */
+	public final int endColumn(int index) {
+//@if(LAZY_POSITIONS)
+		return this.input.getColumn(this.endOffsets[index - this.base]);
+//@else
+		return this.endColumns[index - this.base];
+//@fi
+	}
+//@fi
+
+	/**
+	 * Appends a token. The image is <code>null</code> for tokens that match a string literal.
+	 *
+	 * @return the index of the token
+	 */
+	final int add(int kind, String image, int beginOffset, int endOffset,
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+			int beginLine, int beginColumn, int endLine, int endColumn,
+//@fi
+//@fi
+			Token specialToken) {
+		if (isFull()) {
+			grow();
+		}
+		int index = this.size++;
+		int i = index - this.base;
+		this.kinds[i] = kind;
+		this.images[i] = image;
+		this.beginOffsets[i] = beginOffset;
+		this.endOffsets[i] = endOffset;
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+		this.beginLines[i] = beginLine;
+		this.beginColumns[i] = beginColumn;
+		this.endLines[i] = endLine;
+		this.endColumns[i] = endColumn;
+//@fi
+//@fi
+		if (specialToken != null) {
+			if (this.specials == null) {
+				this.specials = new Token[this.kinds.length];
+			}
+			this.specials[i] = specialToken;
+		}
+		return index;
+	}
+
+	/**
+	 * Appends a token that has already been created, e.g. by a lexical action.
+	 *
+	 * @return the index of the token
+	 */
+	final int add(Token token, int beginOffset, int endOffset) {
+		int index = add(token.kind, token.image, beginOffset, endOffset,
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+				token.beginLine, token.beginColumn, token.endLine, token.endColumn,
+//@fi
+//@fi
+				token.specialToken);
+		if (this.tokens == null) {
+			this.tokens = new Token[this.kinds.length];
+		}
+		this.tokens[index - this.base] = token;
+		return index;
+	}
+
+	/**
+	 * Get the {@link Token} at the index. The token is created on the first request, the
+	 * {@link Token#next} field is not maintained.
+	 */
+	public final Token get(int index) {
+		if (this.tokens == null) {
+			this.tokens = new Token[this.kinds.length];
+		}
+		int i = index - this.base;
+		Token token = this.tokens[i];
+		if (token == null) {
+//@if(LAZY_IMAGES)
+			String image = this.images[i];
+			if (image == null && index > 0) {
+				image = Lexer.jjstrLiteralImages[this.kinds[i]];
+			}
+			token = new Token(this.kinds[i], image);
+			token.beginOffset = this.beginOffsets[i];
+			token.endOffset = this.endOffsets[i];
+			token.input = this.input;
+//@else
+			token = new Token(this.kinds[i], image(index));
+//@if(LAZY_POSITIONS)
+			token.beginOffset = this.beginOffsets[i];
+			token.endOffset = this.endOffsets[i];
+			token.input = this.input;
+//@fi
+//@fi
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+			token.beginLine = this.beginLines[i];
+			token.beginColumn = this.beginColumns[i];
+			token.endLine = this.endLines[i];
+			token.endColumn = this.endColumns[i];
+//@fi
+//@fi
+			if (this.specials != null) {
+				token.specialToken = this.specials[i];
+			}
+			this.tokens[i] = token;
+		}
+		return token;
+	}
+
+	/**
+	 * Get the {@link Token} at the index, with the {@link Token#next} field linked for the
+	 * following tokens up to the provided count.
+	 */
+	public final Token link(int index, int count) {
+		Token token = get(index);
+		Token last = token;
+		for (int i = index + 1; i <= (index + count) && i < this.size; i++) {
+			last = last.next = get(i);
+		}
+		return token;
+	}
+
+	/**
+	 * Returns <code>true</code> if the next token doesn't fit into the arrays.
+	 */
+	final boolean isFull() {
+		return (this.size - this.base) == this.kinds.length;
+	}
+
+	/**
+	 * Releases the tokens before the index, if they take at least half of the arrays. The kept
+	 * tokens are moved to the start of the arrays, so that the buffer doesn't grow with the input.
+	 */
+	final void release(int index) {
+		int count = index - this.base;
+		if (count < (this.kinds.length >> 1)) {
+			return;
+		}
+		int kept = this.size - index;
+		System.arraycopy(this.kinds, count, this.kinds, 0, kept);
+		System.arraycopy(this.images, count, this.images, 0, kept);
+		System.arraycopy(this.beginOffsets, count, this.beginOffsets, 0, kept);
+		System.arraycopy(this.endOffsets, count, this.endOffsets, 0, kept);
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+		System.arraycopy(this.beginLines, count, this.beginLines, 0, kept);
+		System.arraycopy(this.beginColumns, count, this.beginColumns, 0, kept);
+		System.arraycopy(this.endLines, count, this.endLines, 0, kept);
+		System.arraycopy(this.endColumns, count, this.endColumns, 0, kept);
+//@fi
+//@fi
+		java.util.Arrays.fill(this.images, kept, kept + count, null);
+		if (this.specials != null) {
+			System.arraycopy(this.specials, count, this.specials, 0, kept);
+			java.util.Arrays.fill(this.specials, kept, kept + count, null);
+		}
+		if (this.tokens != null) {
+			System.arraycopy(this.tokens, count, this.tokens, 0, kept);
+			java.util.Arrays.fill(this.tokens, kept, kept + count, null);
+		}
+		this.base = index;
+	}
+
+	private void grow() {
+		int length = this.kinds.length << 1;
+		this.kinds = java.util.Arrays.copyOf(this.kinds, length);
+		this.images = java.util.Arrays.copyOf(this.images, length);
+		this.beginOffsets = java.util.Arrays.copyOf(this.beginOffsets, length);
+		this.endOffsets = java.util.Arrays.copyOf(this.endOffsets, length);
+//@if(KEEP_LINE_COLUMN)
+//@if(LAZY_POSITIONS)
+//@else
+		this.beginLines = java.util.Arrays.copyOf(this.beginLines, length);
+		this.beginColumns = java.util.Arrays.copyOf(this.beginColumns, length);
+		this.endLines = java.util.Arrays.copyOf(this.endLines, length);
+		this.endColumns = java.util.Arrays.copyOf(this.endColumns, length);
+//@fi
+//@fi
+		if (this.specials != null) {
+			this.specials = java.util.Arrays.copyOf(this.specials, length);
+		}
+		if (this.tokens != null) {
+			this.tokens = java.util.Arrays.copyOf(this.tokens, length);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * A view of a token image on the input retained by the {@link CharStream}. The characters are
+ * only copied into a {@link String} when {@link #toString()} is called.
+ */
+public final class TokenImage implements CharSequence {
+
+	private final CharStream input;
+	private final int        begin;
+	private final int        end;
+	private       String     image;
+
+	/**
+	 * Constructs a view from the begin offset (inclusive) to the end offset (exclusive).
+	 */
+	TokenImage(CharStream input, int begin, int end) {
+		this.input = input;
+		this.begin = begin;
+		this.end = end;
+	}
+
+	@Override
+	public int length() {
+		return this.end - this.begin;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return this.input.charAt(this.begin + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length() || start > end) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new TokenImage(this.input, this.begin + start, this.begin + end);
+	}
+
+	/**
+	 * Returns <code>true</code> if the view has the same characters as the text.
+	 */
+	public boolean contentEquals(CharSequence text) {
+		if (text.length() != length()) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (this.input.charAt(this.begin + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the image, the {@link String} is created on the first call.
+	 */
+	@Override
+	public String toString() {
+		if (this.image == null) {
+			this.image = (this.begin == this.end) ? "" : this.input.GetImage(this.begin, this.end - 1);
+		}
+		return this.image;
+	}
+}
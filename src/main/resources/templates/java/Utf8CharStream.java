@@ -0,0 +1,590 @@
+package __JAVA_PACKAGE__;
+
+/**
+ * A {@link CharStream} that reads UTF-8 encoded bytes directly from a {@link java.nio.ByteBuffer},
+ * e.g. a {@link java.nio.MappedByteBuffer}. ASCII bytes are returned as they are, only multi-byte
+ * sequences are decoded. Characters outside of the basic multilingual plane are returned as
+ * surrogate pairs, malformed sequences as the replacement character.
+ * <p>
+ * The bytes are neither decoded into a buffer nor copied. The images are decoded from the input
+ * when they are requested, lines and columns are computed on demand from an index of the line
+ * starts. The stream doesn't process java-like unicode escapes.
+ * <p>
+ * The bytes are addressed by long positions in windows of 1GB, so a file larger than 2GB is mapped
+ * window by window. The offsets of the tokens are ints, they wrap around after 2^31 characters.
+ * Only the lazy images and positions resolve the offsets, they refuse a longer input.
+ */
+public class Utf8CharStream extends CharStream {
+
+	private static final int BUFFER_SIZE  = 8192;
+	// The windows of the input, a buffer is indexed by ints
+	private static final int WINDOW_SHIFT = 30;
+	private static final int WINDOW_SIZE  = 1 << Utf8CharStream.WINDOW_SHIFT;
+	private static final int WINDOW_MASK  = Utf8CharStream.WINDOW_SIZE - 1;
+
+	private final java.nio.ByteBuffer[] windows;
+	private final long                  base;
+	private final long                  limit;
+
+	private long    pos;
+	private char    low;
+	private long    last        = -1;
+	private boolean lastLow;
+	private long    offset      = -1;
+
+	private long    tokenBegin;
+	private boolean tokenBeginLow;
+	private long    tokenBeginOffset;
+	private long    tokenBeginLast;
+	private boolean tokenBeginLastLow;
+	private boolean tokenAscii;
+//@if(LAZY_OFFSETS)
+
+	private int[]  indexChars = new int[64];
+	private long[] indexBytes = new long[64];
+	private int    indexSize  = 0;
+//@fi
+//@if(KEEP_LINE_COLUMN)
+
+	private long[] lineStarts  = new long[64];
+	private int    lineCount   = 1;
+	private long   lineLimit;
+	private int    lineDelta   = 0;
+	private int    columnLine  = -1;
+	private int    columnDelta;
+	private int    cachedLine  = -1;
+	private long   cachedPos;
+	private int    cachedColumn;
+//@fi
+
+	/**
+	 * Constructs a stream that reads the bytes from the position to the limit of the buffer, the
+	 * buffer is not modified.
+	 */
+	public Utf8CharStream(java.nio.ByteBuffer bytes) {
+		this(Utf8CharStream.split(bytes), bytes.position(), bytes.limit());
+	}
+
+	/**
+	 * Constructs a stream that reads the bytes of the channel. A {@link java.nio.channels.FileChannel}
+	 * is mapped into memory from its current position, window by window. Any other channel is read
+	 * completely.
+	 */
+	public Utf8CharStream(java.nio.channels.ReadableByteChannel channel) throws java.io.IOException {
+		this(Utf8CharStream.read(channel));
+	}
+
+	private Utf8CharStream(java.nio.ByteBuffer[] windows) {
+		this(windows, 0, Utf8CharStream.length(windows));
+	}
+
+	/**
+	 * Constructs a stream on the windows, each window but the last one has the size of a window.
+	 */
+	private Utf8CharStream(java.nio.ByteBuffer[] windows, long base, long limit) {
+		this.windows = windows;
+		this.base = base;
+		this.limit = limit;
+		this.pos = base;
+//@if(KEEP_LINE_COLUMN)
+		this.lineStarts[0] = base;
+		this.lineLimit = base;
+//@fi
+	}
+
+	/**
+	 * Splits the buffer up to its limit into windows, the bytes are not copied.
+	 */
+	private static java.nio.ByteBuffer[] split(java.nio.ByteBuffer bytes) {
+		java.nio.ByteBuffer[] windows = new java.nio.ByteBuffer[(bytes.limit() >>> Utf8CharStream.WINDOW_SHIFT) + 1];
+		for (int i = 0; i < windows.length; i++) {
+			int position = i << Utf8CharStream.WINDOW_SHIFT;
+			windows[i] = bytes.slice(position, Math.min(Utf8CharStream.WINDOW_SIZE, bytes.limit() - position));
+		}
+		return windows;
+	}
+
+	private static long length(java.nio.ByteBuffer[] windows) {
+		long length = 0;
+		for (java.nio.ByteBuffer window : windows) {
+			length += window.limit();
+		}
+		return length;
+	}
+
+	private static java.nio.ByteBuffer[] read(java.nio.channels.ReadableByteChannel channel)
+			throws java.io.IOException {
+		if (channel instanceof java.nio.channels.FileChannel) {
+			java.nio.channels.FileChannel file = (java.nio.channels.FileChannel) channel;
+			long start = file.position();
+			long size = Math.max(file.size() - start, 0);
+			java.nio.ByteBuffer[] windows = new java.nio.ByteBuffer[(int) (size >>> Utf8CharStream.WINDOW_SHIFT) + 1];
+			for (int i = 0; i < windows.length; i++) {
+				long position = (long) i << Utf8CharStream.WINDOW_SHIFT;
+				windows[i] = file.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, start + position,
+						Math.min(Utf8CharStream.WINDOW_SIZE, size - position));
+			}
+			return windows;
+		}
+		if ((channel instanceof java.nio.channels.SelectableChannel)
+				&& !((java.nio.channels.SelectableChannel) channel).isBlocking()) {
+			throw new IllegalArgumentException("The channel is in non-blocking mode");
+		}
+
+		java.util.List<java.nio.ByteBuffer> windows = new java.util.ArrayList<>();
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(Utf8CharStream.BUFFER_SIZE);
+		int count;
+		while ((count = channel.read(buffer)) >= 0) {
+			if (!buffer.hasRemaining()) {
+				if (buffer.capacity() == Utf8CharStream.WINDOW_SIZE) {
+					windows.add(buffer.flip());
+					buffer = java.nio.ByteBuffer.allocate(Utf8CharStream.BUFFER_SIZE);
+				} else {
+					buffer = java.nio.ByteBuffer.allocate(buffer.capacity() << 1).put(buffer.flip());
+				}
+			} else if (count == 0) {
+				// A channel that has no bytes available yet, the thread gives way to the writer
+				Thread.yield();
+			}
+		}
+		windows.add(buffer.flip());
+		return windows.toArray(new java.nio.ByteBuffer[0]);
+	}
+
+	/**
+	 * Get the byte at the position.
+	 */
+	private byte get(long position) {
+		return this.windows[(int) (position >>> Utf8CharStream.WINDOW_SHIFT)]
+				.get((int) position & Utf8CharStream.WINDOW_MASK);
+	}
+
+	@Override
+	public char BeginToken() throws java.io.IOException {
+		this.tokenBeginLow = (this.low != 0);
+		this.tokenBegin = this.tokenBeginLow ? this.last : this.pos;
+		this.tokenBeginOffset = this.offset + 1;
+		this.tokenBeginLast = this.last;
+		this.tokenBeginLastLow = this.lastLow;
+		this.tokenAscii = !this.tokenBeginLow;
+		return readChar();
+	}
+
+	@Override
+	public char readChar() throws java.io.IOException {
+		if ((this.low == 0) && (this.pos >= this.limit)) {
+			throw new java.io.IOException();
+		}
+		return next();
+	}
+
+	/**
+	 * Reads the next character, ASCII bytes are returned without decoding.
+	 */
+	private char next() {
+		this.offset++;
+		if (this.low != 0) {
+			char c = this.low;
+			this.low = 0;
+			this.lastLow = true;
+			return c;
+		}
+
+		this.last = this.pos;
+		this.lastLow = false;
+		byte b = get(this.pos);
+		if (b >= 0) {
+			this.pos++;
+			return (char) b;
+		}
+
+		this.tokenAscii = false;
+		int n = sequenceLength(this.pos);
+		int cp = codePoint(this.pos, n);
+		this.pos += n;
+		if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+//@if(LAZY_OFFSETS)
+			if (n > 1) {
+				index(Utf8CharStream.offset(this.offset + 1), this.pos);
+			}
+//@fi
+			return (char) cp;
+		}
+//@if(LAZY_OFFSETS)
+		index(Utf8CharStream.offset(this.offset + 1), ~this.last);
+		index(Utf8CharStream.offset(this.offset + 2), this.pos);
+//@fi
+		this.low = Character.lowSurrogate(cp);
+		return Character.highSurrogate(cp);
+	}
+
+	@Override
+	public void backup(int amount) {
+		if (this.tokenAscii) {
+			this.offset -= amount;
+			this.pos -= amount;
+			this.low = 0;
+			if (this.offset < this.tokenBeginOffset) {
+				this.last = this.tokenBeginLast;
+				this.lastLow = this.tokenBeginLastLow;
+			} else {
+				this.last = this.pos - 1;
+				this.lastLow = false;
+			}
+			return;
+		}
+
+		// The token contains multi-byte sequences, so it is decoded again from the begin
+		int count = (int) (this.offset - amount - this.tokenBeginOffset) + 1;
+		this.pos = this.tokenBegin;
+		this.low = 0;
+		if (this.tokenBeginLow) {
+			this.pos += sequenceLength(this.pos);
+			this.low = Character.lowSurrogate(codePoint(this.tokenBegin, (int) (this.pos - this.tokenBegin)));
+		}
+		this.offset = this.tokenBeginOffset - 1;
+		this.last = this.tokenBeginLast;
+		this.lastLow = this.tokenBeginLastLow;
+		this.tokenAscii = !this.tokenBeginLow;
+		for (int i = 0; i < count; i++) {
+			next();
+		}
+	}
+
+	@Override
+	public int getBeginOffset() {
+		return Utf8CharStream.offset(this.tokenBeginOffset);
+	}
+
+	@Override
+	public int getEndOffset() {
+		return Utf8CharStream.offset(this.offset);
+	}
+
+	/**
+	 * Get the offset as an int, the offsets wrap around after 2^31 characters.
+	 */
+	private static int offset(long offset) {
+//@if(LAZY_OFFSETS)
+		if (offset > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The lazy images and positions resolve the offsets of at most "
+					+ Integer.MAX_VALUE + " characters");
+		}
+//@fi
+		return (int) offset;
+	}
+
+	@Override
+	public String GetImage() {
+		int count = (int) (this.offset - this.tokenBeginOffset) + 1;
+		return (count <= 0) ? "" : new String(decode(this.tokenBegin, this.tokenBeginLow, count));
+	}
+
+	@Override
+	public char[] GetSuffix(int len) {
+		int count = (int) (this.offset - this.tokenBeginOffset) + 1;
+		char[] chars = decode(this.tokenBegin, this.tokenBeginLow, count);
+		return java.util.Arrays.copyOfRange(chars, count - len, count);
+	}
+//@if(LAZY_IMAGES)
+
+	/**
+	 * Get the character at the offset.
+	 */
+	public char charAt(int offset) {
+		int i = find(offset);
+		long p = position(offset, i);
+		if ((i >= 0) && (this.indexBytes[i] < 0)) {
+			return Character.lowSurrogate(codePoint(p, sequenceLength(p)));
+		}
+		int cp = codePoint(p, sequenceLength(p));
+		return (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) ? (char) cp : Character.highSurrogate(cp);
+	}
+
+	/**
+	 * Get the image from the begin offset to the end offset (inclusive).
+	 */
+	public String GetImage(int beginOffset, int endOffset) {
+		int i = find(beginOffset);
+		boolean lowFirst = (i >= 0) && (this.indexBytes[i] < 0);
+		return new String(decode(position(beginOffset, i), lowFirst, (endOffset - beginOffset) + 1));
+	}
+
+	@Override
+	public CharSequence GetImageView() {
+		return new TokenImage(this, getBeginOffset(), Utf8CharStream.offset(this.offset + 1));
+	}
+//@fi
+//@if(LAZY_OFFSETS)
+
+	/**
+	 * Records the byte position of the character at the offset, the index is only extended for
+	 * characters that haven't been read before.
+	 */
+	private void index(int offset, long position) {
+		if ((this.indexSize > 0) && (this.indexChars[this.indexSize - 1] >= offset)) {
+			return;
+		}
+		if (this.indexSize == this.indexChars.length) {
+			this.indexChars = java.util.Arrays.copyOf(this.indexChars, this.indexSize << 1);
+			this.indexBytes = java.util.Arrays.copyOf(this.indexBytes, this.indexSize << 1);
+		}
+		this.indexChars[this.indexSize] = offset;
+		this.indexBytes[this.indexSize++] = position;
+	}
+
+	/**
+	 * Get the last index entry at or before the offset, or -1.
+	 */
+	private int find(int offset) {
+		int low = 0;
+		int high = this.indexSize - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (this.indexChars[mid] <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Get the byte position of the character at the offset from its index entry, the low surrogate
+	 * of a supplementary character is at the position of its sequence.
+	 */
+	private long position(int offset, int i) {
+		if (i < 0) {
+			return this.base + offset;
+		}
+		return (this.indexBytes[i] < 0) ? ~this.indexBytes[i] : this.indexBytes[i] + (offset - this.indexChars[i]);
+	}
+//@fi
+
+	/**
+	 * Decodes the characters from the byte position, the first character is the low surrogate of
+	 * the sequence if lowFirst is set.
+	 */
+	private char[] decode(long position, boolean lowFirst, int count) {
+		char[] chars = new char[count];
+		long p = position;
+		int i = 0;
+		while (i < count) {
+			byte b = get(p);
+			if (b >= 0) {
+				chars[i++] = (char) b;
+				p++;
+				continue;
+			}
+
+			int n = sequenceLength(p);
+			int cp = codePoint(p, n);
+			p += n;
+			if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				chars[i++] = (char) cp;
+				continue;
+			}
+			if (lowFirst) {
+				lowFirst = false;
+			} else {
+				chars[i++] = Character.highSurrogate(cp);
+			}
+			if (i < count) {
+				chars[i++] = Character.lowSurrogate(cp);
+			}
+		}
+		return chars;
+	}
+
+	/**
+	 * Get the length of the UTF-8 sequence at the byte position, a malformed sequence has the
+	 * length 1.
+	 */
+	private int sequenceLength(long position) {
+		int b = get(position) & 0xFF;
+		if ((b < 0xC2) || (b > 0xF4)) {
+			return 1;
+		}
+		int n = (b < 0xE0) ? 2 : (b < 0xF0) ? 3 : 4;
+		if ((position + n) > this.limit) {
+			return 1;
+		}
+		for (int i = 1; i < n; i++) {
+			if ((get(position + i) & 0xC0) != 0x80) {
+				return 1;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Decodes the code point of the UTF-8 sequence with the length at the byte position.
+	 */
+	private int codePoint(long position, int length) {
+		int b = get(position);
+		if (length == 1) {
+			return (b >= 0) ? b : 0xFFFD;
+		}
+		int cp = b & (0x7F >> length);
+		for (int i = 1; i < length; i++) {
+			cp = (cp << 6) | (get(position + i) & 0x3F);
+		}
+		return (cp <= Character.MAX_CODE_POINT) ? cp : 0xFFFD;
+	}
+
+	@Override
+	public int getEndColumn() {
+//@if(KEEP_LINE_COLUMN)
+		return column(this.last, this.lastLow);
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getEndLine() {
+//@if(KEEP_LINE_COLUMN)
+		return lineIndex(this.last) + 1 + this.lineDelta;
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getBeginColumn() {
+//@if(KEEP_LINE_COLUMN)
+		return column(this.tokenBegin, this.tokenBeginLow);
+//@else
+		return -1;
+//@fi
+	}
+
+	@Override
+	public int getBeginLine() {
+//@if(KEEP_LINE_COLUMN)
+		return lineIndex(this.tokenBegin) + 1 + this.lineDelta;
+//@else
+		return -1;
+//@fi
+	}
+//@if(KEEP_LINE_COLUMN)
+
+	/**
+	 * Adjusts the line and column numbers for the start of the current token, the positions of
+	 * the following characters are shifted accordingly.
+	 */
+	@Override
+	public void adjustBeginLineColumn(int newLine, int newCol) {
+		int index = lineIndex(this.tokenBegin);
+		this.lineDelta = newLine - (index + 1);
+		this.columnLine = index;
+		this.columnDelta = 0;
+		this.columnDelta = newCol - column(this.tokenBegin, this.tokenBeginLow);
+	}
+//@if(LAZY_POSITIONS)
+
+	/**
+	 * Get the line of the character at the offset, the offset is mapped to its byte position.
+	 */
+	@Override
+	public int getLine(int offset) {
+		return lineIndex(position(offset, find(offset))) + 1 + this.lineDelta;
+	}
+
+	/**
+	 * Get the column of the character at the offset, the offset is mapped to its byte position.
+	 */
+	@Override
+	public int getColumn(int offset) {
+		int i = find(offset);
+		return column(position(offset, i), (i >= 0) && (this.indexBytes[i] < 0));
+	}
+//@fi
+
+	/**
+	 * Get the index of the line that contains the byte position. The line starts are indexed up
+	 * to the position on the first request.
+	 */
+	private int lineIndex(long position) {
+		if (position < this.base) {
+			return 0;
+		}
+		long end = Math.min(position, this.limit - 1);
+		for (long i = this.lineLimit; i <= end; i++) {
+			byte b = get(i);
+			if ((b == '\n') || ((b == '\r') && (((i + 1) >= this.limit) || (get(i + 1) != '\n')))) {
+				if (this.lineCount == this.lineStarts.length) {
+					this.lineStarts = java.util.Arrays.copyOf(this.lineStarts, this.lineCount << 1);
+				}
+				this.lineStarts[this.lineCount++] = i + 1;
+			}
+		}
+		this.lineLimit = Math.max(this.lineLimit, end + 1);
+
+		int low = 0;
+		int high = this.lineCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.lineStarts[mid] <= position) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the column of the character at the byte position, tabs are expanded to the tab size. The
+	 * characters of a line are counted from the last requested column of the same line, so
+	 * ascending requests don't scan the line again.
+	 */
+	private int column(long position, boolean lowSurrogate) {
+		if (position < this.base) {
+			return 0;
+		}
+		int index = lineIndex(position);
+		if ((index != this.cachedLine) || (position < this.cachedPos)) {
+			this.cachedLine = index;
+			this.cachedPos = this.lineStarts[index];
+			this.cachedColumn = 0;
+		}
+
+		int tabSize = getTabSize(0);
+		int column = this.cachedColumn;
+		long p = this.cachedPos;
+		while (p < position) {
+			int n = sequenceLength(p);
+			column = advance(column, p, n, tabSize);
+			p += n;
+		}
+		this.cachedPos = p;
+		this.cachedColumn = column;
+
+		if (position < this.limit) {
+			int n = sequenceLength(position);
+			column = advance(column, position, n, tabSize);
+			if ((n == 4) && !lowSurrogate) {
+				column--;
+			}
+		}
+		return (index == this.columnLine) ? column + this.columnDelta : column;
+	}
+
+	/**
+	 * Advances the column over the UTF-8 sequence, a supplementary character takes two columns.
+	 */
+	private int advance(int column, long position, int length, int tabSize) {
+		if (length == 4) {
+			return column + 2;
+		}
+		column++;
+		if ((length == 1) && (get(position) == '\t')) {
+			column--;
+			column += tabSize - (column % tabSize);
+		}
+		return column;
+	}
+//@fi
+}
@@ -0,0 +1,90 @@
+package org.hivevm.cc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates a parser from a grammar, compiles it with a driver and runs the driver on the generated
+ * classes.
+ *
+ * <p>The driver is the source of a class {@code org.example.Driver} that implements
+ * {@code Callable<String>}. It is compiled into the package of the generated classes, so that it can
+ * use their package-private members, and its result is what the tests compare.
+ */
+final class GeneratedCode {
+
+    private GeneratedCode() {}
+
+    /**
+     * Runs the driver on the parser generated from the grammar, the grammar and the classes are
+     * written to the directory.
+     */
+    static String run(Path dir, String grammar, String driver) throws Exception {
+        var name = grammar.substring(grammar.indexOf("grammar ") + 8, grammar.indexOf(';')).trim();
+        var source = Files.createDirectories(dir).resolve(name + ".jj");
+        Files.writeString(source, grammar);
+
+        var target = dir.resolve("generated");
+        var builder = new ParserBuilder();
+        builder.setLanguage(Language.JAVA);
+        builder.setTargetDir(target.toFile());
+        builder.setParserFile(source.toFile());
+        builder.build().parse();
+
+        var driverFile = Files.createDirectories(target.resolve("org/example")).resolve("Driver.java");
+        Files.writeString(driverFile, driver);
+
+        List<File> sources;
+        try (Stream<Path> paths = Files.walk(target)) {
+            sources = paths.filter(p -> p.toString().endsWith(".java")).map(Path::toFile)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        var classes = Files.createDirectories(dir.resolve("classes"));
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            var ok = compiler.getTask(null, files, diagnostics, List.of("-d", classes.toString()), null,
+                    files.getJavaFileObjectsFromFiles(sources)).call();
+
+            var errors = diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == javax.tools.Diagnostic.Kind.ERROR)
+                    .map(Object::toString).collect(Collectors.joining("\n"));
+            assertTrue(ok, "generated code for " + name + " does not compile:\n" + errors);
+        }
+
+        try (var loader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+                GeneratedCode.class.getClassLoader())) {
+            @SuppressWarnings("unchecked")
+            var call = (Callable<String>) loader.loadClass("org.example.Driver").getConstructor()
+                    .newInstance();
+            return call.call();
+        }
+    }
+
+    /**
+     * Get the grammar with the options added after the package of the generated classes.
+     */
+    static String withOptions(String grammar, String... options) {
+        var option = "JAVA_PACKAGE: \"org.example\"";
+        var builder = new StringBuilder(option);
+        for (var o : options) {
+            builder.append(",\n  ").append(o);
+        }
+        return grammar.replace(option, builder.toString());
+    }
+}
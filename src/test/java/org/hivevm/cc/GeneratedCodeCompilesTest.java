@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
@@ -86,6 +89,632 @@ class GeneratedCodeCompilesTest {
             ;
             """;
 
+    /** Syntactic lookahead on top of the struct-of-arrays token buffer. */
+    private static final String TOKEN_BUFFER = """
+            grammar Buffered;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              TOKEN_BUFFER: true
+            }
+
+            Input =
+              ( LOOKAHEAD(2) call() | assign() )* <EOF>
+            ;
+
+            call =
+              <ID> < LPAREN > < RPAREN >
+            ;
+
+            assign =
+            <?
+              Token t;
+            ?>
+              t=<ID> < EQ > <NUMBER>
+            <?
+              getToken(0).image.length();
+            ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < EQ: "=" >
+            | < ID: (["a"-"z"])+ >
+            | < NUMBER: (["0"-"9"])+ >
+            ;
+            """;
+
+    /** A table driven lexer with a lexical state and non-ASCII character ranges. */
+    private static final String TABLE_LEXER = """
+            grammar Tables;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              TABLE_LEXER: true
+            }
+
+            Input =
+              ( <ID> | <NUMBER> )* <EOF>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            TOKEN =
+              < ID: ["a"-"z", "\\u00e0"-"\\u00ff"] (["a"-"z", "0"-"9", "\\u00e0"-"\\u00ff"])* >
+            | < NUMBER: (["0"-"9"])+ ("." (["0"-"9"])+)? >
+            ;
+            """;
+
+    /** A char stream that doesn't keep the lines and columns of the tokens. */
+    private static final String NO_LINE_COLUMN = """
+            grammar Positions;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              KEEP_LINE_COLUMN: false
+            }
+
+            Input =
+              ( <ID> | <STRING> )* <EOF>
+            ;
+
+            SKIP = " " | "\\t" | "\\n" | "\\r" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            | < STRING: "\\"" (~["\\""])* "\\"" >
+            ;
+            """;
+
+    /** Token positions resolved from the offsets, with lazy images on the token buffer. */
+    private static final String LAZY_POSITIONS = """
+            grammar Offsets;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              LAZY_POSITIONS: true,
+              LAZY_IMAGES: true,
+              TOKEN_BUFFER: true
+            }
+
+            Input =
+              ( LOOKAHEAD(2) call() | <ID> )* <EOF>
+            ;
+
+            call =
+            <?
+              Token t;
+            ?>
+              t=<ID> < LPAREN > < RPAREN >
+            <?
+              int line = t.getBeginLine() + t.getEndColumn();
+            ?>
+            ;
+
+            SKIP = " " | "\\t" | "\\n" | "\\r" ;
+
+            TOKEN =
+              < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** An incremental lexer for a grammar with special tokens and a MORE lexical state. */
+    private static final String INCREMENTAL_LEXER = """
+            grammar Incremental;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              INCREMENTAL_LEXER: true
+            }
+
+            Input =
+              ( <ID> | <NUMBER> )* <EOF>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            | < NUMBER: (["0"-"9"])+ >
+            ;
+            """;
+
+    /** A parser pool for a tree grammar with syntactic lookahead. */
+    private static final String PARSER_POOL = """
+            grammar Pooled;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              PARSER_POOL: true,
+              NODE_MULTI: true
+            }
+
+            Input() #Root =
+              ( LOOKAHEAD(2) call() | <ID> )* <EOF>
+            ;
+
+            call() #Call =
+              <ID> < LPAREN > < RPAREN >
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Memoized lookahead routines for expressions with nested syntactic lookahead. */
+    private static final String MEMOIZE = """
+            grammar Memoized;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              TOKEN_BUFFER: true,
+              MEMOIZE_PRODUCTIONS: "expr, term"
+            }
+
+            Input =
+              ( expr() ";" )* <EOF>
+            ;
+
+            expr =
+              LOOKAHEAD(term() "+") term() "+" expr()
+            | term()
+            ;
+
+            term =
+              LOOKAHEAD(atom() "*") atom() "*" term()
+            | atom()
+            ;
+
+            atom =
+              <ID>
+            | "(" expr() ")"
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Fixed lookaheads that are decided by the kinds of the next tokens. */
+    private static final String DECISIONS = """
+            grammar Decided;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              DECIDE_LOOKAHEAD: true
+            }
+
+            Input =
+              ( stmt() )* <EOF>
+            ;
+
+            stmt =
+              LOOKAHEAD(2) <ID> "=" <ID> ";"
+            | LOOKAHEAD(3) <ID> "(" ")" ";"
+            | LOOKAHEAD(<ID> ":") <ID> ":" stmt()
+            | LOOKAHEAD(3) ( "a" | "b" ) [ "c" ] ";"
+            | <ID> ";"
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["x"-"z"])+ >
+            ;
+            """;
+
+    /** Expected tokens that are only recorded when a failed parse is replayed. */
+    private static final String LAZY_ERROR_REPORTING = """
+            grammar LazyErrors;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              TOKEN_BUFFER: true,
+              LAZY_ERROR_REPORTING: true
+            }
+
+            Input =
+              ( LOOKAHEAD(2) call() | assign(1) )* <EOF>
+            ;
+
+            call =
+              <ID> "(" [ <ID> ] ")"
+            ;
+
+            assign(int depth) =
+              <ID> "=" ( <ID> | "(" assign(depth) ")" )
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Syntactic lookahead that reports a finished scan without throwing LookaheadSuccess. */
+    private static final String EXCEPTION_FREE_LOOKAHEAD = """
+            grammar ExceptionFree;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              EXCEPTION_FREE_LOOKAHEAD: true
+            }
+
+            Input =
+              ( LOOKAHEAD(3) target() "=" <ID> | LOOKAHEAD(target() "(") target() "(" ")" )* <EOF>
+            ;
+
+            target =
+              <ID> ( "." <ID> | "[" [ <ID> ] "]" )*
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** A lexer that runs ahead of the parser on its own thread. */
+    private static final String LEXER_THREAD = """
+            grammar Pipelined;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              LEXER_THREAD: true
+            }
+
+            Input =
+              ( LOOKAHEAD(2) <ID> "=" <NUM> | <ID> )* <EOF>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            | < NUM: (["0"-"9"])+ >
+            ;
+            """;
+
+    /** Token, scan step and time limits checked while parsing. */
+    private static final String PARSE_BUDGET = """
+            grammar Budgeted;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              PARSE_BUDGET: true
+            }
+
+            Input =
+              ( LOOKAHEAD(list() "=") list() "=" <ID> | list() ";" )* <EOF>
+            ;
+
+            list =
+              <ID> ( "," <ID> )*
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Counters of the invocations, scanned tokens and depths of the syntactic lookaheads. */
+    private static final String LOOKAHEAD_STATS = """
+            grammar Counted;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              LOOKAHEAD_STATS: true
+            }
+
+            Input =
+              ( LOOKAHEAD(target() "=") target() "=" <ID> | LOOKAHEAD(2) <ID> "(" ")" | <ID> )* <EOF>
+            ;
+
+            target =
+              <ID> ( "." <ID> )*
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** A result-returning entry point that reports a failed parse without an exception. */
+    private static final String PARSE_RESULT = """
+            grammar Resulted;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              PARSE_RESULT: true
+            }
+
+            Input =
+              ( LOOKAHEAD(2) assignment() | call() )* <EOF>
+            ;
+
+            assignment =
+              <ID> "=" <ID> ";"
+            ;
+
+            call =
+            <?
+              Token t;
+            ?>
+              t=<ID> "(" ")" ";"
+            <?
+              if (t.image.length() > 8) throw new ParseException("Name too long");
+            ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Productions that recover from errors by skipping to their synchronization tokens. */
+    private static final String SYNC_TOKENS = """
+            grammar Recovering;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              SYNC_TOKENS: "statement: SEMICOLON, block: RBRACE"
+            }
+
+            Input =
+              ( statement() | block() )* <EOF>
+            ;
+
+            block =
+              < LBRACE > ( statement() )* < RBRACE >
+            ;
+
+            statement =
+              <ID> ( LOOKAHEAD(2) < EQ > <ID> | < LPAREN > < RPAREN > ) < SEMICOLON >
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < LBRACE: "{" >
+            | < RBRACE: "}" >
+            | < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < EQ: "=" >
+            | < SEMICOLON: ";" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Bodies that are skipped by balancing the braces and parsed on the first access. */
+    private static final String DEFER_PRODUCTIONS = """
+            grammar Deferred;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              NODE_MULTI: true,
+              NODE_DEFAULT_VOID: true,
+              DEFER_PRODUCTIONS: "body: LBRACE RBRACE"
+            }
+
+            Input() #Root =
+              ( function() )* <EOF>
+            ;
+
+            function() #Function =
+              <ID> < LPAREN > < RPAREN > body()
+            ;
+
+            body() #Body =
+              < LBRACE > ( statement() )* < RBRACE >
+            ;
+
+            statement =
+              <ID> #Name < SEMICOLON > | body()
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < LBRACE: "{" >
+            | < RBRACE: "}" >
+            | < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < SEMICOLON: ";" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** A recognizer next to a parser with actions, nodes, return values and lookaheads. */
+    private static final String RECOGNIZER = """
+            grammar Recognized;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              NODE_MULTI: true,
+              NODE_DEFAULT_VOID: true,
+              RECOGNIZER: true
+            }
+
+            Input() #Root =
+              ( LOOKAHEAD(2) call() | assign(1) )* <EOF>
+            ;
+
+            call() #Call =
+              name() < LPAREN > [ LOOKAHEAD(1, { Boolean.getBoolean("arguments") }) <ID> ] < RPAREN >
+            ;
+
+            assign(int depth) #Assign =
+            <?
+              String value;
+            ?>
+              <ID> < EQ > value=value()
+            <?
+              $NODE.jjtSetValue(value + depth);
+            ?>
+            ;
+
+            value() : String =
+            <?
+              Token t;
+            ?>
+              ( t=<ID> | t=<NUMBER> )
+            <?
+              return t.image;
+            ?>
+            ;
+
+            name() : String =
+              <ID> <? return getToken(0).image; ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            TOKEN =
+              < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < EQ: "=" >
+            | < ID: (["a"-"z"])+ >
+            | < NUMBER: (["0"-"9"])+ >
+            ;
+            """;
+
+    /** Statements that are parsed in parallel, split after the semicolons at the top level. */
+    private static final String PARALLEL_UNITS = """
+            grammar Parallel;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              NODE_MULTI: true,
+              NODE_DEFAULT_VOID: true,
+              PARALLEL_UNITS: "statement: SEMICOLON"
+            }
+
+            Input() #Root =
+              ( statement() )* <EOF>
+            ;
+
+            statement() #Statement =
+              <ID> ( < EQ > <ID> | block() ) < SEMICOLON >
+            ;
+
+            block() #Block =
+              < LBRACE > ( statement() )* < RBRACE >
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            TOKEN =
+              < LBRACE: "{" >
+            | < RBRACE: "}" >
+            | < EQ: "=" >
+            | < SEMICOLON: ";" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /** Tokens that are lexed in chunks, with strings and comments in other lexical states. */
+    private static final String CHUNKED_LEXER = """
+            grammar Chunked;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              CHUNKED_LEXER: true
+            }
+
+            Input() =
+              ( <ID> | <QUOTE> ( <TEXT> )* <CLOSE> )* <EOF>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            TOKEN = < QUOTE: "\\"" > : IN_STRING ;
+
+            TOKEN <IN_STRING>=
+              < TEXT: (~["\\""])+ >
+            | < CLOSE: "\\"" > : DEFAULT
+            ;
+
+            TOKEN = < ID: (["a"-"z"])+ > ;
+            """;
+
+    /** Inputs that are parsed concurrently by a batch of pooled parsers. */
+    private static final String PARSER_BATCH = """
+            grammar Batched;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              PARSER_POOL: true,
+              PARSER_BATCH: "Input",
+              NODE_MULTI: true
+            }
+
+            Input() #Root =
+              ( LOOKAHEAD(2) call() | <ID> )* <EOF>
+            ;
+
+            call() #Call =
+              <ID> < LPAREN > < RPAREN >
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < LPAREN: "(" >
+            | < RPAREN: ")" >
+            | < ID: (["a"-"z"])+ >
+            ;
+            """;
+
     @Test
     void grammarWithoutSyntacticLookaheadCompiles(@TempDir Path dir) throws IOException {
         assertGeneratedSourceCompiles(dir, "NoLookahead.jj", GeneratedCodeCompilesTest.NO_LOOKAHEAD);
@@ -97,6 +726,38 @@ class GeneratedCodeCompilesTest {
                 GeneratedCodeCompilesTest.TREE_WITHOUT_NODE_OPTIONS);
     }
 
+    /** The grammars of the generator options, each one enabling its option. */
+    static Stream<Arguments> optionGrammars() {
+        return Stream.of(
+                Arguments.of("Buffered.jj", GeneratedCodeCompilesTest.TOKEN_BUFFER),
+                Arguments.of("Tables.jj", GeneratedCodeCompilesTest.TABLE_LEXER),
+                Arguments.of("Positions.jj", GeneratedCodeCompilesTest.NO_LINE_COLUMN),
+                Arguments.of("Offsets.jj", GeneratedCodeCompilesTest.LAZY_POSITIONS),
+                Arguments.of("Incremental.jj", GeneratedCodeCompilesTest.INCREMENTAL_LEXER),
+                Arguments.of("Pooled.jj", GeneratedCodeCompilesTest.PARSER_POOL),
+                Arguments.of("Memoized.jj", GeneratedCodeCompilesTest.MEMOIZE),
+                Arguments.of("Decided.jj", GeneratedCodeCompilesTest.DECISIONS),
+                Arguments.of("LazyErrors.jj", GeneratedCodeCompilesTest.LAZY_ERROR_REPORTING),
+                Arguments.of("ExceptionFree.jj",
+                        GeneratedCodeCompilesTest.EXCEPTION_FREE_LOOKAHEAD),
+                Arguments.of("Pipelined.jj", GeneratedCodeCompilesTest.LEXER_THREAD),
+                Arguments.of("Budgeted.jj", GeneratedCodeCompilesTest.PARSE_BUDGET),
+                Arguments.of("Counted.jj", GeneratedCodeCompilesTest.LOOKAHEAD_STATS),
+                Arguments.of("Resulted.jj", GeneratedCodeCompilesTest.PARSE_RESULT),
+                Arguments.of("Recovering.jj", GeneratedCodeCompilesTest.SYNC_TOKENS),
+                Arguments.of("Deferred.jj", GeneratedCodeCompilesTest.DEFER_PRODUCTIONS),
+                Arguments.of("Recognized.jj", GeneratedCodeCompilesTest.RECOGNIZER),
+                Arguments.of("Parallel.jj", GeneratedCodeCompilesTest.PARALLEL_UNITS),
+                Arguments.of("Chunked.jj", GeneratedCodeCompilesTest.CHUNKED_LEXER),
+                Arguments.of("Batched.jj", GeneratedCodeCompilesTest.PARSER_BATCH));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("optionGrammars")
+    void optionGrammarCompiles(String name, String grammar, @TempDir Path dir) throws IOException {
+        assertGeneratedSourceCompiles(dir, name, grammar);
+    }
+
     private static void assertGeneratedSourceCompiles(Path dir, String name, String grammar)
             throws IOException {
         var source = dir.resolve(name);
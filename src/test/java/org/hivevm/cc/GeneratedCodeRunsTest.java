@@ -0,0 +1,2120 @@
+package org.hivevm.cc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runtime tests: the generated parser is compiled with a driver and run on real input.
+ *
+ * <p>Each test checks the tokens, trees or errors of a runtime feature that is enabled by an option,
+ * usually against the same grammar without the option.
+ */
+class GeneratedCodeRunsTest {
+
+    /** Assignments and calls, the calls are decided by a syntactic lookahead. */
+    private static final String STATEMENTS = """
+            grammar Statements;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input() : String =
+            <?
+              StringBuilder names = new StringBuilder();
+              Token t;
+            ?>
+              ( LOOKAHEAD(2) t=<ID> "(" ")" <? names.append(t.image).append("();"); ?>
+              | t=<ID> "=" <NUMBER> <? names.append(t.image).append('=').append(getToken(0).image).append(';'); ?>
+              )* <EOF>
+            <?
+              return names.toString();
+            ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            | < NUMBER: (["0"-"9"])+ >
+            ;
+            """;
+
+    /** Identifiers, strings and a literal, the images are collected through toString(). */
+    private static final String IMAGES = """
+            grammar Images;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input() : String =
+            <?
+              StringBuilder images = new StringBuilder();
+              Token t;
+            ?>
+              ( ( t=<ID> | t=<STRING> | t="(" ) <? images.append(t).append('|'); ?> )* <EOF>
+            <?
+              return images.toString();
+            ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z", "0"-"9"])+ >
+            | < STRING: "\\"" (~["\\""])* "\\"" >
+            ;
+            """;
+
+    /** Identifiers and strings that span lines, between tabs and line breaks. */
+    private static final String POSITIONS = """
+            grammar Positions;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input =
+              ( <ID> | <STRING> )* <EOF>
+            ;
+
+            SKIP = " " | "\\t" | "\\n" | "\\r" ;
+
+            TOKEN =
+              < ID: (["a"-"z", "0"-"9"])+ >
+            | < STRING: "\\"" (~["\\""])* "\\"" >
+            ;
+            """;
+
+    /**
+     * Identifiers with accented letters, and literals with multi-byte and supplementary characters
+     * that are left after their first characters. Any other character is a token of its own.
+     */
+    private static final String UNICODE = """
+            grammar Unicode;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input =
+              ( <ID> | <EUROS> | <SMILES> | <OTHER> )* <EOF>
+            ;
+
+            SKIP = " " | "\\t" | "\\n" | "\\r" ;
+
+            TOKEN =
+              < ID: (["a"-"z", "0"-"9", "\\u00e0"-"\\u00ff"])+ >
+            | < EUROS: "ab\\u20ac\\u20acc" >
+            | < SMILES: "ab\\ud83d\\ude00\\ud83d\\ude00c" >
+            | < OTHER: ~[] >
+            ;
+            """;
+
+    /**
+     * Get a grammar of keywords and identifiers. The keywords are regular expressions of a letter
+     * and a string, so that they are lexed by the NFA or the move table.
+     */
+    private static String keywords(int count) {
+        var keywords = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            var word = new StringBuilder(Integer.toString(i + 2401, 7));
+            for (int j = 0; j < word.length(); j++) {
+                word.setCharAt(j, (char) ('a' + (3 * (word.charAt(j) - '0')) + (j % 3)));
+            }
+            keywords.append(i == 0 ? "  " : "| ").append("< K").append(i).append(": [\"k\"] \"").append(word)
+                    .append("\" >\n");
+        }
+        return """
+                grammar Keywords;
+
+                options {
+                  JAVA_PACKAGE: "org.example"
+                }
+
+                Input =
+                  ( <ID> )* <EOF>
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                TOKEN =
+                """ + keywords + """
+                | < ID: (["a"-"z"])+ >
+                ;
+                """;
+    }
+
+    /**
+     * Tokens in three lexical states: comments and strings are collected by MORE. An identifier
+     * ties with the keywords of the same length, an arrow is left after its first character.
+     */
+    private static final String LEXING = """
+            grammar Lexing;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input =
+              ( <IF> | <ID> | <IFS> | <NUMBER> | <FLOAT> | <OP> | <ARROW> | <STRING> )* <EOF>
+            ;
+
+            SKIP = " " | "\\t" | "\\n" | "\\r" ;
+
+            MORE = "/*" : IN_COMMENT ;
+
+            SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+            MORE <IN_COMMENT>= < ~[] > ;
+
+            MORE = "\\"" : IN_STRING ;
+
+            TOKEN <IN_STRING>= < STRING: "\\"" > : DEFAULT ;
+
+            MORE <IN_STRING>= < "\\\\" ~[] > | < ~["\\"", "\\\\"] > ;
+
+            TOKEN =
+              < IF: ["i"] "f" >
+            | < ID: ["a"-"z", "\\u00e0"-"\\u00ff"] (["a"-"z", "0"-"9", "\\u00e0"-"\\u00ff"])* >
+            | < IFS: ["i"] "fs" >
+            | < NUMBER: (["0"-"9"])+ >
+            | < FLOAT: (["0"-"9"])+ "." (["0"-"9"])* >
+            | < OP: ["-", "+", "<", ">"] >
+            | < ARROW: ["-"] ">" | ["<"] "-" ["-"] ">" >
+            ;
+            """;
+
+    /** Sums and products, both alternatives are decided by a syntactic lookahead of a production. */
+    private static final String EXPRESSIONS = """
+            grammar Expressions;
+
+            options {
+              JAVA_PACKAGE: "org.example",
+              TOKEN_BUFFER: true
+            }
+
+            Input() : String =
+            <?
+              StringBuilder exprs = new StringBuilder();
+              String e;
+            ?>
+              ( e=expr() ";" <? exprs.append(e).append(';'); ?> )* <EOF>
+            <?
+              return exprs.toString();
+            ?>
+            ;
+
+            expr() : String =
+            <?
+              String e, r;
+            ?>
+              ( LOOKAHEAD(term() "+") e=term() "+" r=expr() <? e = "(" + e + "+" + r + ")"; ?>
+              | e=term()
+              )
+            <?
+              return e;
+            ?>
+            ;
+
+            term() : String =
+            <?
+              String e, r;
+            ?>
+              ( LOOKAHEAD(atom() "*") e=atom() "*" r=term() <? e = "[" + e + "*" + r + "]"; ?>
+              | e=atom()
+              )
+            <?
+              return e;
+            ?>
+            ;
+
+            atom() : String =
+            <?
+              Token t;
+              String e;
+            ?>
+              ( t=<ID> <? e = t.image; ?>
+              | "(" e=expr() ")"
+              )
+            <?
+              return e;
+            ?>
+            ;
+
+            SKIP = " " | "\\n" ;
+
+            TOKEN =
+              < ID: (["a"-"z"])+ >
+            ;
+            """;
+
+    /**
+     * Statements that are chosen by fixed lookaheads, by a syntactic lookahead and by a lookahead in
+     * a nested loop.
+     */
+    private static final String CHOICES = """
+            grammar Choices;
+
+            options {
+              JAVA_PACKAGE: "org.example"
+            }
+
+            Input() : String =
+            <?
+              StringBuilder stmts = new StringBuilder();
+              String s;
+            ?>
+              ( s=stmt() <? stmts.append(s).append(' '); ?> )* <EOF>
+            <?
+              return stmts.toString();
+            ?>
+            ;
+
+            stmt() : String =
+            <?
+              String s;
+            ?>
+              ( LOOKAHEAD(2) <ID> "=" <ID> ";" <? s = "assign"; ?>
+              | LOOKAHEAD(3) <ID> "(" ")" ";" <? s = "call"; ?>
+              | LOOKAHEAD(<ID> ":") <ID> ":" s=stmt() <? s = "label:" + s; ?>
+              | LOOKAHEAD(3) ( "a" | "b" ) [ "c" ] ";" <? s = "ab"; ?>
+              | LOOKAHEAD(2) <ID> "," ( LOOKAHEAD(2) <ID> "," )* ( <ID> | "(" ")" ) ";" <? s = "list"; ?>
+              | <ID> ";" <? s = "id"; ?>
+              )
+            <?
+              return s;
+            ?>
+            ;
+
+            SKIP = " " ;
+
+            TOKEN =
+              < ID: (["x"-"z"])+ >
+            ;
+            """;
+
+    /** Dumps the kinds, images and positions of the tokens of a lexer, with their special tokens. */
+    private static final String DUMP_TOKENS = """
+                    static String dump(Lexer lexer) {
+                        StringBuilder dump = new StringBuilder();
+                        for (Token t = lexer.getNextToken(); ; t = lexer.getNextToken()) {
+                            dump.append(t.kind).append(' ').append(t).append(" @").append(t.getBeginLine())
+                                    .append(':').append(t.getBeginColumn()).append('-').append(t.getEndLine())
+                                    .append(':').append(t.getEndColumn());
+                            if (t.specialToken != null) {
+                                dump.append(" after ").append(t.specialToken);
+                            }
+                            dump.append('\\n');
+                            if (t.kind == ParserConstants.EOF) {
+                                return dump.toString();
+                            }
+                        }
+                    }
+            """;
+
+    @Test
+    void tokenBufferReleasesConsumedTokens(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        StringBuilder expected = new StringBuilder();
+                        for (int i = 0; i < 100000; i++) {
+                            String name = String.valueOf((char) ('a' + (i % 26))).repeat(1 + (i % 5));
+                            if (i % 3 == 0) {
+                                text.append(name).append("()\\n");
+                                expected.append(name).append("();");
+                            } else {
+                                text.append(name).append(" = ").append(i).append('\\n');
+                                expected.append(name).append('=').append(i).append(';');
+                            }
+                        }
+
+                        Parser array = new Parser(new Lexer(new ArrayCharStream(text)));
+                        Parser stream = new Parser(text.toString());
+                        java.lang.reflect.Field kinds = TokenBuffer.class.getDeclaredField("kinds");
+                        kinds.setAccessible(true);
+                        return "array=" + expected.toString().equals(array.Input())
+                                + ", stream=" + expected.toString().equals(stream.Input())
+                                + ", capacity=" + ((int[]) kinds.get(array.jj_tokens)).length;
+                    }
+                }
+                """;
+        var grammar = GeneratedCode.withOptions(GeneratedCodeRunsTest.STATEMENTS, "TOKEN_BUFFER: true");
+        assertEquals("array=true, stream=true, capacity=1024", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void lazyImagesMatchEagerImages(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 3000; i++) {
+                            text.append("id").append(i).append(" \\"s ").append(i).append("\\" ( ");
+                            if (i % 100 == 99) {
+                                text.append("\\\\u0061b").append(i).append('\\n');
+                            }
+                        }
+                        String string = new Parser(text.toString()).Input();
+                        String reader = new Parser(new StreamProvider(new java.io.StringReader(text.toString()))).Input();
+                        return string.equals(reader) ? string : string + "\\n!=\\n" + reader;
+                    }
+                }
+                """;
+        var eager = GeneratedCode.run(dir.resolve("eager"), GeneratedCodeRunsTest.IMAGES, driver);
+        var lazy = GeneratedCode.run(dir.resolve("lazy"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.IMAGES, "LAZY_IMAGES: true"), driver);
+        assertTrue(eager.startsWith("id0|\"s 0\"|(|id1|"), eager);
+        assertTrue(eager.contains("|ab99|"), eager);
+        assertEquals(eager, lazy);
+    }
+
+    @Test
+    void arrayCharStreamMatchesJavaCharStream(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 500; i++) {
+                            text.append("\\tab").append(i).append(i % 7 == 0 ? "\\r\\n" : " \\t ");
+                            text.append('"').append("x\\ty".repeat(i % 4)).append(i % 5 == 0 ? "\\n\\t" : "")
+                                    .append('"').append(i % 11 == 0 ? "\\r" : "\\n");
+                        }
+                        StringBuilder dumps = new StringBuilder();
+                        for (int tabSize : new int[] { 1, 4, 8 }) {
+                            JavaCharStream stream = new JavaCharStream(new StringProvider(text.toString()));
+                            ArrayCharStream array = new ArrayCharStream(text);
+                            stream.setTabSize(tabSize);
+                            array.setTabSize(tabSize);
+                            String expected = dump(new Lexer(stream));
+                            String actual = dump(new Lexer(array));
+                            dumps.append(expected.equals(actual) ? "same" : expected + "!=\\n" + actual).append('\\n');
+                        }
+                        return dumps.toString();
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        assertEquals("same\nsame\nsame\n", GeneratedCode.run(dir, GeneratedCodeRunsTest.POSITIONS, driver));
+    }
+
+    @Test
+    void utf8CharStreamMatchesJavaCharStream(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 300; i++) {
+                            text.append("caf\u00e9").append(i).append(" ab\u20ac\u20acc ab\u20ac\u20acx\\t");
+                            text.append("ab\ud83d\ude00\ud83d\ude00c ab\ud83d\ude00\ud83d\ude00").append(i % 2 == 0 ? "\\r\\n" : " ");
+                            text.append("\u00fcber\ud83d\ude00\u00e0").append(i % 3 == 0 ? "\\n" : "\\t");
+                        }
+                        byte[] bytes = text.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                        java.nio.file.Path file = java.nio.file.Files.createTempFile("utf8", ".txt");
+                        java.nio.file.Files.write(file, bytes);
+
+                        String expected = dump(new Lexer(new JavaCharStream(new StringProvider(text.toString()))));
+                        StringBuilder dumps = new StringBuilder();
+                        dumps.append(expected.contains(" ab\u20ac\u20acc @") && expected.contains(" \u00fcber @")
+                                && !expected.contains(" ab\u20ac\u20acx") ? "lexed" : expected).append('\\n');
+                        String buffer = dump(new Lexer(new Utf8CharStream(java.nio.ByteBuffer.wrap(bytes))));
+                        dumps.append(expected.equals(buffer) ? "same" : expected + "!=\\n" + buffer).append('\\n');
+                        String channel = dump(new Lexer(new Utf8CharStream(
+                                java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(bytes)))));
+                        dumps.append(expected.equals(channel) ? "same" : expected + "!=\\n" + channel).append('\\n');
+                        try (java.nio.channels.FileChannel mapped = java.nio.channels.FileChannel.open(file)) {
+                            String mapping = dump(new Lexer(new Utf8CharStream(mapped)));
+                            dumps.append(expected.equals(mapping) ? "same" : expected + "!=\\n" + mapping).append('\\n');
+                        } finally {
+                            java.nio.file.Files.delete(file);
+                        }
+                        return dumps.toString();
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        assertEquals("lexed\nsame\nsame\nsame\n",
+                GeneratedCode.run(dir.resolve("eager"), GeneratedCodeRunsTest.UNICODE, driver));
+        assertEquals("lexed\nsame\nsame\nsame\n", GeneratedCode.run(dir.resolve("lazy"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.UNICODE, "LAZY_IMAGES: true"), driver));
+        assertEquals("lexed\nsame\nsame\nsame\n", GeneratedCode.run(dir.resolve("positions"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.UNICODE, "LAZY_POSITIONS: true"), driver));
+    }
+
+    @Test
+    void utf8CharStreamMapsFilesLargerThan2GB(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        // A sparse file of NUL bytes, with tokens on both sides of the windows of 1GB
+                        java.nio.file.Path file = java.nio.file.Files.createTempFile("large", ".txt");
+                        try (java.nio.channels.FileChannel out = java.nio.channels.FileChannel.open(file,
+                                java.nio.file.StandardOpenOption.WRITE)) {
+                            write(out, 0, "abc\\n");
+                            write(out, (1L << 30) - 1, "\u00e9");
+                            write(out, (1L << 31) - 1, "xyz");
+                            write(out, (1L << 31) + 100, "\\nz\u00e9");
+                        }
+                        try (java.nio.channels.FileChannel in = java.nio.channels.FileChannel.open(file)) {
+                            return dump(new Lexer(new Utf8CharStream(in)));
+                        } finally {
+                            java.nio.file.Files.delete(file);
+                        }
+                    }
+
+                    static void write(java.nio.channels.FileChannel out, long position, String text)
+                            throws java.io.IOException {
+                        byte[] bytes = text.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                        out.write(java.nio.ByteBuffer.wrap(bytes), position);
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        // The runs of NUL bytes between the tokens are skipped
+        var grammar = GeneratedCodeRunsTest.UNICODE.replace("SKIP = \" \"",
+                "SKIP = < ([\"\\u0000\"])+ > | \" \"");
+        assertEquals("6 abc @1:1-1:3\n6 \u00e9 @2:1073741820-2:1073741820\n6 xyz @2:2147483643-2:2147483645\n"
+                + "6 z\u00e9 @3:1-3:2\n0  @3:2-3:2\n", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void tableLexerWithManyKeywords(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        StringBuilder expected = new StringBuilder();
+                        for (int i = 0; i < 1500; i++) {
+                            StringBuilder word = new StringBuilder(Integer.toString(i + 2401, 7));
+                            for (int j = 0; j < word.length(); j++) {
+                                word.setCharAt(j, (char) ('a' + (3 * (word.charAt(j) - '0')) + (j % 3)));
+                            }
+                            text.append('k').append(word).append(" k").append(word, 0, word.length() - 1)
+                                    .append(" k").append(word).append("z\\n");
+                            expected.append(ParserConstants.K0 + i).append(' ').append(ParserConstants.ID).append(' ')
+                                    .append(ParserConstants.ID).append(' ');
+                        }
+                        expected.append(ParserConstants.EOF).append(' ');
+
+                        Lexer lexer = new Lexer(new JavaCharStream(new StringProvider(text.toString())));
+                        StringBuilder kinds = new StringBuilder();
+                        for (Token t = lexer.getNextToken(); ; t = lexer.getNextToken()) {
+                            kinds.append(t.kind).append(' ');
+                            if (t.kind == ParserConstants.EOF) {
+                                break;
+                            }
+                        }
+                        return expected.toString().equals(kinds.toString()) ? "same" : expected + "!=\\n" + kinds;
+                    }
+                }
+                """;
+        var grammar = GeneratedCode.withOptions(GeneratedCodeRunsTest.keywords(1500), "TABLE_LEXER: true");
+        assertEquals("same", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void tableLexerMatchesNfaLexer(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 200; i++) {
+                            text.append("if ifs iff if").append(i).append(" \u00e0b ").append(i).append(i % 3 == 0 ? ". " : ".5 ");
+                            text.append("/* a \\"comment\\" ").append(i % 4 == 0 ? "\\n" : "").append("*/-> <--> <--x ");
+                            text.append("\\"s\\\\\\"").append(i).append("\\"\\t/*\\"*/").append(i % 5 == 0 ? "\\r\\n" : "\\n");
+                        }
+                        return dump(new Lexer(new JavaCharStream(new StringProvider(text.toString()))));
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        var nfa = GeneratedCode.run(dir.resolve("nfa"), GeneratedCodeRunsTest.LEXING, driver);
+        var table = GeneratedCode.run(dir.resolve("table"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.LEXING, "TABLE_LEXER: true"), driver);
+        assertTrue(nfa.startsWith("""
+                12 if @1:1-1:2
+                13 ifs @1:4-1:6
+                13 iff @1:8-1:10
+                13 if0 @1:12-1:14
+                13 àb @1:16-1:17
+                16 0. @1:19-1:20
+                """), nfa);
+        assertTrue(nfa.contains("""
+                18 <--> @2:6-2:9
+                17 < @2:11-2:11
+                17 - @2:12-2:12
+                17 - @2:13-2:13
+                13 x @2:14-2:14
+                9 "s\\"0" @2:16-2:21
+                12 if @3:1-3:2 after /*"*/
+                """), nfa);
+        assertEquals(nfa, table);
+    }
+
+    @Test
+    void tableLexerFallsBackToNfa(@TempDir Path dir) throws Exception {
+        // The subset construction of the DFA has more than 2^15 states
+        var grammar = GeneratedCodeRunsTest.LEXING.replace("| < ID:",
+                "| < AB: ([\"a\", \"b\"])* [\"a\"] ([\"a\", \"b\"]){15} >\n| < ID:");
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 200; i++) {
+                            text.append("ab".repeat(i % 12)).append("aabbaabbaabbaabb ").append(i).append(" /* b */ ");
+                            text.append("ba".repeat(i % 10)).append("\\"ab\\" ab\\n");
+                        }
+                        String tables = java.util.Arrays.stream(Lexer.class.getDeclaredFields())
+                                .map(java.lang.reflect.Field::getName).filter(n -> n.startsWith("jjdfaTable"))
+                                .collect(java.util.stream.Collectors.joining(","));
+                        return tables + "\\n" + dump(new Lexer(new JavaCharStream(new StringProvider(text.toString()))));
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        var nfa = GeneratedCode.run(dir.resolve("nfa"), grammar, driver);
+        var table = GeneratedCode.run(dir.resolve("table"), GeneratedCode.withOptions(grammar, "TABLE_LEXER: true"),
+                driver);
+        assertTrue(nfa.startsWith("\n"), nfa);
+        assertTrue(nfa.contains("\n13 aabbaabbaabbaabb @"), nfa);
+        assertEquals("jjdfaTable_2" + nfa, table);
+    }
+
+    @Test
+    void javaCharStreamPositions(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        String small = "a\\tb\\r\\nc\\\\u0064 \\"x\\\\u000ay\\"\\r\\\\u0009z e\\\\uu0066\\n\\t\\"\\\\u0009\\"";
+                        StringBuilder dumps = new StringBuilder();
+                        for (int tabSize : new int[] { 1, 4, 8 }) {
+                            JavaCharStream stream = new JavaCharStream(new StringProvider(small));
+                            stream.setTabSize(tabSize);
+                            dumps.append(dump(new Lexer(stream))).append('\\n');
+                        }
+
+                        // Long tokens wrap and grow the buffer, the reader returns a character at a time
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 3000; i++) {
+                            text.append("\\tid").append(i).append(i % 7 == 0 ? "\\r\\n" : " \\\\u0009 ");
+                            text.append('"').append("x\\\\u0009y\\t".repeat(i % 50)).append(i % 5 == 0 ? "\\r\\n\\t" : "")
+                                    .append("\\\\u000a\\"").append(i % 11 == 0 ? "\\r" : "\\n");
+                            if (i % 500 == 0) {
+                                text.append('"').append("\\\\u0041\\tb\\n".repeat(3000)).append('"');
+                            }
+                        }
+                        java.io.Reader reader = new java.io.StringReader(text.toString()) {
+
+                            @Override
+                            public int read(char[] chars, int offset, int length) throws java.io.IOException {
+                                return super.read(chars, offset, Math.min(length, 1));
+                            }
+                        };
+                        String expected = dump(new Lexer(new JavaCharStream(new StringProvider(text.toString()))));
+                        String actual = dump(new Lexer(new JavaCharStream(new StreamProvider(reader))));
+                        return dumps.append(expected.equals(actual) ? "same" : expected + "!=\\n" + actual).toString();
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        // The positions of the stream that recorded the line and column of each character
+        assertEquals("""
+                5 a @1:1-1:1
+                5 b @1:3-1:3
+                5 cd @2:1-2:2
+                6 "x
+                y" @2:9-2:18
+                5 z @3:7-3:7
+                5 ef @3:9-3:10
+                6 "\t" @4:2-4:9
+                0  @4:9-4:9
+
+                5 a @1:1-1:1
+                5 b @1:5-1:5
+                5 cd @2:1-2:2
+                6 "x
+                y" @2:9-2:18
+                5 z @3:7-3:7
+                5 ef @3:9-3:10
+                6 "\t" @4:5-4:12
+                0  @4:12-4:12
+
+                5 a @1:1-1:1
+                5 b @1:9-1:9
+                5 cd @2:1-2:2
+                6 "x
+                y" @2:9-2:18
+                5 z @3:7-3:7
+                5 ef @3:9-3:10
+                6 "\t" @4:9-4:16
+                0  @4:16-4:16
+
+                same""", GeneratedCode.run(dir, GeneratedCodeRunsTest.POSITIONS, driver));
+    }
+
+    @Test
+    void lazyPositionsMatchEagerPositions(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder dumps = new StringBuilder();
+                        for (String text : new String[] { "ab cd\\r\\nef \\"x\\ny\\"\\r\\ngh\\n", "ab\\r\\r\\ncd", "", "a\\r", "a\\r\\n\\n" }) {
+                            dumps.append(dump(new Lexer(new JavaCharStream(new StringProvider(text))))).append('\\n');
+                        }
+                        return dumps.toString();
+                    }
+
+                """ + GeneratedCodeRunsTest.DUMP_TOKENS + "}\n";
+        var eager = GeneratedCode.run(dir.resolve("eager"), GeneratedCodeRunsTest.POSITIONS, driver);
+        var lazy = GeneratedCode.run(dir.resolve("lazy"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.POSITIONS, "LAZY_POSITIONS: true"), driver);
+        assertTrue(eager.contains("5 gh @4:1-4:2\n0  @4:3-4:3\n"), eager);
+        assertEquals(eager, lazy);
+    }
+
+    @Test
+    void incrementalLexerMatchesFreshLexer(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 200; i++) {
+                            text.append("if ifs id").append(i).append(" 3.5 -> <--> /* c").append(i)
+                                    .append(" */ \\"s\\\\\\"t\\" + \\n");
+                        }
+                        IncrementalLexer lexer = new IncrementalLexer(text);
+                        String[] fragments = { "x", " ", "/*", "*/", "\\"", "\\\\", "-", ">", "1.", "\\n", "" };
+                        java.util.Random random = new java.util.Random(42);
+                        int mismatches = 0;
+                        int changed = 0;
+                        for (int i = 0; i < 500; i++) {
+                            int offset = random.nextInt(lexer.text().length() + 1);
+                            int length = Math.min(random.nextInt(4), lexer.text().length() - offset);
+                            String replacement = fragments[random.nextInt(fragments.length)];
+                            lexer.edit(offset, length, replacement);
+                            changed += lexer.changedCount();
+                            if (!dump(lexer).equals(dump(new IncrementalLexer(lexer.text())))) {
+                                mismatches++;
+                            }
+                        }
+
+                        // An edit inside an identifier re-synchronizes right behind the identifier
+                        int offset = lexer.text().toString().indexOf("id1");
+                        int index = lexer.edit(offset + 1, 1, "abc");
+                        return "mismatches=" + mismatches + ", local=" + (lexer.changedCount() <= 2)
+                                + ", image=" + lexer.image(index) + ", reused=" + (changed < 500 * lexer.size() / 10);
+                    }
+
+                    static String dump(IncrementalLexer lexer) {
+                        StringBuilder dump = new StringBuilder();
+                        for (int i = 0; i < lexer.size(); i++) {
+                            dump.append(lexer.kind(i)).append(' ').append(lexer.beginOffset(i)).append('-')
+                                    .append(lexer.endOffset(i)).append(lexer.isSpecial(i) ? " special\\n" : "\\n");
+                        }
+                        return dump.toString();
+                    }
+                }
+                """;
+        var grammar = GeneratedCode.withOptions(GeneratedCodeRunsTest.LEXING, "INCREMENTAL_LEXER: true");
+        var result = GeneratedCode.run(dir, grammar, driver);
+        assertTrue(result.startsWith("mismatches=0, local=true, image="), result);
+        assertTrue(result.endsWith(", reused=true"), result);
+    }
+
+    @Test
+    void parserPoolReusesParsers(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        ParserPool pool = new ParserPool(4);
+                        java.util.Set<Parser> parsers = java.util.concurrent.ConcurrentHashMap.newKeySet();
+                        java.util.concurrent.atomic.AtomicInteger wrong = new java.util.concurrent.atomic.AtomicInteger();
+                        java.util.concurrent.atomic.AtomicInteger failed = new java.util.concurrent.atomic.AtomicInteger();
+                        Thread[] threads = new Thread[4];
+                        for (int t = 0; t < threads.length; t++) {
+                            int seed = t;
+                            threads[t] = new Thread(() -> {
+                                for (int i = 0; i < 2000; i++) {
+                                    String name = String.valueOf((char) ('a' + ((seed + i) % 26))).repeat(1 + (i % 4));
+                                    // Every tenth input fails in the middle, the parser is reused anyway
+                                    boolean invalid = (i % 10 == 0);
+                                    String text = name + "()\\n" + name + " = " + i + (invalid ? " = " : "\\n") + name + "()";
+                                    Parser parser = pool.acquire(text);
+                                    parsers.add(parser);
+                                    try {
+                                        String names = parser.Input();
+                                        if (invalid || !names.equals(name + "();" + name + "=" + i + ";" + name + "();")) {
+                                            wrong.incrementAndGet();
+                                        }
+                                    } catch (ParseException e) {
+                                        if (!invalid || (e.currentToken.next.beginLine != 2)) {
+                                            wrong.incrementAndGet();
+                                        }
+                                        failed.incrementAndGet();
+                                    } finally {
+                                        pool.release(parser);
+                                    }
+                                }
+                            });
+                            threads[t].start();
+                        }
+                        for (Thread thread : threads) {
+                            thread.join();
+                        }
+                        // A parser is only created when no parser is idle, 8000 inputs share a few parsers
+                        return "wrong=" + wrong + ", failed=" + failed + ", reused=" + (parsers.size() < 100);
+                    }
+                }
+                """;
+        var grammar = GeneratedCode.withOptions(GeneratedCodeRunsTest.STATEMENTS, "PARSER_POOL: true");
+        assertEquals("wrong=0, failed=800, reused=true", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void memoizedParserIsResetByReInit(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        java.util.Random random = new java.util.Random(7);
+                        Parser reused = new Parser(new Lexer(new ArrayCharStream("")));
+                        StringBuilder results = new StringBuilder();
+                        int different = 0;
+                        for (int i = 0; i < 300; i++) {
+                            StringBuilder text = new StringBuilder();
+                            for (int j = 0; j < 1 + (i % 20); j++) {
+                                text.append(expr(random, 3)).append(";\\n");
+                            }
+                            if (i == 150) {
+                                // The stamp wraps around, the stale stamps of the table are cleared
+                                java.lang.reflect.Field stamp = Parser.class.getDeclaredField("jj_memo_stamp");
+                                stamp.setAccessible(true);
+                                stamp.setInt(reused, -1);
+                            }
+                            reused.ReInit(new Lexer(new ArrayCharStream(text)));
+                            String result = reused.Input();
+                            if (!result.equals(new Parser(new Lexer(new ArrayCharStream(text))).Input())) {
+                                different++;
+                            }
+                            results.append(result).append('\\n');
+                        }
+                        return "different=" + different + "\\n" + results;
+                    }
+
+                    static String expr(java.util.Random random, int depth) {
+                        String atom = (depth == 0 || random.nextInt(3) > 0)
+                                ? String.valueOf((char) ('a' + random.nextInt(26)))
+                                : "(" + expr(random, depth - 1) + ")";
+                        switch (random.nextInt(3)) {
+                            case 0:
+                                return atom + " + " + expr(random, depth);
+                            case 1:
+                                return atom + " * " + expr(random, depth);
+                            default:
+                                return atom;
+                        }
+                    }
+                }
+                """;
+        var eager = GeneratedCode.run(dir.resolve("eager"), GeneratedCodeRunsTest.EXPRESSIONS,
+                driver.replace("i == 150", "false"));
+        var memoized = GeneratedCode.run(dir.resolve("memoized"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.EXPRESSIONS, "MEMOIZE: true"), driver);
+        assertTrue(memoized.startsWith("different=0\n"), memoized);
+        assertEquals(eager, memoized);
+    }
+
+    @Test
+    void decidedLookaheadsMatchScannedLookaheads(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "x", "a", "b", "c", "=", "(", ")", ";", ":", "," };
+
+                    public String call() throws Exception {
+                        // All inputs of up to 5 tokens, most of them end before the statement is complete
+                        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+                        int parsed = 0;
+                        int failed = 0;
+                        for (int length = 0; length <= 5; length++) {
+                            int[] words = new int[length];
+                            do {
+                                StringBuilder text = new StringBuilder();
+                                for (int w : words) {
+                                    text.append(WORDS[w]).append(' ');
+                                }
+                                String result;
+                                try {
+                                    result = new Parser(text.toString()).Input();
+                                    parsed++;
+                                } catch (ParseException e) {
+                                    result = e.getMessage();
+                                    failed++;
+                                }
+                                digest.update((text + "-> " + result + "\\n").getBytes());
+                            } while (next(words));
+                        }
+                        return "parsed=" + parsed + ", failed=" + failed + ", digest="
+                                + java.util.HexFormat.of().formatHex(digest.digest()) + "\\n"
+                                + new Parser("x : y , z , ( ) ; a c ; x , y ; x = y ; x : x ( ) ; ").Input();
+                    }
+
+                    static boolean next(int[] words) {
+                        for (int i = words.length - 1; i >= 0; i--) {
+                            if (++words[i] < WORDS.length) {
+                                return true;
+                            }
+                            words[i] = 0;
+                        }
+                        return false;
+                    }
+                }
+                """;
+        var scanned = GeneratedCode.run(dir.resolve("scanned"), GeneratedCodeRunsTest.CHOICES, driver);
+        var decided = GeneratedCode.run(dir.resolve("decided"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.CHOICES, "DECIDE_LOOKAHEAD: true"), driver);
+        assertTrue(scanned.endsWith("\nlabel:list ab list assign label:call "), scanned);
+        assertEquals(scanned, decided);
+
+        var parser = "generated/org/example/Parser.java";
+        assertFalse(Files.readString(dir.resolve("scanned").resolve(parser)).contains("jj_la_kind("));
+        assertTrue(Files.readString(dir.resolve("decided").resolve(parser)).contains("jj_la_kind("));
+    }
+
+    @Test
+    void lazyErrorsMatchEagerErrors(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "x", "a", "c", "=", "(", ")", ";", ":", "," };
+
+                    static int actions;
+
+                    public String call() throws Exception {
+                        // All inputs of up to 5 tokens, parsed at once and statement by statement
+                        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+                        int failed = 0;
+                        int later = 0;
+                        for (int length = 0; length <= 5; length++) {
+                            int[] words = new int[length];
+                            do {
+                                StringBuilder text = new StringBuilder();
+                                for (int w : words) {
+                                    text.append(WORDS[w]).append(' ');
+                                }
+                                digest.update((text + "-> ").getBytes());
+                                try {
+                                    digest.update(new Parser(text.toString()).Input().getBytes());
+                                } catch (ParseException e) {
+                                    digest.update(error(e).getBytes());
+                                    failed++;
+                                }
+
+                                Parser parser = new Parser(text.toString());
+                                int units = 0;
+                                try {
+                                    for (; parser.getToken(1).kind != ParserConstants.EOF; units++) {
+                                        parser.stmt();
+                                    }
+                                } catch (ParseException e) {
+                                    digest.update(error(e).getBytes());
+                                    if (units > 0) {
+                                        later++;
+                                    }
+                                }
+                                digest.update((" " + units + "\\n").getBytes());
+                            } while (next(words));
+                        }
+                        Parser parser = new Parser("x ; y = z ; x ( ) ( ;");
+                        parser.stmt();
+                        parser.stmt();
+                        String second;
+                        try {
+                            parser.stmt();
+                            second = "parsed";
+                        } catch (ParseException e) {
+                            second = error(e);
+                        }
+                        return "failed=" + failed + ", later=" + later + ", actions=" + actions + ", digest="
+                                + java.util.HexFormat.of().formatHex(digest.digest()) + "\\n" + second;
+                    }
+
+                    static String error(ParseException e) {
+                        return e.currentToken.next.beginColumn + " " + java.util.Arrays.deepToString(e.expectedTokenSequences);
+                    }
+
+                    static boolean next(int[] words) {
+                        for (int i = words.length - 1; i >= 0; i--) {
+                            if (++words[i] < WORDS.length) {
+                                return true;
+                            }
+                            words[i] = 0;
+                        }
+                        return false;
+                    }
+                }
+                """;
+        // The actions of the statements are counted, a replay must not run them again
+        var grammar = GeneratedCode.withOptions(GeneratedCodeRunsTest.CHOICES.replace("return s;", "Driver.actions++;\n  return s;"),
+                "TOKEN_BUFFER: true");
+        var eager = GeneratedCode.run(dir.resolve("eager"), grammar, driver);
+        var lazy = GeneratedCode.run(dir.resolve("lazy"),
+                GeneratedCode.withOptions(grammar, "LAZY_ERROR_REPORTING: true"), driver);
+        var decided = GeneratedCode.run(dir.resolve("decided"),
+                GeneratedCode.withOptions(grammar, "LAZY_ERROR_REPORTING: true", "DECIDE_LOOKAHEAD: true"), driver);
+        assertTrue(eager.endsWith("\n19 [[2]]"), eager);
+        assertFalse(eager.contains("later=0,"), eager);
+        assertEquals(eager, lazy);
+        assertEquals(eager, decided);
+    }
+
+    @Test
+    void savedCallsRescanTheExpectedTokens(@TempDir Path dir) throws Exception {
+        // The lookaheads of a statement scan past its end, a call is saved again while the calls that
+        // have been saved before it are still needed
+        var grammar = """
+                grammar Rescans;
+
+                options {
+                  JAVA_PACKAGE: "org.example"
+                }
+
+                Input() : void =
+                  ( stmt() )* <EOF>
+                ;
+
+                stmt() : void =
+                  ( LOOKAHEAD(3) "x" "y" "z"
+                  | LOOKAHEAD(3) "x" "x" "x" ";"
+                  | LOOKAHEAD(2) "y" "y"
+                  | "x"
+                  | "y"
+                  | ";"
+                  )
+                ;
+
+                SKIP = " " ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "x", "y", "z", ";" };
+
+                    public String call() throws Exception {
+                        // All inputs of up to 8 tokens
+                        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+                        int failed = 0;
+                        for (int length = 0; length <= 8; length++) {
+                            int[] words = new int[length];
+                            do {
+                                StringBuilder text = new StringBuilder();
+                                for (int w : words) {
+                                    text.append(WORDS[w]).append(' ');
+                                }
+                                String result = "parsed";
+                                try {
+                                    new Parser(text.toString()).Input();
+                                } catch (ParseException e) {
+                                    result = e.currentToken.next.beginColumn + " "
+                                            + java.util.Arrays.deepToString(e.expectedTokenSequences);
+                                    failed++;
+                                }
+                                digest.update((text + "-> " + result + "\\n").getBytes());
+                            } while (next(words));
+                        }
+                        return "failed=" + failed + ", digest=" + java.util.HexFormat.of().formatHex(digest.digest());
+                    }
+
+                    static boolean next(int[] words) {
+                        for (int i = words.length - 1; i >= 0; i--) {
+                            if (++words[i] < WORDS.length) {
+                                return true;
+                            }
+                            words[i] = 0;
+                        }
+                        return false;
+                    }
+                }
+                """;
+        // Without a token buffer the calls are rescanned from their saved tokens, with it from the
+        // positions in the buffer
+        var saved = GeneratedCode.run(dir.resolve("saved"), grammar, driver);
+        var buffered = GeneratedCode.run(dir.resolve("buffered"),
+                GeneratedCode.withOptions(grammar, "TOKEN_BUFFER: true"), driver);
+        assertFalse(saved.startsWith("failed=0,"), saved);
+        assertEquals(buffered, saved);
+    }
+
+    @Test
+    void savedLookaheadsStayBounded(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] STATEMENTS = { "x : y , z , ( ) ; ", "a c ; ", "x , y , z ; ", "x = y ; " };
+
+                    public String call() throws Exception {
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 40000; i++) {
+                            text.append(STATEMENTS[i % STATEMENTS.length]);
+                        }
+                        Parser parser = new Parser(text.toString());
+                        String result = parser.Input();
+                        java.lang.reflect.Field saved = Parser.class.getDeclaredField("jj_saved");
+                        saved.setAccessible(true);
+                        String error;
+                        try {
+                            // The expected tokens of the failed parse are rescanned from the saved lookaheads
+                            new Parser(text + "x , y , ").Input();
+                            error = "parsed";
+                        } catch (ParseException e) {
+                            error = e.getMessage();
+                        }
+                        return "statements=" + result.split(" ").length + ", saved=" + ((Object[]) saved.get(parser)).length
+                                + "\\n" + error;
+                    }
+                }
+                """;
+        var linked = GeneratedCode.run(dir.resolve("linked"), GeneratedCodeRunsTest.CHOICES, driver);
+        var buffered = GeneratedCode.run(dir.resolve("buffered"),
+                GeneratedCode.withOptions(GeneratedCodeRunsTest.CHOICES, "TOKEN_BUFFER: true"), driver);
+        assertTrue(linked.startsWith("statements=40000, saved=64\n"), linked);
+        assertEquals(linked, buffered);
+    }
+
+    @Test
+    void exceptionFreeLookaheadMatchesLookaheadSuccess(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "a", "+", "*", "(", ")", ";" };
+
+                    public String call() throws Exception {
+                        // All inputs of up to 6 tokens, a failed parse rescans the saved lookaheads
+                        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+                        int parsed = 0;
+                        int failed = 0;
+                        for (int length = 0; length <= 6; length++) {
+                            int[] words = new int[length];
+                            do {
+                                StringBuilder text = new StringBuilder();
+                                for (int w : words) {
+                                    text.append(WORDS[w]).append(' ');
+                                }
+                                String result;
+                                try {
+                                    result = new Parser(text.toString()).Input();
+                                    parsed++;
+                                } catch (ParseException e) {
+                                    result = e.getMessage();
+                                    failed++;
+                                }
+                                digest.update((text + "-> " + result + "\\n").getBytes());
+                            } while (next(words));
+                        }
+                        String error;
+                        try {
+                            new Parser("a * ( a + a ;").Input();
+                            error = "parsed";
+                        } catch (ParseException e) {
+                            error = java.util.Arrays.deepToString(e.expectedTokenSequences);
+                        }
+                        return "parsed=" + parsed + ", failed=" + failed + ", digest="
+                                + java.util.HexFormat.of().formatHex(digest.digest()) + "\\n"
+                                + new Parser("a * a + ( a + a * a ) * a ;").Input() + "\\n" + error;
+                    }
+
+                    static boolean next(int[] words) {
+                        for (int i = words.length - 1; i >= 0; i--) {
+                            if (++words[i] < WORDS.length) {
+                                return true;
+                            }
+                            words[i] = 0;
+                        }
+                        return false;
+                    }
+                }
+                """;
+        // The lookahead of a sum scans the nested lookahead of a product, with and without the buffer
+        var buffered = GeneratedCodeRunsTest.EXPRESSIONS;
+        var linked = buffered.replace(",\n  TOKEN_BUFFER: true", "");
+        var thrown = GeneratedCode.run(dir.resolve("thrown"), buffered, driver);
+        var returned = GeneratedCode.run(dir.resolve("returned"),
+                GeneratedCode.withOptions(buffered, "EXCEPTION_FREE_LOOKAHEAD: true"), driver);
+        assertTrue(thrown.contains("\n([a*a]+[(a+[a*a])*a]);\n"), thrown);
+        assertEquals(thrown, returned);
+
+        var linkedThrown = GeneratedCode.run(dir.resolve("linkedThrown"), linked, driver);
+        var linkedReturned = GeneratedCode.run(dir.resolve("linkedReturned"),
+                GeneratedCode.withOptions(linked, "EXCEPTION_FREE_LOOKAHEAD: true"), driver);
+        assertEquals(linkedThrown, linkedReturned);
+        assertEquals(thrown, linkedThrown);
+    }
+
+    @Test
+    void lexerPipelineStopsWhenDropped(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Pipelined;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  LEXER_THREAD: true,
+                  RECOGNIZER: true
+                }
+
+                Input() : int =
+                <?
+                  int n = 0;
+                ?>
+                  ( ( LOOKAHEAD(2) <ID> "=" <NUM> | <ID> ) <? n++; ?> )* <EOF>
+                <?
+                  return n;
+                ?>
+                ;
+
+                SKIP = " " ;
+
+                TOKEN =
+                  < ID: (["a"-"z"])+ >
+                | < NUM: (["0"-"9"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        // More tokens than the ring holds, the thread of a dropped pipeline waits for space
+                        String text = "a = 1 b ".repeat(3000);
+                        int parsed = new Parser(new LexerPipeline(new StringProvider(text))).Input();
+                        boolean recognized = new Recognizer(new LexerPipeline(new StringProvider(text)))
+                                .recognize("Input");
+                        boolean rejected = !new Recognizer(new LexerPipeline(new StringProvider(text + "1")))
+                                .recognize("Input");
+
+                        Thread thread = drop(text);
+                        for (int i = 0; (i < 200) && thread.isAlive(); i++) {
+                            System.gc();
+                            thread.join(50);
+                        }
+                        return parsed + " " + recognized + " " + rejected + " " + thread.isAlive();
+                    }
+
+                    static Thread drop(String text) {
+                        Thread[] threads = new Thread[1];
+                        LexerPipeline lexer = new LexerPipeline(new StringProvider(text), runnable -> {
+                            threads[0] = new Thread(runnable);
+                            threads[0].setDaemon(true);
+                            return threads[0];
+                        });
+                        lexer.getNextToken();
+                        return threads[0];
+                    }
+                }
+                """;
+        assertEquals("6000 true true false", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void parseBudgetStopsTheParse(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Budgeted;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  PARSE_BUDGET: true
+                }
+
+                Input =
+                  ( LOOKAHEAD(list() "=") list() "=" <ID> | list() ";" )* <EOF>
+                ;
+
+                list =
+                  <ID> ( "," <ID> )*
+                ;
+
+                SKIP = " " ;
+
+                TOKEN =
+                  < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String TEXT = "a , b ; c = d ".repeat(1000);
+
+                    public String call() throws Exception {
+                        // The text has 7 tokens and its lookaheads scan 8 tokens per repetition, the EOF token
+                        // is consumed too. One less than the exact budget fails.
+                        StringBuilder result = new StringBuilder("tokens: ");
+                        result.append(parse(new ParseBudget(7001, ParseBudget.UNLIMITED)));
+                        ParseBudget exceeded = new ParseBudget(7000, ParseBudget.UNLIMITED);
+                        result.append(' ').append(parse(exceeded)).append(' ').append(exceeded.getTokens());
+
+                        result.append(", steps: ").append(parse(new ParseBudget(ParseBudget.UNLIMITED, 8000)));
+                        exceeded = new ParseBudget(ParseBudget.UNLIMITED, 7999);
+                        result.append(' ').append(parse(exceeded)).append(' ').append(exceeded.getScanSteps());
+
+                        ParseBudget cancelled = new ParseBudget(ParseBudget.UNLIMITED, ParseBudget.UNLIMITED);
+                        cancelled.cancel();
+                        result.append(", cancelled: ").append(parse(cancelled));
+                        result.append(", deadline: ").append(parse(new ParseBudget(ParseBudget.UNLIMITED,
+                                ParseBudget.UNLIMITED, java.time.Duration.ZERO)));
+                        result.append(", unlimited: ").append(parse(null));
+                        return result.toString();
+                    }
+
+                    static String parse(ParseBudget budget) throws ParseException {
+                        Parser parser = new Parser(TEXT);
+                        parser.setBudget(budget);
+                        try {
+                            parser.Input();
+                            return "parsed";
+                        } catch (ParseBudgetException e) {
+                            return "failed " + e.errorCode;
+                        }
+                    }
+                }
+                """;
+        assertEquals("tokens: parsed failed 0 7001, steps: parsed failed 1 8000, cancelled: failed 3, "
+                + "deadline: failed 2, unlimited: parsed", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void lookaheadStatsCountTheScans(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Counted;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  LOOKAHEAD_STATS: true
+                }
+
+                Input =
+                  ( LOOKAHEAD(target() "=") target() "=" <ID>
+                  | LOOKAHEAD(2) <ID> "(" ")"
+                  | <ID>
+                  )* <EOF>
+                ;
+
+                target =
+                  <ID> ( "." <ID> )*
+                ;
+
+                SKIP = " " ;
+
+                TOKEN =
+                  < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        Parser parser = new Parser("a . b = c f ( ) g");
+                        parser.Input();
+                        java.util.List<LookaheadStats> stats = parser.getLookaheadStats();
+                        StringBuilder dump = new StringBuilder();
+                        for (LookaheadStats s : stats) {
+                            dump.append(s.getProduction()).append(' ').append(s.getLine()).append(':').append(s.getColumn())
+                                    .append(" calls=").append(s.getInvocations()).append(" scanned=")
+                                    .append(s.getScannedTokens()).append(" depth=").append(s.getMaxDepth()).append('\\n');
+                        }
+                        parser.resetLookaheadStats();
+                        dump.append("snapshot=").append(stats.get(0).getInvocations());
+                        for (LookaheadStats s : parser.getLookaheadStats()) {
+                            dump.append(' ').append(s.getInvocations()).append('/').append(s.getScannedTokens()).append('/')
+                                    .append(s.getMaxDepth());
+                        }
+                        return dump.toString();
+                    }
+                }
+                """;
+        // The first lookahead reaches "=" after "a . b", scans "." once more at "=", and fails on
+        // "f (" and "g" after two and three scans. The second one is evaluated for "f (" and "g".
+        assertEquals("Input 9:15 calls=3 scanned=11 depth=4\n" + "Input 10:15 calls=2 scanned=4 depth=2\n"
+                + "snapshot=3 0/0/0 0/0/0", GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void tryParseReportsTheFailureOfTheParser(@TempDir Path dir) throws Exception {
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "x", "a", "c", "=", "(", ")", ";", ":", ",", "w" };
+
+                    public String call() throws Exception {
+                        // All inputs of up to 5 tokens, on two lines from the third token on
+                        int failed = 0;
+                        int choices = 0;
+                        int mismatched = 0;
+                        int wrong = 0;
+                        for (int length = 0; length <= 5; length++) {
+                            int[] words = new int[length];
+                            do {
+                                StringBuilder text = new StringBuilder();
+                                for (int i = 0; i < length; i++) {
+                                    text.append(WORDS[words[i]]).append((i == 1) ? '\\n' : ' ');
+                                }
+                                ParseResult result = new Parser(text.toString()).tryParse("Input");
+                                String expected;
+                                java.util.Set<Integer> kinds = new java.util.HashSet<>();
+                                try {
+                                    new Parser(text.toString()).Input();
+                                    expected = "success";
+                                } catch (ParseException e) {
+                                    expected = e.currentToken.next.beginLine + ":" + e.currentToken.next.beginColumn;
+                                    for (int[] sequence : e.expectedTokenSequences) {
+                                        kinds.add(sequence[0]);
+                                    }
+                                } catch (TokenException e) {
+                                    expected = "lexer";
+                                }
+
+                                String actual = result.isSuccess() ? "success"
+                                        : (result.getToken() == null) ? "lexer" : result.getLine() + ":" + result.getColumn();
+                                if (!result.isSuccess()) {
+                                    failed++;
+                                    if (result.getExpectedKind() < 0) {
+                                        choices++;
+                                    } else if (!kinds.contains(result.getExpectedKind())) {
+                                        wrong++;
+                                    }
+                                }
+                                if (!expected.equals(actual)) {
+                                    mismatched++;
+                                }
+                            } while (next(words));
+                        }
+                        ParseResult result = new Parser("x = x ;\\nx ( ;").tryParse("Input");
+                        return "mismatched=" + mismatched + ", wrong=" + wrong + ", failed=" + failed + ", choices=" + (choices > 0)
+                                + "\\n" + result.getMessage();
+                    }
+
+                    static boolean next(int[] words) {
+                        for (int i = words.length - 1; i >= 0; i--) {
+                            if (++words[i] < WORDS.length) {
+                                return true;
+                            }
+                            words[i] = 0;
+                        }
+                        return false;
+                    }
+                }
+                """;
+        var lines = GeneratedCodeRunsTest.CHOICES.replace("SKIP = \" \" ;", "SKIP = \" \" | \"\\n\" ;");
+        var grammar = GeneratedCode.withOptions(lines, "PARSE_RESULT: true");
+        var result = GeneratedCode.run(dir, grammar, driver);
+        assertTrue(result.startsWith("mismatched=0, wrong=0, failed="), result);
+        assertFalse(result.startsWith("mismatched=0, wrong=0, failed=111110,"), result);
+        assertTrue(result.endsWith(", choices=true\nParse error at line 2, column 3.  Encountered: (.  Was expecting: \";\""),
+                result);
+    }
+
+    @Test
+    void syncTokensRecordTheErrorsAndContinue(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Recovering;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  SYNC_TOKENS: "statement: SEMICOLON, block: RBRACE"
+                }
+
+                Input() : String =
+                <?
+                  StringBuilder b = new StringBuilder();
+                  String s;
+                ?>
+                  ( ( s=statement() | s=block() ) <? b.append(s).append(' '); ?> )* <EOF>
+                <?
+                  return b.toString();
+                ?>
+                ;
+
+                block() : String =
+                <?
+                  StringBuilder b = new StringBuilder("{");
+                  String s;
+                ?>
+                  < LBRACE > ( s=statement() <? b.append(' ').append(s); ?> )* < RBRACE >
+                <?
+                  return b.append(" }").toString();
+                ?>
+                ;
+
+                statement() : String =
+                <?
+                  Token t;
+                ?>
+                  t=<ID> ( LOOKAHEAD(2) < EQ > <ID> | < LPAREN > < RPAREN > ) < SEMICOLON >
+                <?
+                  return t.image;
+                ?>
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                TOKEN =
+                  < LBRACE: "{" >
+                | < RBRACE: "}" >
+                | < LPAREN: "(" >
+                | < RPAREN: ")" >
+                | < EQ: "=" >
+                | < SEMICOLON: ";" >
+                | < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        // A failed statement skips up to its semicolon and returns null, a failed block up to
+                        // its brace. The skip of the last statement stops at the EOF token.
+                        Parser parser = new Parser("a = b ; c ( ; d ( ) ;\\n{ e = ; f = g ; }\\n{ ( h ; } i ( ) ;\\nj =");
+                        StringBuilder result = new StringBuilder(parser.Input());
+                        for (ParseException e : parser.getErrors()) {
+                            Token t = e.currentToken.next;
+                            result.append('\\n').append(t.beginLine).append(':').append(t.beginColumn).append(' ')
+                                    .append(t.kind == ParserConstants.EOF ? "EOF" : t.image);
+                        }
+                        parser.ReInit(new Lexer(new JavaCharStream(new StringProvider("a = b ;"))));
+                        result.append('\\n').append(parser.Input()).append(parser.getErrors().size());
+                        return result.toString();
+                    }
+                }
+                """;
+        assertEquals("a null d { null f } null i null \n1:13 ;\n2:5 =\n3:3 (\n4:3 =\na 0",
+                GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void expandedDeferredBodiesMatchEagerParse(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Deferred;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  NODE_MULTI: true,
+                  NODE_DEFAULT_VOID: true,
+                  TRACK_TOKENS: true,
+                  DEFER_PRODUCTIONS: "body: LBRACE RBRACE, text: QUOTE QUOTE"
+                }
+
+                Input() #Root =
+                  ( function() )* <EOF>
+                ;
+
+                function() #Function =
+                  <ID> < LPAREN > < RPAREN > body()
+                ;
+
+                body() #Body =
+                  < LBRACE > ( statement() )* < RBRACE >
+                ;
+
+                statement =
+                  <ID> #Name < SEMICOLON > | body() | text()
+                ;
+
+                text() #Text =
+                  < QUOTE > ( <ID> #Word | < LBRACE > | < RBRACE > | < SEMICOLON > )* < QUOTE >
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                TOKEN =
+                  < LBRACE: "{" >
+                | < RBRACE: "}" >
+                | < LPAREN: "(" >
+                | < RPAREN: ")" >
+                | < SEMICOLON: ";" >
+                | < QUOTE: "'" >
+                | < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final String[] WORDS = { "x", "{", "}", ";" };
+
+                    public String call() throws Exception {
+                        // Random functions with nested bodies and texts, the texts hold unbalanced braces
+                        java.util.Random random = new java.util.Random(21);
+                        StringBuilder trees = new StringBuilder();
+                        for (int i = 0; i < 300; i++) {
+                            StringBuilder text = new StringBuilder();
+                            for (int n = random.nextInt(4); n > 0; n--) {
+                                text.append("f ( )\\n");
+                                body(text, random, 0);
+                            }
+                            String eager = tree(parse(text.toString(), false));
+                            Node deferred = parse(text.toString(), true);
+                            String skipped = tree(deferred);
+                            if (!eager.equals(skipped)) {
+                                return "different: " + text + "\\n" + eager + "\\n" + skipped;
+                            }
+                            trees.append(eager);
+                        }
+
+                        // An expanded body only keeps its own tokens, up to an EOF token
+                        Node root = parse("f ( ) { x ; { y ; } }\\ng ( ) { z ; }", true);
+                        Node body = root.jjtGetChild(0).jjtGetChild(0);
+                        StringBuilder tokens = new StringBuilder();
+                        for (Token t = body.jjtGetChild(0).jjtGetFirstToken(); t != null; t = t.next) {
+                            tokens.append(t.kind == ParserConstants.EOF ? "EOF" : t.image).append(' ');
+                        }
+
+                        String error;
+                        try {
+                            parse("f ( ) { x ; { y } }", false);
+                            error = "parsed";
+                        } catch (ParseException e) {
+                            error = e.getMessage();
+                        }
+                        try {
+                            tree(parse("f ( ) { x ; { y } }", true));
+                        } catch (IllegalStateException e) {
+                            error = error.equals(e.getMessage()) ? "same error" : error + "\\n" + e.getMessage();
+                        }
+                        return trees.length() + "\\n" + tokens + "\\n" + error;
+                    }
+
+                    static Node parse(String text, boolean deferred) throws ParseException {
+                        Parser parser = new Parser(text);
+                        parser.setDeferred(deferred);
+                        parser.Input();
+                        return parser.rootNode();
+                    }
+
+                    static void body(StringBuilder text, java.util.Random random, int depth) {
+                        text.append("{ ");
+                        for (int n = random.nextInt(4); n > 0; n--) {
+                            switch (random.nextInt(depth < 3 ? 3 : 2)) {
+                                case 0 -> text.append("x ; ");
+                                case 1 -> {
+                                    text.append("' ");
+                                    for (int w = random.nextInt(4); w > 0; w--) {
+                                        text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                                    }
+                                    text.append("' ");
+                                }
+                                default -> body(text, random, depth + 1);
+                            }
+                        }
+                        text.append("}\\n");
+                    }
+
+                    // The node with its tokens and children, the children of a deferred node are expanded
+                    static String tree(Node node) {
+                        StringBuilder tree = new StringBuilder(node.toString()).append('[');
+                        Token first = node.jjtGetFirstToken();
+                        Token last = node.jjtGetLastToken();
+                        if (first != null) {
+                            tree.append(first.beginLine).append(':').append(first.beginColumn).append('-')
+                                    .append(last.endLine).append(':').append(last.endColumn);
+                        }
+                        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                            tree.append(' ').append(tree(node.jjtGetChild(i)));
+                        }
+                        return tree.append(']').toString();
+                    }
+                }
+                """;
+        var result = GeneratedCode.run(dir, grammar, driver);
+        assertTrue(result.endsWith("\nx ; { y ; } } EOF \nsame error"), result);
+    }
+
+    @Test
+    void deferredProductionThatSwitchesTheLexicalStateIsParsedEagerly(@TempDir Path dir) throws Exception {
+        // The raw text after "<" is lexed in its own state, the braces in it don't close the body
+        var grammar = """
+                grammar Switched;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  NODE_MULTI: true,
+                  NODE_DEFAULT_VOID: true,
+                  DEFER_PRODUCTIONS: "body: LBRACE RBRACE, args: LPAREN RPAREN"
+                }
+
+                Input() #Root =
+                  ( <ID> args() body() )* <EOF>
+                ;
+
+                args() #Args =
+                  < LPAREN > ( <ID> #Name )* < RPAREN >
+                ;
+
+                body() #Body =
+                  < LBRACE > ( <ID> #Name | raw() )* < RBRACE >
+                ;
+
+                raw() #Raw =
+                  < LT > <? token_source.SwitchTo(RAW); ?> < TEXT >
+                ;
+
+                SKIP = " " ;
+
+                TOKEN =
+                  < LBRACE: "{" >
+                | < RBRACE: "}" >
+                | < LPAREN: "(" >
+                | < RPAREN: ")" >
+                | < LT: "<" >
+                | < ID: (["a"-"z"])+ >
+                ;
+
+                TOKEN <RAW>= < TEXT: (~[">"])* ">" > : DEFAULT ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        StringBuilder trees = new StringBuilder();
+                        for (boolean deferred : new boolean[] { false, true }) {
+                            Parser parser = new Parser("f ( a b ) { x < } y > z } g ( ) { }");
+                            parser.setDeferred(deferred);
+                            parser.Input();
+                            trees.append(tree(parser.rootNode())).append('\\n');
+                        }
+                        return trees.toString();
+                    }
+
+                    static String tree(Node node) {
+                        StringBuilder tree = new StringBuilder(node.toString());
+                        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                            tree.append(i == 0 ? "[" : " ").append(tree(node.jjtGetChild(i)));
+                        }
+                        return (node.jjtGetNumChildren() == 0) ? tree.toString() : tree.append(']').toString();
+                    }
+                }
+                """;
+        var tree = "Root[Args[Name Name] Body[Name Raw Name] Args Body]\n";
+        assertEquals(tree + tree, GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void parallelParserReturnsTheUnitsInOrder(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Parallel;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  PARALLEL_UNITS: "statement: SEMICOLON"
+                }
+
+                Input() : String =
+                <?
+                  StringBuilder units = new StringBuilder();
+                  String s;
+                ?>
+                  ( s=statement() <? units.append(s).append('\\n'); ?> )* <EOF>
+                <?
+                  return units.toString();
+                ?>
+                ;
+
+                statement() : String =
+                <?
+                  Token t;
+                  String s;
+                ?>
+                  t=<ID> ( < EQ > <ID> <? s = "="; ?> | s=block() ) < SEMICOLON >
+                <?
+                  return t.image + "@" + t.beginLine + ":" + t.beginColumn + s;
+                ?>
+                ;
+
+                block() : String =
+                <?
+                  StringBuilder b = new StringBuilder("{");
+                  String s;
+                ?>
+                  < LBRACE > ( s=statement() <? b.append(s).append(' '); ?> )* < RBRACE >
+                <?
+                  return b.append('}').toString();
+                ?>
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                MORE = "/*" : IN_COMMENT ;
+
+                SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+                MORE <IN_COMMENT>= < ~[] > ;
+
+                TOKEN =
+                  < LBRACE: "{" >
+                | < RBRACE: "}" >
+                | < EQ: "=" >
+                | < SEMICOLON: ";" >
+                | < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        // Small chunks split the input in nested blocks and after comments with semicolons
+                        java.util.Random random = new java.util.Random(23);
+                        StringBuilder text = new StringBuilder();
+                        for (int i = 0; i < 2000; i++) {
+                            statement(text, random, 0);
+                        }
+                        String input = text.toString();
+                        String sequential = new Parser(input).Input();
+                        StringBuilder result = new StringBuilder().append(sequential.lines().count());
+                        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+                        try {
+                            for (int size : new int[] { 0, 1, 40, 500 }) {
+                                StringBuilder units = new StringBuilder();
+                                for (String unit : new ParallelParser(pool, size).parse(input)) {
+                                    units.append(unit).append('\\n');
+                                }
+                                result.append(' ').append(units.toString().equals(sequential));
+                            }
+                            result.append('\\n').append(error(input + "x = ;\\ny = z ;", pool));
+                            result.append('\\n').append(error(input + "x = { y = z ; } ;", pool));
+                            result.append('\\n').append(error(input.substring(0, input.length() / 2) + "# ;", pool));
+                        } finally {
+                            pool.shutdown();
+                        }
+                        return result.toString();
+                    }
+
+                    static void statement(StringBuilder text, java.util.Random random, int depth) {
+                        text.append("x");
+                        if (depth < 3 && random.nextInt(4) == 0) {
+                            text.append(" { ");
+                            for (int n = random.nextInt(4); n > 0; n--) {
+                                statement(text, random, depth + 1);
+                            }
+                            text.append("}");
+                        } else {
+                            text.append(" = y");
+                        }
+                        text.append(random.nextInt(5) == 0 ? " /* ; */ ;\\n" : " ; ");
+                    }
+
+                    // The sequential and the parallel parse fail alike
+                    static String error(String input, java.util.concurrent.ForkJoinPool pool) {
+                        String sequential;
+                        try {
+                            new Parser(input).Input();
+                            sequential = "parsed";
+                        } catch (ParseException | TokenException e) {
+                            sequential = e.getClass().getSimpleName() + ": " + e.getMessage();
+                        }
+                        String parallel;
+                        try {
+                            new ParallelParser(pool, 40).parse(input);
+                            parallel = "parsed";
+                        } catch (ParseException | TokenException e) {
+                            parallel = e.getClass().getSimpleName() + ": " + e.getMessage();
+                        }
+                        return sequential.equals(parallel) ? sequential.substring(0, sequential.indexOf(':'))
+                                : sequential + " <> " + parallel;
+                    }
+                }
+                """;
+        assertEquals("2000 true true true true\nParseException\nParseException\nTokenException",
+                GeneratedCode.run(dir, grammar, driver));
+    }
+
+    @Test
+    void chunkedLexerMatchesSequentialLexer(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Chunked;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  CHUNKED_LEXER: true
+                }
+
+                Input() =
+                  ( <ID> | <QUOTE> ( <TEXT> )* <CLOSE> )* <EOF>
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                MORE = "/*" : IN_COMMENT ;
+
+                SPECIAL_TOKEN <IN_COMMENT>= < COMMENT: "*/" > : DEFAULT ;
+
+                MORE <IN_COMMENT>= < ~[] > ;
+
+                TOKEN = < QUOTE: "\\"" > : IN_STRING ;
+
+                TOKEN <IN_STRING>=
+                  < TEXT: (~["\\""])+ >
+                | < CLOSE: "\\"" > : DEFAULT
+                ;
+
+                TOKEN = < ID: (["a"-"z"])+ > ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    public String call() throws Exception {
+                        // Comments and strings span many lines and hold the delimiters of each other, the
+                        // runs that start from a line inside them are wrong
+                        java.util.Random random = new java.util.Random(24);
+                        StringBuilder text = new StringBuilder();
+                        while (text.length() < 2_000_000) {
+                            switch (random.nextInt(8)) {
+                                case 0 -> text.append("/*").append(lines(random, "\\" x \\"")).append("*/");
+                                case 1 -> text.append('"').append(lines(random, "/* x")).append('"');
+                                case 2 -> text.append('\\n');
+                                default -> text.append("abc".substring(random.nextInt(3))).append(' ');
+                            }
+                        }
+                        String input = text.toString();
+                        String sequential = sequential(input);
+
+                        StringBuilder result = new StringBuilder().append(sequential.lines().count());
+                        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+                        try {
+                            for (int chunks : new int[] { 0, 1, 3, 16 }) {
+                                result.append(' ').append(sequential.equals(chunked(input, pool, chunks)));
+                            }
+                            String failed = input.substring(0, input.length() / 2) + "#" + input.substring(input.length() / 2);
+                            String expected;
+                            try {
+                                expected = sequential(failed);
+                            } catch (TokenException e) {
+                                expected = e.getMessage();
+                            }
+                            try {
+                                result.append(' ').append(expected.equals(chunked(failed, pool, 16)));
+                            } catch (TokenException e) {
+                                result.append(' ').append(expected.equals(e.getMessage()));
+                            }
+                        } finally {
+                            pool.shutdown();
+                        }
+                        return result.toString();
+                    }
+
+                    static String lines(java.util.Random random, String delimiter) {
+                        StringBuilder lines = new StringBuilder();
+                        for (int n = random.nextInt(random.nextInt(10) == 0 ? 5000 : 20); n > 0; n--) {
+                            lines.append(random.nextInt(3) == 0 ? "\\n" : random.nextInt(50) == 0 ? delimiter : "x ");
+                        }
+                        return lines.toString();
+                    }
+
+                    static String sequential(String input) {
+                        StringBuilder tokens = new StringBuilder();
+                        Lexer lexer = new Lexer(new JavaCharStream(new StringProvider(input)));
+                        for (Token t = lexer.getNextToken(); ; t = lexer.getNextToken()) {
+                            tokens.append(t.kind).append(' ').append(t.image).append('\\n');
+                            if (t.kind == ParserConstants.EOF) {
+                                return tokens.toString();
+                            }
+                        }
+                    }
+
+                    static String chunked(String input, java.util.concurrent.ForkJoinPool pool, int chunks) {
+                        StringBuilder tokens = new StringBuilder();
+                        ChunkedLexer.Tokens lexed = new ChunkedLexer(pool, chunks).lex(input);
+                        for (int i = 0; i < lexed.size(); i++) {
+                            tokens.append(lexed.getKind(i)).append(' ').append(lexed.getImage(i)).append('\\n');
+                        }
+                        return tokens.toString();
+                    }
+                }
+                """;
+        var result = GeneratedCode.run(dir, grammar, driver);
+        assertTrue(result.endsWith(" true true true true true"), result);
+    }
+
+    @Test
+    void parserBatchParsesEachInputOnce(@TempDir Path dir) throws Exception {
+        var grammar = """
+                grammar Batched;
+
+                options {
+                  JAVA_PACKAGE: "org.example",
+                  PARSER_POOL: true,
+                  PARSER_BATCH: "Input"
+                }
+
+                Input() : String =
+                <?
+                  StringBuilder b = new StringBuilder();
+                  Token t;
+                  Driver.enter();
+                ?>
+                  ( LOOKAHEAD(2) t=<ID> < LPAREN > < RPAREN > <? b.append(t.image).append("() "); ?>
+                  | t=<ID> <? b.append(t.image).append(' '); ?>
+                  )* <EOF>
+                <?
+                  return b.toString();
+                ?>
+                ;
+
+                SKIP = " " | "\\n" ;
+
+                TOKEN =
+                  < LPAREN: "(" >
+                | < RPAREN: ")" >
+                | < ID: (["a"-"z"])+ >
+                ;
+                """;
+        var driver = """
+                package org.example;
+
+                public class Driver implements java.util.concurrent.Callable<String> {
+
+                    private static final java.util.concurrent.atomic.AtomicInteger ACTIVE =
+                            new java.util.concurrent.atomic.AtomicInteger();
+                    private static final java.util.concurrent.atomic.AtomicInteger MAX =
+                            new java.util.concurrent.atomic.AtomicInteger();
+
+                    // Counts the parses that run at once, each parse holds its permit for a while
+                    static void enter() {
+                        MAX.accumulateAndGet(ACTIVE.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        ACTIVE.decrementAndGet();
+                    }
+
+                    public String call() throws Exception {
+                        java.util.Random random = new java.util.Random(25);
+                        // Some inputs end with a parenthesis that fails
+                        String[] words = { "a", "b", "c ( )", "(", ")" };
+                        java.util.Map<String, String> sources = new java.util.LinkedHashMap<>();
+                        for (int i = 0; i < 200; i++) {
+                            StringBuilder text = new StringBuilder();
+                            for (int n = random.nextInt(8); n > 0; n--) {
+                                text.append(words[random.nextInt(3)]).append(' ');
+                            }
+                            if (random.nextInt(10) == 0) {
+                                text.append(words[3 + random.nextInt(2)]);
+                            }
+                            sources.put("in" + i, text.toString());
+                        }
+
+                        // The results of the plain parser, before the parses of the batch are counted
+                        int failed = 0;
+                        java.util.Map<String, String> expected = new java.util.HashMap<>();
+                        for (java.util.Map.Entry<String, String> source : sources.entrySet()) {
+                            try {
+                                expected.put(source.getKey(), new Parser(source.getValue()).Input());
+                            } catch (ParseException e) {
+                                expected.put(source.getKey(), e.getMessage());
+                                failed++;
+                            }
+                        }
+                        MAX.set(0);
+
+                        int wrong = 0;
+                        boolean waited = false;
+                        java.util.Set<String> names = new java.util.HashSet<>();
+                        try (java.util.concurrent.ExecutorService executor =
+                                java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor();
+                                ParserBatch batch = new ParserBatch(executor, 3);
+                                java.util.stream.Stream<ParserBatch.Result> results = batch.parse(sources)) {
+                            for (ParserBatch.Result result : (Iterable<ParserBatch.Result>) results::iterator) {
+                                names.add(result.getName());
+                                waited |= !result.getWaitDuration().isZero();
+                                String actual = result.isSuccess() ? result.getValue() : result.getFailure().getMessage();
+                                if (!expected.get(result.getName()).equals(actual)) {
+                                    wrong++;
+                                }
+                            }
+
+                            int max = MAX.get();
+
+                            // A file that can't be read is a failed result
+                            java.nio.file.Path dir = java.nio.file.Files.createDirectories(java.nio.file.Path.of("__FILES__"));
+                            java.nio.file.Path file = java.nio.file.Files.writeString(dir.resolve("a.txt"), "x ( ) y");
+                            StringBuilder files = new StringBuilder();
+                            batch.parseFiles(java.util.List.of(file, dir.resolve("missing.txt")))
+                                    .sorted(java.util.Comparator.comparing(ParserBatch.Result::getName))
+                                    .forEach(r -> files.append(r.isSuccess() ? r.getValue()
+                                            : r.getFailure().getClass().getSimpleName()).append('|'));
+                            return "results=" + names.size() + ", failed=" + (failed > 0) + ", wrong=" + wrong
+                                    + ", waited=" + waited + ", max=" + max + "\\n" + files;
+                        }
+                    }
+                }
+                """;
+        assertEquals("results=200, failed=true, wrong=0, waited=true, max=3\nx() y |NoSuchFileException|",
+                GeneratedCode.run(dir, grammar, driver.replace("__FILES__", dir.resolve("files").toString())));
+    }
+}
@@ -0,0 +1,79 @@
+package org.hivevm.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hivevm.core.Environment;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Renders the conditions of a template: an option that is set, unset or missing selects the
+ * positive or the else block.
+ */
+class TemplateTest {
+
+    private static final String TEMPLATE = """
+            begin
+            //@if(A)
+            a
+            //@fi
+            //@if(B)
+            //@else
+            not b
+            //@fi
+            //@if(C)
+            c
+            //@else
+            not c
+            //@fi
+            end
+            """;
+
+    /**
+     * Get the lines of the rendered template, the header and the options written by the renderer
+     * are skipped.
+     */
+    private static String render(Map<String, Object> options) {
+        var environment = new Environment() {
+
+            @Override
+            public boolean has(String name) {
+                return options.containsKey(name);
+            }
+
+            @Override
+            public Object get(String name) {
+                return options.get(name);
+            }
+        };
+        var output = new ByteArrayOutputStream();
+        new Template(TemplateTest.TEMPLATE).render("Test", output, environment);
+        var text = output.toString(StandardCharsets.UTF_8);
+        var lines = Arrays.stream(text.split("\n")).map(String::strip).toList();
+        return String.join(" ", lines.subList(lines.indexOf("begin"), lines.indexOf("end") + 1));
+    }
+
+    @Test
+    void setConditions() {
+        assertEquals("begin a c end", TemplateTest.render(Map.of("A", true, "B", true, "C", true)));
+    }
+
+    @Test
+    void unsetConditions() {
+        assertEquals("begin not b not c end", TemplateTest.render(Map.of("A", false, "B", false, "C", false)));
+    }
+
+    @Test
+    void missingOptionsAreFalse() {
+        assertEquals("begin not b not c end", TemplateTest.render(Map.of()));
+    }
+
+    @Test
+    void emptyValuesAreFalse() {
+        assertEquals("begin a not b not c end", TemplateTest.render(Map.of("A", 1, "B", "", "C", 0)));
+    }
+}